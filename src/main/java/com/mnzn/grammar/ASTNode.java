@@ -5,6 +5,7 @@ import com.mnzn.lex.TokenTag;
 import com.mnzn.utils.tree.DrawableTreeNode;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 // 抽象语法树节点
@@ -26,6 +27,13 @@ public class ASTNode extends DrawableTreeNode<ASTNode> {
         this.children = new ArrayList<>();
     }
 
+    // 由CompactAST构造, 子结点列表的容量与子结点数相同
+    ASTNode(ProduceTag produce, List<ASTNode> children) {
+        this.produce = produce;
+        this.terminal = null;
+        this.children = new ArrayList<>(children);
+    }
+
     // 是否为叶节点(即终结符节点)
     public boolean isLeaf() {
         return terminal != null;
@@ -75,9 +83,31 @@ public class ASTNode extends DrawableTreeNode<ASTNode> {
         return children.size();
     }
 
+    // 是否为指定产生式的非终结符结点
+    public boolean is(String name) {
+        return produce != null && name.equals(produce.toString());
+    }
+
+    // 展开左递归的列表 name -> name ... item, 返回所有的item
+    // 列表的第一项会被简化为单个结点, 空列表为没有子结点的name结点; 不使用递归以支持很长的列表
+    public List<ASTNode> flatten(String name, int itemIndex) {
+        List<ASTNode> items = new ArrayList<>();
+        ASTNode cur = this;
+        while (cur.is(name) && cur.size() != 0) {
+            items.add(cur.c(itemIndex));
+            cur = cur.c(0);
+        }
+        if (cur != this && !cur.is(name)) {
+            items.add(cur);
+        }
+        Collections.reverse(items);
+        return items;
+    }
+
     @Override
     public List<ASTNode> getChildren() {
-        return children.stream().toList();
+        // 只读视图,避免每次调用都复制子节点列表
+        return Collections.unmodifiableList(children);
     }
 
     @Override
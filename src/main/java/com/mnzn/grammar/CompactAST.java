@@ -0,0 +1,237 @@
+package com.mnzn.grammar;
+
+import com.mnzn.lex.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 紧凑语法树, 一次解析得到的所有结点都以并行int数组的形式储存在同一个arena中
+// 结点i: kind[i]为产生式名的下标(终结符为NONE), firstChild/nextSibling构成孩子兄弟链表, token[i]为终结符的下标
+// 结点按规约的顺序分配, 子结点的下标总是小于父结点, 根结点的下标最大
+public class CompactAST {
+    public static final int NONE = -1;
+    private static final int INIT_CAPACITY = 64;
+
+    private final String[] kindNames; // kind => 产生式名, 由文法共享
+    private Token[] tokens = new Token[INIT_CAPACITY]; // 终结符表
+    private int tokenCount = 0;
+    private int[] kind = new int[INIT_CAPACITY];
+    private int[] firstChild = new int[INIT_CAPACITY];
+    private int[] nextSibling = new int[INIT_CAPACITY];
+    private int[] token = new int[INIT_CAPACITY];
+    private int count = 0; // 已分配的结点数
+    private int root = NONE;
+
+    CompactAST(String[] kindNames) {
+        this.kindNames = kindNames;
+    }
+
+    /// 构造相关, 仅供Grammar在解析过程中调用
+    // 分配一个终结符结点
+    int addLeaf(Token terminal) {
+        if (tokenCount == tokens.length) tokens = Arrays.copyOf(tokens, tokenCount << 1);
+        int node = alloc();
+        kind[node] = NONE;
+        token[node] = tokenCount;
+        tokens[tokenCount++] = terminal;
+        return node;
+    }
+
+    // 分配一个非终结符结点, 子结点为children[from, to), 串成兄弟链表
+    int addNode(int kindId, int[] children, int from, int to) {
+        int node = alloc();
+        kind[node] = kindId;
+        token[node] = NONE;
+        if (from < to) firstChild[node] = children[from];
+        for (int i = from + 1; i < to; i++) {
+            nextSibling[children[i - 1]] = children[i];
+        }
+        return node;
+    }
+
+    // 解析结束, 记录根结点并释放多余的容量
+    void finish(int node) {
+        this.root = node;
+        kind = Arrays.copyOf(kind, count);
+        firstChild = Arrays.copyOf(firstChild, count);
+        nextSibling = Arrays.copyOf(nextSibling, count);
+        token = Arrays.copyOf(token, count);
+        tokens = Arrays.copyOf(tokens, tokenCount);
+    }
+
+    private int alloc() {
+        if (count == kind.length) {
+            int capacity = count << 1;
+            kind = Arrays.copyOf(kind, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            token = Arrays.copyOf(token, capacity);
+        }
+        firstChild[count] = NONE;
+        nextSibling[count] = NONE;
+        return count++;
+    }
+
+    /// 按下标访问, 不分配对象
+    // 结点总数
+    public int nodeCount() {
+        return count;
+    }
+
+    public int root() {
+        return root;
+    }
+
+    // 是否为叶节点(即终结符节点)
+    public boolean isLeaf(int node) {
+        return kind[node] == NONE;
+    }
+
+    // 产生式名的下标, 终结符为NONE
+    public int kind(int node) {
+        return kind[node];
+    }
+
+    // 产生式名, 终结符为null
+    public String kindName(int node) {
+        return kind[node] == NONE ? null : kindNames[kind[node]];
+    }
+
+    // 第一个子结点, 不存在时为NONE
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    // 下一个兄弟结点, 不存在时为NONE
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    // 终结符结点的token, 非终结符为null
+    public Token token(int node) {
+        return token[node] == NONE ? null : tokens[token[node]];
+    }
+
+    // 第i个子结点
+    public int child(int node, int i) {
+        int c = firstChild[node];
+        while (i-- > 0 && c != NONE) c = nextSibling[c];
+        if (c == NONE) throw new IndexOutOfBoundsException("child index out of range");
+        return c;
+    }
+
+    // 子结点数
+    public int size(int node) {
+        int size = 0;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) ++size;
+        return size;
+    }
+
+    public String toString(int node) {
+        return isLeaf(node) ? token(node).toString() : kindName(node);
+    }
+
+    // 根结点处的游标
+    public Cursor cursor() {
+        if (root == NONE) throw new IllegalStateException("CompactAST is empty");
+        return new Cursor();
+    }
+
+    // 转换为普通的ASTNode树, 供需要修改语法树的解释过程使用
+    // 子结点先于父结点分配, 按下标顺序构造即可, 不需要递归
+    public ASTNode toTree() {
+        ASTNode[] nodes = new ASTNode[count];
+        List<ASTNode> children = new ArrayList<>();
+        for (int node = 0; node < count; node++) {
+            if (isLeaf(node)) {
+                nodes[node] = new ASTNode(tokens[token[node]]);
+                continue;
+            }
+            for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+                children.add(nodes[c]);
+                nodes[c] = null;
+            }
+            nodes[node] = new ASTNode(ProduceTag.of(kindNames[kind[node]]), children);
+            children.clear();
+        }
+        return nodes[root];
+    }
+
+    // 在arena中移动的游标, 移动时只修改自身, 遍历整棵树只需要一个游标对象
+    public class Cursor {
+        private int node = root;
+        private int[] path = new int[16]; // 祖先结点, 用于返回父结点
+        private int depth = 0;
+
+        private Cursor() {
+        }
+
+        // 当前结点在arena中的下标
+        public int node() {
+            return node;
+        }
+
+        // 当前结点的深度, 根结点为0
+        public int depth() {
+            return depth;
+        }
+
+        public boolean isLeaf() {
+            return CompactAST.this.isLeaf(node);
+        }
+
+        public Token token() {
+            return CompactAST.this.token(node);
+        }
+
+        public String kindName() {
+            return CompactAST.this.kindName(node);
+        }
+
+        // 移动到第一个子结点, 没有子结点时不移动并返回false
+        public boolean firstChild() {
+            int c = firstChild[node];
+            if (c == NONE) return false;
+            if (depth == path.length) path = Arrays.copyOf(path, depth << 1);
+            path[depth++] = node;
+            node = c;
+            return true;
+        }
+
+        // 移动到下一个兄弟结点, 没有兄弟结点时不移动并返回false
+        public boolean nextSibling() {
+            int s = nextSibling[node];
+            if (s == NONE || depth == 0) return false;
+            node = s;
+            return true;
+        }
+
+        // 移动到父结点, 已在根结点时返回false
+        public boolean parent() {
+            if (depth == 0) return false;
+            node = path[--depth];
+            return true;
+        }
+
+        // 按先序移动到下一个结点, 遍历结束时返回false
+        public boolean next() {
+            if (firstChild()) return true;
+            do {
+                if (nextSibling()) return true;
+            } while (parent());
+            return false;
+        }
+
+        // 回到根结点
+        public void reset() {
+            node = root;
+            depth = 0;
+        }
+
+        @Override
+        public String toString() {
+            return CompactAST.this.toString(node);
+        }
+    }
+}
@@ -75,6 +75,7 @@ public class Grammar {
     private final int productCount;         // 非终结符数(product左端数,goto表的列数)
     // id映射表
     private final Map<String, Integer> productNameToId = new HashMap<>(); // 产生式名到id的映射
+    private String[] productNames;                                        // id到产生式名的映射
     private final Map<Product, Integer> productToId = new HashMap<>(); // 产生式到id的映射
     private final Map<TokenTag, Integer> tokenToId = new HashMap<>(); // token类型到id的映射
     private final Set<Product.Symbol> allSymbols = new HashSet<>();   // 全部文法符号的集合
@@ -219,12 +220,14 @@ public class Grammar {
     }
 
 
-    // 初始化映射表:productNameToId,productToId,tokenToId,productGroup,allSymbols
+    // 初始化映射表:productNameToId,productNames,productToId,tokenToId,productGroup,allSymbols
     private void initMap() {
         // 获取productName => id的映射
         for (Product p : products) {
             productNameToId.computeIfAbsent(p.getLeft(), k -> productNameToId.size());
         }
+        productNames = new String[productNameToId.size()];
+        productNameToId.forEach((name, id) -> productNames[id] = name);
         // 获取product => id的映射
         for (Product p : products) {
             productToId.computeIfAbsent(p, k -> productToId.size());
@@ -248,42 +251,125 @@ public class Grammar {
         }
     }
 
+    // 语法分析过程中构造语法树的方式
+    private interface TreeBuilder<T> {
+        // 移入终结符a
+        T shift(Token a);
+
+        // 按照产生式production规约nodes
+        T reduce(Product production, List<T> nodes);
+    }
+
     // 解析token流 Todo 丰富报错信息
     public ASTNode parse(List<Token> tokens) {
+        return parseCompact(tokens).toTree();
+    }
+
+    // 解析token流, 结果储存在紧凑的arena中
+    // 状态栈和结点栈都是int数组, 移入和规约都不分配对象; 单个符号的规约直接传递子结点, 以简化语法树
+    public CompactAST parseCompact(List<Token> tokens) {
         tokens = tokens.stream().filter(c -> c.getTag().needParse()).toList();
-        // 符号栈
+        Token eof = Token.of(TokenTag.Eof, "");
+        CompactAST ast = new CompactAST(productNames);
+        // 状态栈, 结点栈; 状态栈多一个栈底标记
+        int[] states = new int[64];
+        int[] nodes = new int[64];
+        int top = 0; // 结点数
+        // 当前符号下标
+        int cur = 0;
+        while (true) {
+            // 当前输入符号
+            Token a = cur == tokens.size() ? eof : tokens.get(cur);
+            Action action = actionTable[states[top]][tokenId(a.getTag())];
+            if (action.tag() == ActionTag.Shift) {
+                if (top + 1 == states.length) {
+                    states = Arrays.copyOf(states, states.length << 1);
+                    nodes = Arrays.copyOf(nodes, nodes.length << 1);
+                }
+                nodes[top++] = ast.addLeaf(a);
+                states[top] = action.index();
+                ++cur;
+            } else if (action.tag() == ActionTag.Reduce) {
+                // 规约A->β, 弹出|β|个结点和状态, 将规约结果入栈
+                Product production = products.get(action.index());
+                int n = production.getSymbolCount();
+                int kindId = productNameId(production.getLeft());
+                int node = n == 1 ? nodes[top - 1] : ast.addNode(kindId, nodes, top - n, top);
+                top -= n;
+                if (top + 1 == states.length) {
+                    states = Arrays.copyOf(states, states.length << 1);
+                    nodes = Arrays.copyOf(nodes, nodes.length << 1);
+                }
+                nodes[top++] = node;
+                // 要跳到的状态下标
+                states[top] = gotoTable[states[top - 1]][kindId];
+            } else if (action.tag() == ActionTag.Accept) {
+                break;
+            } else {
+                throw new RuntimeException("语法解析出错!");
+            }
+        }
+        ast.finish(nodes[top - 1]);
+        return ast;
+    }
+
+    // 语法制导翻译, 不构造语法树, 规约时直接调用产生式的规约动作
+    // 终结符的语义值为Token本身, 没有规约动作的单符号产生式直接传递语义值
+    // 只用于带规约动作的文法(如main中的表达式文法); M语言的文法文件没有规约动作, 解释器仍然使用parse
+    public Object translate(List<Token> tokens) {
+        return drive(tokens, new TreeBuilder<>() {
+            @Override
+            public Object shift(Token a) {
+                return a;
+            }
+
+            @Override
+            public Object reduce(Product production, List<Object> nodes) {
+                return production.reduce(nodes);
+            }
+        });
+    }
+
+    public <T> T translate(List<Token> tokens, Class<T> ct) {
+        return ct.cast(translate(tokens));
+    }
+
+    // LR(1)分析的驱动过程
+    private <T> T drive(List<Token> tokens, TreeBuilder<T> builder) {
+        tokens = tokens.stream().filter(c -> c.getTag().needParse()).toList();
+        Token eof = Token.of(TokenTag.Eof, "");
+        // 状态栈
         Stack<Integer> statueStack = new Stack<>();
         statueStack.push(0); // 栈底标记
         // 符号栈
-        Stack<ASTNode> tokensStack = new Stack<>();
+        Stack<T> tokensStack = new Stack<>();
         // 当前符号下标
         int cur = 0;
         while (true) {
             int s = statueStack.peek(); // 栈顶状态
             // 当前输入符号
-            Token a = cur == tokens.size() ? Token.of(TokenTag.Eof, "") : tokens.get(cur);
+            Token a = cur == tokens.size() ? eof : tokens.get(cur);
             Action action = actionTable[s][tokenId(a.getTag())];
             if (action.tag() == ActionTag.Shift) {
                 // 状态入栈
                 statueStack.push(action.index());
                 // 符号入栈
-                tokensStack.push(new ASTNode(a));
+                tokensStack.push(builder.shift(a));
                 ++cur;
             } else if (action.tag() == ActionTag.Reduce) {
                 // 获取产生式
                 Product production = products.get(action.index());
-                // 弹出|β|个ASNode和状态
-                ASTNode[] nodes = new ASTNode[production.getSymbolCount()];
+                // 弹出|β|个结点和状态
+                List<T> nodes = new ArrayList<>(Collections.nCopies(production.getSymbolCount(), null));
                 for (int i = production.getSymbolCount() - 1; i >= 0; i--) {
-                    nodes[i] = tokensStack.pop();
+                    nodes.set(i, tokensStack.pop());
                     statueStack.pop();
                 }
-                // 规约A->β
-                tokensStack.push(production.buildASNode(nodes));
+                // 规约A->β, 将规约结果入栈
+                tokensStack.push(builder.reduce(production, nodes));
                 // 要跳到的状态下标
                 int A = gotoTable[statueStack.peek()][productNameId(production.getLeft())];
                 statueStack.push(A); // 入栈
-                // 将规约结果入栈
             } else if (action.tag() == ActionTag.Accept) {
                 break;
             } else {
@@ -638,15 +724,16 @@ public class Grammar {
                 .alias("(", TokenTag.L1)
                 .alias(")", TokenTag.R1)
                 // 任意个顶级表达式相乘的表达式相加
-                .addAnd("E -> E + T")
+                .addAnd("E -> E + T", v -> v.get(0, Double.class) + v.get(2, Double.class))
                 .addAnd("E -> T")
                 // 任意个顶级表达式相乘
-                .addAnd("T -> T * F")
+                .addAnd("T -> T * F", v -> v.get(0, Double.class) * v.get(2, Double.class))
                 .addAnd("T -> F")
                 // 用括号提升成顶级表达式
-                .addAnd("F -> ( E )")
+                .addAnd("F -> ( E )", v -> v.get(1))
                 // 单个变量/数字就是一个顶级运算单元
-                .addOr("F |> id int float")
+                .addOr("F |> int float", v -> Double.parseDouble(v.get(0, Token.class).getRaw()))
+                .addOr("F |> id")
                 // 赋值操作
                 .addAnd("F -> id = E")
                 .build()).toList());
@@ -669,10 +756,14 @@ public class Grammar {
 
         SystemUtils.consoleLoopLine(str -> {
             List<Token> tokens = new LexParser().parse(str);
-            ASTNode node = grammar1.parse(tokens);
+            CompactAST ast = grammar1.parseCompact(tokens);
             String savePath = "./.cache/out.png";
-            PaintUnits.paintTree(node, savePath);
+            PaintUnits.paintTree(ast, savePath);
             System.out.printf("语法树图片已经保存在%s中\n", savePath);
+            // 不含变量时可以直接由规约动作求值
+            if (tokens.stream().noneMatch(t -> t.getTag() == TokenTag.Identifier)) {
+                System.out.printf("求值结果: %s\n", grammar1.translate(tokens));
+            }
         });
     }
 }
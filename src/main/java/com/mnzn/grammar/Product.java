@@ -1,5 +1,6 @@
 package com.mnzn.grammar;
 
+import com.mnzn.lex.Token;
 import com.mnzn.lex.TokenTag;
 import lombok.Getter;
 
@@ -27,22 +28,63 @@ public class Product {
     private final String left; // 左部,非终结符的名字
     @Getter
     private final List<Symbol> symbols; // 右部,每个元素都是一个文法符号
+    @Getter
+    private final ReduceAction<?> action; // 规约动作,可以为空
 
-    private Product(String left, List<Symbol> symbols) {
+    private Product(String left, List<Symbol> symbols, ReduceAction<?> action) {
         this.left = left;
         this.symbols = symbols.stream().anyMatch(c -> c.isTerminal() && c.terminal == TokenTag.Epsilon) ? new ArrayList<>() : symbols;
+        this.action = action;
+    }
+
+    // 规约动作, 由右部各符号的语义值计算左部的语义值
+    @FunctionalInterface
+    public interface ReduceAction<R> {
+        R reduce(Values values);
+    }
+
+    // 规约时右部各符号的语义值, 终结符的语义值为Token本身
+    public static class Values {
+        private final Product product;
+        private final List<Object> values;
+
+        Values(Product product, List<Object> values) {
+            this.product = product;
+            this.values = values;
+        }
+
+        // 被规约的产生式
+        public Product product() {
+            return product;
+        }
+
+        // 获取第i个语义值
+        public Object get(int i) {
+            return values.get(i);
+        }
+
+        public <T> T get(int i, Class<T> ct) {
+            return ct.cast(values.get(i));
+        }
+
+        // 获取第i个终结符的tag
+        public TokenTag tag(int i) {
+            return get(i, Token.class).getTag();
+        }
+
+        // size
+        public int size() {
+            return values.size();
+        }
     }
 
-    // 构造结构和rule相同的ASTNode
-    public ASTNode buildASNode(ASTNode[] nodes) {
-        if (nodes.length != getSymbolCount())
-            throw new IllegalArgumentException(String.format("节点数量不匹配: (提供)%d != (需要)%d", nodes.length, getSymbolCount()));
-        // 简化语法树
-        if (nodes.length == 1) return nodes[0];
-        // 构造ASTNode
-        ASTNode root = new ASTNode(ProduceTag.of(left));
-        Arrays.stream(nodes).forEach(root::addChild);
-        return root;
+    // 执行规约动作, 没有规约动作时仅允许传递单个语义值
+    public Object reduce(List<Object> values) {
+        if (values.size() != getSymbolCount())
+            throw new IllegalArgumentException(String.format("语义值数量不匹配: (提供)%d != (需要)%d", values.size(), getSymbolCount()));
+        if (action != null) return action.reduce(new Values(this, values));
+        if (values.size() == 1) return values.get(0);
+        throw new IllegalStateException(String.format("产生式缺少规约动作: %s", this));
     }
 
     // 获取第i个符号
@@ -131,26 +173,64 @@ public class Product {
             }
         }
 
+        // 添加一个带规约动作的产生式
+        public ProductBuilder add(String product, ReduceAction<?> action) {
+            if (product.contains("->")) {
+                return addAnd(product, action);
+            } else if (product.contains("|>")) {
+                return addOr(product, action);
+            } else {
+                throw new IllegalArgumentException("产生式格式错误: string -> string...");
+            }
+        }
+
         public ProductBuilder addAnd(String product) {
-            String[] parts = product.split("->");
-            if (parts.length != 2) throw new IllegalArgumentException(String.format("产生式格式错误: %s", product));
-            String left = parts[0].trim();
-            List<Symbol> rights = new ArrayList<>();
-            Arrays.stream(parts[1].trim().split("\\s+")).
-                    map(this::node).forEach(rights::add);
-            products.add(new Product(left, rights));
+            return addAnd(product, null);
+        }
+
+        public ProductBuilder addAnd(String product, ReduceAction<?> action) {
+            products.add(parseAnd(product, action));
             return this;
         }
 
         public ProductBuilder addOr(String product) {
+            return addOr(product, null);
+        }
+
+        public ProductBuilder addOr(String product, ReduceAction<?> action) {
             String[] parts = product.split("\\|>");
             if (parts.length != 2) throw new IllegalArgumentException(String.format("产生式格式错误: %s", product));
             String left = parts[0].trim();
             Arrays.stream(parts[1].trim().split("\\s+")).
-                    forEach(c -> products.add(new Product(left, List.of(node(c)))));
+                    forEach(c -> products.add(new Product(left, List.of(node(c)), action)));
             return this;
         }
 
+        // 为已添加的and产生式设置规约动作, 格式与addAnd相同
+        public ProductBuilder action(String product, ReduceAction<?> action) {
+            Product target = parseAnd(product, null);
+            boolean found = false;
+            for (int i = 0; i < products.size(); i++) {
+                Product p = products.get(i);
+                if (p.left.equals(target.left) && p.symbols.equals(target.symbols)) {
+                    products.set(i, new Product(p.left, p.symbols, action));
+                    found = true;
+                }
+            }
+            if (!found) throw new IllegalArgumentException(String.format("产生式不存在: %s", product));
+            return this;
+        }
+
+        private Product parseAnd(String product, ReduceAction<?> action) {
+            String[] parts = product.split("->");
+            if (parts.length != 2) throw new IllegalArgumentException(String.format("产生式格式错误: %s", product));
+            String left = parts[0].trim();
+            List<Symbol> rights = new ArrayList<>();
+            Arrays.stream(parts[1].trim().split("\\s+")).
+                    map(this::node).forEach(rights::add);
+            return new Product(left, rights, action);
+        }
+
         // 从文件读取文法
         public ProductBuilder load(String file) {
             // 读取文件
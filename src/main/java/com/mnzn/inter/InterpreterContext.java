@@ -3,235 +3,281 @@ package com.mnzn.inter;
 import com.mnzn.grammar.ASTNode;
 import com.mnzn.grammar.Grammar;
 import com.mnzn.grammar.Product;
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.exec.MFunction;
+import com.mnzn.inter.exec.NodeCompiler;
+import com.mnzn.inter.jit.TieredCompiler;
+import com.mnzn.inter.opt.PassManager;
+import com.mnzn.inter.runtime.FunctionTable;
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.runtime.MChannel;
+import com.mnzn.inter.runtime.MObject;
+import com.mnzn.inter.runtime.MStream;
+import com.mnzn.inter.runtime.MTask;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.inter.runtime.ObjectArray;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.runtime.Overloads;
+import com.mnzn.inter.runtime.Range;
+import com.mnzn.inter.scope.Globals;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Resolver;
+import com.mnzn.inter.type.TypeChecker;
+import com.mnzn.inter.type.TypeInfo;
+import com.mnzn.inter.vm.BytecodeCompiler;
+import com.mnzn.inter.vm.VirtualMachine;
 import com.mnzn.lex.LexParser;
 import com.mnzn.lex.Token;
-import com.mnzn.lex.imp.*;
 import com.mnzn.model.ModuleFunction;
 import com.mnzn.utils.sys.SystemUtils;
 import com.mnzn.utils.visual.paint.PaintUnits;
+import lombok.Getter;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
 import java.util.*;
 import java.util.function.Consumer;
 
 // 一个解释器上下文,对String流进行解释
 public class InterpreterContext {
-    private final Map<String, Object> variables = new HashMap<>();
+    // 执行方式
+    public enum Mode {
+        TREE,   // 编译为可执行结点树
+        VM,     // 编译为字节码, 由虚拟机执行
+        JIT     // 由虚拟机执行, 热点循环编译为JVM字节码
+    }
+
+    // 全局变量, 在多次求值之间保留
+    private final Globals globals = new Globals();
     // Todo
-    private final Map<String, ModuleFunction> functions = new HashMap<>() {{
-        put("print", new ModuleFunction("print") {
+    private final FunctionTable functions = new FunctionTable() {{
+        define("print", new ModuleFunction("print") {
             @Override
             public Object apply(Object[] args) {
                 Arrays.stream(args).forEach(System.out::print);
                 return null;
             }
         });
+        /// 数组
+        define("len", new ModuleFunction("len") {
+            @Override
+            public Object apply(Object[] args) {
+                Object value = args[0];
+                if (value instanceof MArray array) return (long) array.length();
+                if (value instanceof MObject object) return (long) object.size();
+                if (value instanceof CharSequence str) return (long) str.length();
+                if (value instanceof Collection<?> collection) return (long) collection.size();
+                if (value instanceof Range range) return range.size();
+                throw new RuntimeException("len() is not supported for " + value);
+            }
+        });
+        // push(array, value) : 在末尾添加元素, 容量不足时扩容
+        define("push", new ModuleFunction("push") {
+            @Override
+            public Object apply(Object[] args) {
+                array(args, 0).push(args[1]);
+                return args[0];
+            }
+        });
+        // fill(array, value) : 所有元素赋为value
+        define("fill", new ModuleFunction("fill") {
+            @Override
+            public Object apply(Object[] args) {
+                array(args, 0).fill(args[1]);
+                return args[0];
+            }
+        });
+        // copy(src, srcPos, dst, dstPos, count) : 批量复制, 返回dst
+        define("copy", new ModuleFunction("copy") {
+            @Override
+            public Object apply(Object[] args) {
+                MArray.copy(array(args, 0), Operators.toIndex(args[1]), array(args, 2), Operators.toIndex(args[3]),
+                        Operators.toIndex(args[4]));
+                return args[2];
+            }
+        });
+        /// 遍历
+        // range(end), range(start, end), range(start, end, step) : 不保存元素的整数区间
+        define("range", new ModuleFunction("range") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length < 1 || args.length > 3) throw new RuntimeException("range() takes 1 to 3 arguments");
+                long[] values = new long[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    if (!(args[i] instanceof Long value)) {
+                        throw new RuntimeException(String.format("Argument %d of range() must be an int: %s", i + 1, args[i]));
+                    }
+                    values[i] = value;
+                }
+                return switch (values.length) {
+                    case 1 -> new Range(0, values[0], 1);
+                    case 2 -> new Range(values[0], values[1], 1);
+                    default -> new Range(values[0], values[1], values[2]);
+                };
+            }
+        });
+        // stream(values) : values(range, 数组, 生成器, 字符串)上的惰性流
+        define("stream", new ModuleFunction("stream") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length != 1) throw new RuntimeException("stream() takes 1 argument");
+                return new MStream(args[0]);
+            }
+        });
+        // lines(path) : 文件每一行的惰性流
+        define("lines", new ModuleFunction("lines") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length != 1 || !(args[0] instanceof CharSequence path)) {
+                    throw new RuntimeException("lines() expects a file path");
+                }
+                return MStream.lines(path.toString());
+            }
+        });
+        /// 任务
+        // spawn(f, args...) : 在另一个线程中执行f(args...), 返回任务
+        // 每个执行中的任务占用一个线程, 同时执行的任务超过MTask.setMaxTasks的上限(默认4096)时排队等待
+        define("spawn", new ModuleFunction("spawn") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length < 1) throw new RuntimeException("spawn() expects a function");
+                return MTask.spawn(Operators.toFunction(args[0]), Arrays.copyOfRange(args, 1, args.length));
+            }
+        });
+        // await(task) : 等待任务结束并返回其结果; await(tasks) : 依次等待数组中的任务, 返回结果的数组
+        define("await", new ModuleFunction("await") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length == 1 && args[0] instanceof MTask task) return task.await();
+                if (args.length == 1 && args[0] instanceof MArray tasks) {
+                    MArray results = new ObjectArray(tasks.length());
+                    for (int i = 0; i < tasks.length(); i++) {
+                        if (!(tasks.get(i) instanceof MTask task)) {
+                            throw new RuntimeException("await() expects tasks: " + tasks.get(i));
+                        }
+                        results.set(i, task.await());
+                    }
+                    return results;
+                }
+                throw new RuntimeException("await() expects a task or an array of tasks");
+            }
+        });
+        // channel(capacity) : 容量为capacity的通道
+        define("channel", new ModuleFunction("channel") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length != 1 || !(args[0] instanceof Long capacity) || capacity > Integer.MAX_VALUE) {
+                    throw new RuntimeException("channel() expects an int capacity");
+                }
+                return new MChannel((int) (long) capacity);
+            }
+        });
+        // sleep(ms) : 当前任务暂停ms毫秒
+        define("sleep", new ModuleFunction("sleep") {
+            @Override
+            public Object apply(Object[] args) {
+                if (args.length != 1 || !(args[0] instanceof Long ms) || ms < 0) {
+                    throw new RuntimeException("sleep() expects a non-negative int");
+                }
+                try {
+                    Thread.sleep(ms);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while sleeping");
+                }
+                return null;
+            }
+        });
+        /// 对象
+        // has(object, key) : 是否有名为key的属性
+        define("has", new ModuleFunction("has") {
+            @Override
+            public Object apply(Object[] args) {
+                return object(args, 0).has(String.valueOf(args[1]));
+            }
+        });
+        // keys(object) : 按添加顺序的属性名数组
+        define("keys", new ModuleFunction("keys") {
+            @Override
+            public Object apply(Object[] args) {
+                String[] names = object(args, 0).names();
+                MArray keys = new ObjectArray(names.length);
+                for (int i = 0; i < names.length; i++) keys.set(i, names[i]);
+                return keys;
+            }
+        });
+        /// 记忆化
+        // memo_stats(name) : @memo函数name的缓存统计 {hits, misses, uncached, evictions, entries, weight, hitRate}
+        define("memo_stats", new ModuleFunction("memo_stats") {
+            @Override
+            public Object apply(Object[] args) {
+                String name = String.valueOf(args[0]);
+                ModuleFunction function = find(name);
+                List<MFunction> functions = function instanceof Overloads overloads ? overloads.getFunctions()
+                        : function instanceof MFunction f ? List.of(f) : List.of();
+                List<MemoCache> caches = functions.stream().map(MFunction::getMemo).filter(Objects::nonNull).toList();
+                if (caches.isEmpty()) throw new RuntimeException("Function " + name + " is not @memo");
+                return MemoCache.statistics(caches);
+            }
+        });
     }};
 
-    private Object getVariable(String name) {
-        Object value = variables.get(name);
-        if (value == null) {
-            throw new RuntimeException("Variable " + name + " not found");
-        } else {
-            return value;
-        }
+    private static MObject object(Object[] args, int index) {
+        if (args[index] instanceof MObject object) return object;
+        throw new RuntimeException(String.format("Argument %d must be an object: %s", index + 1, args[index]));
     }
 
-    private Object setVariable(String name, Object value) {
-        variables.put(name, value);
-        return value;
+    private static MArray array(Object[] args, int index) {
+        if (args[index] instanceof MArray array) return array;
+        throw new RuntimeException(String.format("Argument %d must be an array: %s", index + 1, args[index]));
     }
 
-    private BigDecimal num(Object value) {
-        if (value instanceof Boolean b) {
-            return BigDecimal.valueOf(b ? 1 : 0);
-        }
-        return new BigDecimal(value.toString());
+    // 语法树优化
+    @Getter
+    private final PassManager optimizer = PassManager.defaults();
+    // 作用域解析
+    private final Resolver resolver = new Resolver(globals);
+    // 类型检查
+    private final TypeChecker checker = new TypeChecker();
+    // 字节码虚拟机
+    private final VirtualMachine vm;
+    private final Mode mode;
+
+    public InterpreterContext() {
+        this(Mode.TREE);
     }
 
-    // Todo 简化并检查语法树结构,如展开长树为List,检查类型系统,检查符号表
-    private ASTNode simplify(ASTNode root) {
-        return root;
+    public InterpreterContext(Mode mode) {
+        this(mode, VirtualMachine.DEFAULT_MAX_DEPTH);
     }
 
-    // Todo 执行简化后的语法树 Todo 完善解释系统
-    private Object evalSimple(ASTNode root) {
-        if (!root.isLeaf()) {
-            return switch (root.p().toString()) {
-                case "if_open_stmt" -> {
-                    BigDecimal cond = num(evalSimple(root.c(1)));
-                    if (cond.compareTo(BigDecimal.ZERO) != 0) {
-                        evalSimple(root.c(2));
-                    }
-                    yield null;
-                }
-                case "if_match_stmt" -> {
-                    // cond , case1 case2
-                    BigDecimal cond = num(evalSimple(root.c(1)));
-                    if (cond.compareTo(BigDecimal.ZERO) == 0) {
-                        evalSimple(root.c(2));
-                    } else {
-                        evalSimple(root.c(4));
-                    }
-                    yield null;
-                }
-                case "stmt_seq" -> {
-                    if (root.size() == 1) evalSimple(root.c(0));
-                    else if (root.size() == 2) {
-                        evalSimple(root.c(0));
-                        evalSimple(root.c(1));
-                    }
-                    yield null;
-                }
-                case "expr_stmt" -> {
-                    if (root.size() == 1) yield null;
-                    evalSimple(root.c(0));
-                    yield null;
-                }
-                case "compound_stmt" -> {
-                    evalSimple(root.c(1));
-                    yield null;
-                }
-                case "while_stmt" -> {
-                    while (true) {
-                        BigDecimal cond = num(evalSimple(root.c(1)));
-                        if (cond.compareTo(BigDecimal.ZERO) == 0) break;
-                        evalSimple(root.c(2));
-                    }
-                    yield null;
-                }
-                case "field_expr" -> {
-                    TokenId id = root.t(0, TokenId.class);
-                    TokenId field = root.t(1, TokenId.class);
-                    Object value = getVariable(id.getId());
-                    try {
-                        yield value.getClass().getField(field.getId()).get(value);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-                case "sub_expr" -> {
-                    TokenId id = root.t(0, TokenId.class);
-                    Object value = getVariable(id.getId());
-                    int index = num(evalSimple(root.c(2))).intValue();
-                    if (value instanceof List) {
-                        yield ((List<?>) value).get(index);
-                    } else if (value instanceof String) {
-                        yield String.valueOf(((String) value).charAt(index));
-                    } else {
-                        throw new RuntimeException("Unsupported sub expression " + value.getClass());
-                    }
-                }
-                case "call_expr" -> {
-                    TokenId id = root.t(0, TokenId.class);
-                    Object val = evalSimple(root.c(2));
-                    List<?> args;
-                    if (val instanceof List) {
-                        args = (List<?>) val;
-                    } else {
-                        args = List.of(val);
-                    }
-                    ModuleFunction method = functions.get(id.getId());
-                    if (method == null) {
-                        throw new RuntimeException("Unknown function " + id.getId());
-                    }
-                    yield method.apply(args.toArray());
-                }
-                case "expr_seq" -> {
-                    List<Object> result;
-                    if (root.size() == 3) {
-                        Object[] arr = root.c(0).isLeaf() ?
-                                new Object[]{evalSimple(root.c(0))} :
-                                ((List<?>) evalSimple(root.c(0))).toArray();
-                        result = new ArrayList<>(Arrays.asList(arr));
-                        result.add(evalSimple(root.c(2)));
-                    } else {
-                        result = new ArrayList<>();
-                    }
-                    yield result;
-                }
-                case "parent_expr" -> evalSimple(root.c(1));
-                case "unary_expr" -> {
-                    BigDecimal value = num(evalSimple(root.c(1)));
-                    yield switch (root.tag(0)) {
-                        case Add -> value;
-                        case Sub -> value.negate();
-                        case Not -> value.compareTo(BigDecimal.ZERO) == 0;
-                        case SelfAdd -> {
-                            TokenId id = root.t(1, TokenId.class);
-                            BigDecimal oldValue = num(getVariable(id.getId()));
-                            yield setVariable(id.getId(), oldValue.add(BigDecimal.ONE));
-                        }
-                        case SelfSub -> {
-                            TokenId id = root.t(1, TokenId.class);
-                            BigDecimal oldValue = num(getVariable(id.getId()));
-                            yield setVariable(id.getId(), oldValue.subtract(BigDecimal.ONE));
-                        }
-                        default -> throw new RuntimeException("Unsupported unary operator " + root.c(0).tag());
-                    };
-                }
-                case "binary_expr_*",
-                        "binary_expr_+",
-                        "binary_expr_<<",
-                        "binary_expr_<=",
-                        "binary_expr_==",
-                        "binary_expr_&",
-                        "binary_expr_^",
-                        "binary_expr_|",
-                        "binary_expr_&&",
-                        "binary_expr_||" -> {
-                    BigDecimal left = num(evalSimple(root.c(0)));
-                    BigDecimal right = num(evalSimple(root.c(2)));
-                    yield switch (root.tag(1)) {
-                        case Add -> left.add(right);
-                        case Sub -> left.subtract(right);
-                        case Mut -> left.multiply(right);
-                        case Div -> left.divide(right, new MathContext(6));
-                        case Mod -> left.remainder(right);
-                        case Eq -> left.compareTo(right) == 0;
-                        case Neq -> left.compareTo(right) != 0;
-                        case Le -> left.compareTo(right) < 0;
-                        case Ge -> left.compareTo(right) > 0;
-                        case Leq -> left.compareTo(right) <= 0;
-                        case Geq -> left.compareTo(right) >= 0;
-                        case And -> left.compareTo(BigDecimal.ZERO) != 0 && right.compareTo(BigDecimal.ZERO) != 0;
-                        case Or -> left.compareTo(BigDecimal.ZERO) != 0 || right.compareTo(BigDecimal.ZERO) != 0;
-                        default -> throw new RuntimeException("Unknown operator " + root.tag());
-                    };
-                }
-                case "cond_expr" -> {
-                    // 0 ? 2 : 4
-                    BigDecimal cond = num(evalSimple(root.c(0)));
-                    if (cond.compareTo(BigDecimal.ZERO) == 0) {
-                        yield evalSimple(root.c(4));
-                    } else {
-                        yield evalSimple(root.c(2));
-                    }
-                }
-                case "ass_expr" -> {
-                    TokenId id = root.t(0, TokenId.class);
-                    Object value = evalSimple(root.c(2));
-                    yield setVariable(id.getId(), value);
-                }
-                default -> throw new RuntimeException(String.format("Unsupported token %s", root.p()));
-            };
-        } else {
-            return switch (root.t().getTag()) {
-                case Identifier -> getVariable(root.t(TokenId.class).getId());
-                case BoolLiteral -> root.t(TokenBool.class).isValue();
-                case IntLiteral -> root.t(TokenInt.class).getValue();
-                case FloatLiteral -> root.t(TokenFloat.class).getValue();
-                case StringLiteral -> root.t(TokenString.class).getValue();
-                case Semi -> null;
-                default -> throw new RuntimeException(String.format("Unsupported token %s", root.t()));
-            };
-        }
+    // maxDepth: 虚拟机调用栈的最大深度, 函数调用不占用JVM的调用栈, 只受此限制
+    public InterpreterContext(Mode mode, int maxDepth) {
+        this.mode = mode;
+        this.vm = new VirtualMachine(mode == Mode.JIT ? new TieredCompiler() : null, maxDepth);
+    }
+
+    // 简化语法树: 去括号, 常量折叠, 删除不会执行的代码
+    private ASTNode simplify(ASTNode root) {
+        return optimizer.run(root);
     }
 
     // 执行表达式树
     public Object eval(ASTNode root) {
-        return evalSimple(simplify(root));
+        ASTNode simple = simplify(root);
+        // 将标识符绑定到帧中的位置, 每次求值使用新的顶层帧, 全局变量保留
+        Resolution resolution = resolver.resolve(simple);
+        // 执行前报告类型错误, 并按静态类型选择特化的运算
+        TypeInfo types = checker.check(simple, resolution);
+        Frame frame = new Frame(resolution.frameSize(), null, globals, functions);
+        try {
+            return switch (mode) {
+                // 先编译为可执行结点树, 执行时不再按产生式名分派
+                case TREE -> new NodeCompiler(resolution, types).compile(simple).execute(frame);
+                case VM, JIT -> vm.run(BytecodeCompiler.compile(simple, resolution, types), frame);
+            };
+        } catch (StackOverflowError e) {
+            // 树解释执行的函数调用使用JVM的调用栈
+            throw new RuntimeException("Stack overflow: recursion too deep for " + mode + " mode");
+        }
     }
 
     public static void main(String[] args) {
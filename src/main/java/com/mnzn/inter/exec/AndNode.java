@@ -0,0 +1,18 @@
+package com.mnzn.inter.exec;
+
+// 逻辑与 &&, 左操作数为假时不执行右操作数
+public class AndNode extends BinaryNode {
+    public AndNode(ExecNode left, ExecNode right) {
+        super(left, right);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return executeCondition(frame);
+    }
+
+    @Override
+    public boolean executeCondition(Frame frame) {
+        return left.executeCondition(frame) && right.executeCondition(frame);
+    }
+}
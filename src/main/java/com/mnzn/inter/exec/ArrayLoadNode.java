@@ -0,0 +1,22 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.scope.Slot;
+
+// 计数循环中的元素访问 array[i + offset], 数组和下标范围已在进入循环时检查
+public class ArrayLoadNode extends ExecNode {
+    private final Slot array;
+    private final Slot counter;
+    private final long offset;
+
+    public ArrayLoadNode(Slot array, Slot counter, long offset) {
+        this.array = array;
+        this.counter = counter;
+        this.offset = offset;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return ((MArray) frame.load(array)).at((int) ((Long) frame.load(counter) + offset));
+    }
+}
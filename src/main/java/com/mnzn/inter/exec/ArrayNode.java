@@ -0,0 +1,21 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.type.Type;
+
+// 创建数组 type[length]
+public class ArrayNode extends ExecNode {
+    private final Type type;
+    private final ExecNode length;
+
+    public ArrayNode(Type type, ExecNode length) {
+        this.type = type;
+        this.length = length;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return MArray.create(type, Operators.toIndex(length.execute(frame)));
+    }
+}
@@ -0,0 +1,32 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.scope.Slot;
+
+import java.util.function.BinaryOperator;
+
+// 计数循环中的元素赋值 array[i + offset] [op]= value, 数组和下标范围已在进入循环时检查
+public class ArrayStoreNode extends ExecNode {
+    private final Slot array;
+    private final Slot counter;
+    private final long offset;
+    private final BinaryOperator<Object> op;
+    private final ExecNode value;
+
+    public ArrayStoreNode(Slot array, Slot counter, long offset, BinaryOperator<Object> op, ExecNode value) {
+        this.array = array;
+        this.counter = counter;
+        this.offset = offset;
+        this.op = op;
+        this.value = value;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        MArray receiver = (MArray) frame.load(array);
+        int i = (int) ((Long) frame.load(counter) + offset);
+        if (op == null) return receiver.put(i, value.execute(frame));
+        Object old = receiver.at(i);
+        return receiver.put(i, op.apply(old, value.execute(frame)));
+    }
+}
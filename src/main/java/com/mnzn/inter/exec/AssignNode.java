@@ -0,0 +1,26 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.scope.Slot;
+
+// 变量赋值, 值为赋值后的值
+// 定义变量(let)时需要存储单元的变量使用新的存储单元
+public class AssignNode extends ExecNode {
+    private final Slot slot;
+    private final ExecNode value;
+    private final boolean define;
+
+    public AssignNode(Slot slot, ExecNode value) {
+        this(slot, value, false);
+    }
+
+    public AssignNode(Slot slot, ExecNode value, boolean define) {
+        this.slot = slot;
+        this.value = value;
+        this.define = define;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return define ? frame.define(slot, value.execute(frame)) : frame.store(slot, value.execute(frame));
+    }
+}
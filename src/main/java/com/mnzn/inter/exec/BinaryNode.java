@@ -0,0 +1,20 @@
+package com.mnzn.inter.exec;
+
+// 二元运算, 按从左到右的顺序求值两个操作数
+public abstract class BinaryNode extends ExecNode {
+    protected final ExecNode left;
+    protected final ExecNode right;
+
+    protected BinaryNode(ExecNode left, ExecNode right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    public ExecNode getLeft() {
+        return left;
+    }
+
+    public ExecNode getRight() {
+        return right;
+    }
+}
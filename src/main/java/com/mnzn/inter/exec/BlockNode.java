@@ -0,0 +1,18 @@
+package com.mnzn.inter.exec;
+
+// 语句序列, 展开后按顺序执行
+public class BlockNode extends ExecNode {
+    private final ExecNode[] statements;
+
+    public BlockNode(ExecNode[] statements) {
+        this.statements = statements;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        for (ExecNode statement : statements) {
+            statement.execute(frame);
+        }
+        return null;
+    }
+}
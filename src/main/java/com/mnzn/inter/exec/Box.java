@@ -0,0 +1,11 @@
+package com.mnzn.inter.exec;
+
+// 被闭包捕获且会被修改的变量的存储单元
+// 定义变量的帧和捕获它的闭包保存同一个存储单元, 任何一方的修改另一方都能看到
+public final class Box {
+    public Object value;
+
+    public Box(Object value) {
+        this.value = value;
+    }
+}
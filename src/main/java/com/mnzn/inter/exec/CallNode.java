@@ -0,0 +1,35 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.CallCache;
+import com.mnzn.model.ModuleFunction;
+
+// 函数调用
+public class CallNode extends ExecNode {
+    private final CallCache cache;
+    private final ExecNode[] args;
+
+    public CallNode(String name, ExecNode[] args) {
+        this.cache = new CallCache(name);
+        this.args = args;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object[] values = arguments(frame);
+        return target(frame, values).apply(values);
+    }
+
+    /// 分开求值实参和查找函数, 用于尾调用
+    Object[] arguments(Frame frame) {
+        Object[] values = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].execute(frame);
+        }
+        return values;
+    }
+
+    // 重载时按实参类型选择, 实参在原位置转换
+    ModuleFunction target(Frame frame, Object[] values) {
+        return cache.select(frame.getFunctions(), values, 0, values.length);
+    }
+}
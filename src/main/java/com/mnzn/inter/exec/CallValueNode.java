@@ -0,0 +1,24 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 调用函数值 callee(args), 先求值被调用者再求值实参
+public class CallValueNode extends ExecNode {
+    private final ExecNode callee;
+    private final ExecNode[] args;
+
+    public CallValueNode(ExecNode callee, ExecNode[] args) {
+        this.callee = callee;
+        this.args = args;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object function = callee.execute(frame);
+        Object[] values = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].execute(frame);
+        }
+        return Operators.toFunction(function).apply(values);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.type.Type;
+
+// 将表达式的值转换为静态类型: int拓宽为float, 或检查object的值
+public class CastNode extends UnaryNode {
+    private final Type type;
+
+    public CastNode(ExecNode operand, Type type) {
+        super(operand);
+        this.type = type;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return TypedOps.cast(type, operand.execute(frame));
+    }
+}
@@ -0,0 +1,19 @@
+package com.mnzn.inter.exec;
+
+// 条件表达式 cond ? then : otherwise
+public class CondNode extends ExecNode {
+    private final ExecNode cond;
+    private final ExecNode then;
+    private final ExecNode otherwise;
+
+    public CondNode(ExecNode cond, ExecNode then, ExecNode otherwise) {
+        this.cond = cond;
+        this.then = then;
+        this.otherwise = otherwise;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return cond.executeCondition(frame) ? then.execute(frame) : otherwise.execute(frame);
+    }
+}
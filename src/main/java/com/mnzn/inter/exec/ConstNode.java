@@ -0,0 +1,19 @@
+package com.mnzn.inter.exec;
+
+// 常量
+public class ConstNode extends ExecNode {
+    private final Object value;
+
+    public ConstNode(Object value) {
+        this.value = value;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.lex.TokenTag;
+
+// 计数循环 while (i op limit) { body; i += step; }, 循环中只有最后一条语句修改i, limit不变
+// 归纳变量和上界以long保存, 每轮迭代只写回i, 不再重新求值条件
+// 以i(+/-常数)为下标访问的数组在进入循环时一次检查整个下标范围, 都在范围内时执行不检查下标的循环体
+// i或limit不是int, 或者i溢出时, 由通用的循环(fallback)继续执行
+public class CountedLoopNode extends ExecNode {
+    private final Slot counter;
+    private final ExecNode limit;
+    private final TokenTag op;      // < <= > >=
+    private final long step;
+    private final ExecNode body;    // 不含最后一条语句
+    private final ExecNode unchecked; // 不检查下标的循环体, 没有数组访问时为null
+    private final Slot[] arrays;    // unchecked中访问的数组, 与offsets一一对应
+    private final long[] offsets;
+    private final ExecNode fallback;
+
+    public CountedLoopNode(Slot counter, ExecNode limit, TokenTag op, long step, ExecNode body,
+                           ExecNode unchecked, Slot[] arrays, long[] offsets, ExecNode fallback) {
+        this.counter = counter;
+        this.limit = limit;
+        this.op = op;
+        this.step = step;
+        this.body = body;
+        this.unchecked = unchecked;
+        this.arrays = arrays;
+        this.offsets = offsets;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        // 与条件相同, 先求值i再求值limit
+        if (!(frame.load(counter) instanceof Long start) || !(limit.execute(frame) instanceof Long bound)) {
+            return fallback.execute(frame);
+        }
+        long i = start, n = bound;
+        ExecNode current = unchecked != null && inRange(frame, i, n) ? unchecked : body;
+        while (test(i, n)) {
+            current.execute(frame);
+            long next = i + step;
+            if (((i ^ next) & (step ^ next)) < 0) {
+                // 溢出时转为大整数
+                frame.store(counter, Operators.add(i, step));
+                return fallback.execute(frame);
+            }
+            i = next;
+            frame.store(counter, i);
+        }
+        return null;
+    }
+
+    private boolean test(long i, long n) {
+        return switch (op) {
+            case Le -> i < n;
+            case Leq -> i <= n;
+            case Ge -> i > n;
+            default -> i >= n;
+        };
+    }
+
+    // i取值的范围[low, high]内, 所有数组访问的下标都不越界
+    private boolean inRange(Frame frame, long i, long n) {
+        if (!test(i, n)) return true;
+        long low, high;
+        if (step > 0 && (op == TokenTag.Le || op == TokenTag.Leq)) {
+            low = i;
+            high = op == TokenTag.Le ? n - 1 : n;
+        } else if (step < 0 && (op == TokenTag.Ge || op == TokenTag.Geq)) {
+            low = op == TokenTag.Ge ? n + 1 : n;
+            high = i;
+        } else {
+            return false;
+        }
+        for (int k = 0; k < arrays.length; k++) {
+            if (!(frame.load(arrays[k]) instanceof MArray array)) return false;
+            if (low < -offsets[k] || high >= array.length() - offsets[k]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 除法 /
+public class DivNode extends BinaryNode {
+    public DivNode(ExecNode left, ExecNode right) {
+        super(left, right);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object l = left.execute(frame);
+        Object r = right.execute(frame);
+        return Operators.div(l, r);
+    }
+}
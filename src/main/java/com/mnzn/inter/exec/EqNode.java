@@ -0,0 +1,17 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 等于 ==
+public class EqNode extends BinaryNode {
+    public EqNode(ExecNode left, ExecNode right) {
+        super(left, right);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object l = left.execute(frame);
+        Object r = right.execute(frame);
+        return Operators.eq(l, r);
+    }
+}
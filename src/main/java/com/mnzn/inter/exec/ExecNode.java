@@ -0,0 +1,14 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 可执行结点, 由语法树编译一次得到, 执行时不再按产生式名分派
+public abstract class ExecNode {
+    // 执行结点, 返回结点的值, 语句的值为null
+    public abstract Object execute(Frame frame);
+
+    // 作为条件执行
+    public boolean executeCondition(Frame frame) {
+        return Operators.truthy(execute(frame));
+    }
+}
@@ -0,0 +1,29 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.FieldCache;
+
+import java.util.function.BinaryOperator;
+
+// 字段赋值 obj.name = value, 值为赋值后的值
+// 复合赋值 obj.name op= value 时op不为空, obj只求值一次
+public class FieldAssignNode extends ExecNode {
+    private final ExecNode obj;
+    private final FieldCache cache;
+    private final BinaryOperator<Object> op;
+    private final ExecNode value;
+
+    public FieldAssignNode(ExecNode obj, String name, BinaryOperator<Object> op, ExecNode value) {
+        this.obj = obj;
+        this.cache = new FieldCache(name);
+        this.op = op;
+        this.value = value;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object receiver = obj.execute(frame);
+        if (op == null) return cache.set(receiver, value.execute(frame));
+        Object old = cache.get(receiver);
+        return cache.set(receiver, op.apply(old, value.execute(frame)));
+    }
+}
@@ -0,0 +1,19 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.FieldCache;
+
+// 字段访问 obj.name
+public class FieldNode extends ExecNode {
+    private final ExecNode obj;
+    private final FieldCache cache;
+
+    public FieldNode(ExecNode obj, String name) {
+        this.obj = obj;
+        this.cache = new FieldCache(name);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return cache.get(obj.execute(frame));
+    }
+}
@@ -0,0 +1,50 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+
+import java.util.Iterator;
+
+// 遍历语句 for ( let var [: type] in iterable ) body, 每轮取出一个元素重新定义循环变量
+// 迭代器存放在帧中, 生成器暂停后恢复时(resume不为-1且标记为恢复中)直接回到循环体, 不取下一个元素
+public class ForNode extends ExecNode {
+    private final int iterator;  // 迭代器在帧中的位置
+    private final Slot var;
+    private final Type cast;     // 元素的声明类型, 没有声明时为null
+    private final ExecNode iterable;
+    private final ExecNode body;
+    private final int resume;    // 生成器的恢复标记在帧中的位置, 不在生成器中时为-1
+
+    public ForNode(int iterator, Slot var, Type cast, ExecNode iterable, ExecNode body, int resume) {
+        this.iterator = iterator;
+        this.var = var;
+        this.cast = cast;
+        this.iterable = iterable;
+        this.body = body;
+        this.resume = resume;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        boolean resumed = resume >= 0 && frame.load(0, resume) == Boolean.TRUE;
+        Iterator<?> it;
+        if (resumed) {
+            it = (Iterator<?>) frame.load(0, iterator);
+        } else {
+            it = Operators.iterator(iterable.execute(frame));
+            frame.store(0, iterator, it);
+        }
+        while (resumed || it.hasNext()) {
+            if (!resumed) {
+                Object element = it.next();
+                frame.define(var, cast == null ? element : TypedOps.cast(cast, element));
+            }
+            resumed = false;
+            body.execute(frame);
+        }
+        frame.store(0, iterator, null);
+        return null;
+    }
+}
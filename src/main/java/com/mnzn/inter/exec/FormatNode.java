@@ -0,0 +1,23 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.StringTemplate;
+
+// 内插字符串 $"a{x}b{y}c"
+public class FormatNode extends ExecNode {
+    private final StringTemplate template;
+    private final ExecNode[] args;
+
+    public FormatNode(StringTemplate template, ExecNode[] args) {
+        this.template = template;
+        this.args = args;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object[] values = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].execute(frame);
+        }
+        return template.apply(values);
+    }
+}
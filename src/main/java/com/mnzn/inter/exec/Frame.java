@@ -0,0 +1,110 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.FunctionTable;
+import com.mnzn.inter.scope.Globals;
+import com.mnzn.inter.scope.Slot;
+
+// 执行环境, 局部变量储存在数组中, 按作用域解析得到的(depth, slot)访问
+// 闭包的外层帧是只含捕获的变量的闭包记录(parent为null), 不引用定义处的整个帧链
+public class Frame {
+    private final Object[] locals;
+    private final Frame parent;     // 外层函数的帧
+    private final Globals globals;
+    private final FunctionTable functions;
+
+    public Frame(int size, Frame parent, Globals globals, FunctionTable functions) {
+        this(new Object[size], parent, globals, functions);
+    }
+
+    private Frame(Object[] locals, Frame parent, Globals globals, FunctionTable functions) {
+        this.locals = locals;
+        this.parent = parent;
+        this.globals = globals;
+        this.functions = functions;
+    }
+
+    // 复制当前帧的局部变量, 外层帧共享; 用于parallel for的每个工作线程
+    public Frame copy() {
+        return new Frame(locals.clone(), parent, globals, functions);
+    }
+
+    /// 按位置访问
+    public Object load(Slot slot) {
+        if (slot.isGlobal()) return globals.get(slot.index());
+        Object value = load(slot.depth(), slot.index());
+        return slot.boxed() ? ((Box) value).value : value;
+    }
+
+    // 查找变量, 未定义时返回null
+    public Object find(Slot slot) {
+        if (slot.isGlobal()) return globals.find(slot.index());
+        Object value = up(slot.depth()).locals[slot.index()];
+        return slot.boxed() && value != null ? ((Box) value).value : value;
+    }
+
+    public Object store(Slot slot, Object value) {
+        if (slot.isGlobal()) return globals.set(slot.index(), value);
+        if (slot.boxed()) return ((Box) load(slot.depth(), slot.index())).value = value;
+        return store(slot.depth(), slot.index(), value);
+    }
+
+    // 定义变量(let和参数), 需要存储单元的变量每次定义都使用新的存储单元
+    public Object define(Slot slot, Object value) {
+        if (slot.boxed()) {
+            store(slot.depth(), slot.index(), new Box(value));
+            return value;
+        }
+        return store(slot, value);
+    }
+
+    // 闭包记录: 依次复制captures位置上的值, 存储单元本身被复制, 不取出其中的值
+    public Frame capture(Slot[] captures) {
+        Frame record = new Frame(captures.length, null, globals, functions);
+        for (int i = 0; i < captures.length; i++) {
+            record.locals[i] = load(captures[i].depth(), captures[i].index());
+        }
+        return record;
+    }
+
+    public Object load(int depth, int index) {
+        return up(depth).locals[index];
+    }
+
+    public Object store(int depth, int index, Object value) {
+        up(depth).locals[index] = value;
+        return value;
+    }
+
+    private Frame up(int depth) {
+        Frame frame = this;
+        while (depth-- > 0) frame = frame.parent;
+        return frame;
+    }
+
+    public Globals getGlobals() {
+        return globals;
+    }
+
+    /// 按名字访问全局变量, 用于交互执行和宿主程序
+    public Object getVariable(String name) {
+        int index = globals.indexOf(name);
+        if (index < 0) {
+            throw new RuntimeException("Variable " + name + " not found");
+        }
+        return globals.get(index);
+    }
+
+    // 查找变量, 不存在时返回null
+    public Object findVariable(String name) {
+        int index = globals.indexOf(name);
+        return index < 0 ? null : globals.find(index);
+    }
+
+    public Object setVariable(String name, Object value) {
+        return globals.set(globals.define(name), value);
+    }
+
+    public FunctionTable getFunctions() {
+        return functions;
+    }
+}
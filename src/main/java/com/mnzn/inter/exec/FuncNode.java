@@ -0,0 +1,34 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+import com.mnzn.lex.imp.TokenId;
+
+// 函数定义, 执行时创建函数加入函数表, 外层帧为捕获的变量组成的闭包记录
+public class FuncNode extends ExecNode {
+    private final ASTNode definition; // 函数名结点
+    private final String name;
+    private final Type[] params;
+    private final int frameSize;
+    private final Slot[] captures;
+    private final MemoCache.Limits memo;
+    private final ExecNode body;
+
+    public FuncNode(ASTNode definition, Type[] params, int frameSize, Slot[] captures, MemoCache.Limits memo, ExecNode body) {
+        this.definition = definition;
+        this.name = definition.t(TokenId.class).getId();
+        this.params = params;
+        this.frameSize = frameSize;
+        this.captures = captures;
+        this.memo = memo;
+        this.body = body;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        frame.getFunctions().define(name, new TreeFunction(name, params, frameSize, frame.capture(captures), definition, memo, body));
+        return null;
+    }
+}
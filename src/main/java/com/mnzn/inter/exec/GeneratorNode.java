@@ -0,0 +1,19 @@
+package com.mnzn.inter.exec;
+
+// 生成器函数的函数体: 调用时不执行函数体, 而是返回以本次调用的帧创建的生成器
+public class GeneratorNode extends ExecNode {
+    private final String name;
+    private final ExecNode body;
+    private final int resume; // 恢复标记在帧中的位置
+
+    public GeneratorNode(String name, ExecNode body, int resume) {
+        this.name = name;
+        this.body = body;
+        this.resume = resume;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        throw new ReturnNode.Return(new TreeGenerator(name, body, frame, resume), null, null, null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.mnzn.inter.exec;
+
+import java.util.function.BinaryOperator;
+
+// 全局变量的复合赋值 g op= value, 原子地更新, 其他任务同时的更新不会丢失; 值为赋值后的值
+public class GlobalUpdateNode extends ExecNode {
+    private final int index;
+    private final BinaryOperator<Object> op;
+    private final ExecNode value;
+
+    public GlobalUpdateNode(int index, BinaryOperator<Object> op, ExecNode value) {
+        this.index = index;
+        this.op = op;
+        this.value = value;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return frame.getGlobals().update(index, op, value.execute(frame));
+    }
+}
@@ -0,0 +1,22 @@
+package com.mnzn.inter.exec;
+
+// 循环不变量, 第一次求值后保存在临时变量中, 之后直接使用
+// 只保存数值和bool: 字符串可能由对象或数组转换得到, 对象或数组修改后结果不同
+public class HoistNode extends ExecNode {
+    private final int temp;
+    private final ExecNode expr;
+
+    public HoistNode(int temp, ExecNode expr) {
+        this.temp = temp;
+        this.expr = expr;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object value = frame.load(0, temp);
+        if (value != null) return value;
+        value = expr.execute(frame);
+        if (value instanceof Number || value instanceof Boolean) frame.store(0, temp, value);
+        return value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mnzn.inter.exec;
+
+// 条件语句, 没有else时otherwise为null
+public class IfNode extends ExecNode {
+    private final ExecNode cond;
+    private final ExecNode then;
+    private final ExecNode otherwise;
+
+    public IfNode(ExecNode cond, ExecNode then, ExecNode otherwise) {
+        this.cond = cond;
+        this.then = then;
+        this.otherwise = otherwise;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        if (cond.executeCondition(frame)) {
+            then.execute(frame);
+        } else if (otherwise != null) {
+            otherwise.execute(frame);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.scope.Slot;
+
+// 前置自增/自减, 值为修改后的值; 全局变量原子地更新
+public class IncNode extends ExecNode {
+    private final Slot slot;
+    private final long delta;
+
+    public IncNode(Slot slot, long delta) {
+        this.slot = slot;
+        this.delta = delta;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        if (slot.isGlobal()) return frame.getGlobals().update(slot.index(), Operators::add, delta);
+        return frame.store(slot, Operators.add(frame.load(slot), delta));
+    }
+}
@@ -0,0 +1,30 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+import java.util.function.BinaryOperator;
+
+// 元素赋值 obj[index] = value, 值为赋值后的值
+// 复合赋值 obj[index] op= value 时op不为空, obj和index只求值一次
+public class IndexAssignNode extends ExecNode {
+    private final ExecNode obj;
+    private final ExecNode index;
+    private final BinaryOperator<Object> op;
+    private final ExecNode value;
+
+    public IndexAssignNode(ExecNode obj, ExecNode index, BinaryOperator<Object> op, ExecNode value) {
+        this.obj = obj;
+        this.index = index;
+        this.op = op;
+        this.value = value;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object receiver = obj.execute(frame);
+        Object i = index.execute(frame);
+        if (op == null) return Operators.setIndex(receiver, i, value.execute(frame));
+        Object old = Operators.index(receiver, i);
+        return Operators.setIndex(receiver, i, op.apply(old, value.execute(frame)));
+    }
+}
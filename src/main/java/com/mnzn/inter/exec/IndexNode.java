@@ -0,0 +1,20 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 下标访问 obj[index]
+public class IndexNode extends ExecNode {
+    private final ExecNode obj;
+    private final ExecNode index;
+
+    public IndexNode(ExecNode obj, ExecNode index) {
+        this.obj = obj;
+        this.index = index;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object value = obj.execute(frame);
+        return Operators.index(value, index.execute(frame));
+    }
+}
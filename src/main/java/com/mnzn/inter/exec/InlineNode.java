@@ -0,0 +1,38 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.CallCache;
+import com.mnzn.lex.imp.TokenId;
+import com.mnzn.model.ModuleFunction;
+
+// 内联的函数调用: 实参存入当前帧中为参数分配的位置, 然后执行内联的函数体
+// 函数表中的函数不再是内联时的定义(被重新定义)时, 按普通调用执行
+public class InlineNode extends ExecNode {
+    private final ASTNode definition;
+    private final CallCache cache;
+    private final int[] slots;
+    private final ExecNode[] args;
+    private final ExecNode body;
+
+    public InlineNode(ASTNode definition, int[] slots, ExecNode[] args, ExecNode body) {
+        this.definition = definition;
+        this.cache = new CallCache(definition.t(TokenId.class).getId());
+        this.slots = slots;
+        this.args = args;
+        this.body = body;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        for (int i = 0; i < args.length; i++) {
+            frame.store(0, slots[i], args[i].execute(frame));
+        }
+        ModuleFunction function = cache.lookup(frame.getFunctions());
+        if (function instanceof MFunction f && f.getDefinition() == definition) return body.execute(frame);
+        Object[] values = new Object[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            values[i] = frame.load(0, slots[i]);
+        }
+        return function.apply(values);
+    }
+}
@@ -0,0 +1,31 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+
+// lambda表达式, 值为新创建的函数
+// 外层帧为捕获的变量组成的闭包记录; captures为null时lambda不逃逸, 直接以当前帧为外层帧
+public class LambdaNode extends ExecNode {
+    public static final String NAME = "lambda";
+
+    private final ASTNode definition;
+    private final Type[] params;
+    private final int frameSize;
+    private final Slot[] captures;
+    private final ExecNode body;
+
+    public LambdaNode(ASTNode definition, Type[] params, int frameSize, Slot[] captures, ExecNode body) {
+        this.definition = definition;
+        this.params = params;
+        this.frameSize = frameSize;
+        this.captures = captures;
+        this.body = body;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Frame closure = captures == null ? frame : frame.capture(captures);
+        return new TreeFunction(NAME, params, frameSize, closure, definition, null, body);
+    }
+}
@@ -0,0 +1,20 @@
+package com.mnzn.inter.exec;
+
+// 带有循环不变量的循环, 每次进入循环时清空保存不变量的临时变量
+public class LoopNode extends ExecNode {
+    private final int[] temps;
+    private final ExecNode loop;
+
+    public LoopNode(int[] temps, ExecNode loop) {
+        this.temps = temps;
+        this.loop = loop;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        for (int temp : temps) {
+            frame.store(0, temp, null);
+        }
+        return loop.execute(frame);
+    }
+}
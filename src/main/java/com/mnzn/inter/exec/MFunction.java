@@ -0,0 +1,81 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.type.Type;
+import com.mnzn.model.ModuleFunction;
+
+// 用户定义的函数 func name(params) [: type] { body }
+// 调用时创建新的帧, 实参依次存放在帧的开头; 外层帧为定义函数时的帧
+// @memo函数的调用先查结果缓存, 每次定义都使用新的缓存
+public abstract class MFunction extends ModuleFunction {
+    private final String name;
+    private final Type[] params;    // 参数类型, 没有声明类型的参数为ANY
+    private final int frameSize;
+    private final Frame closure;    // 定义函数时的帧
+    private final ASTNode definition; // 定义处的函数名结点, 内联时据此判断函数是否被重新定义
+    private final MemoCache memo;   // 不是@memo函数时为null
+
+    protected MFunction(String name, Type[] params, int frameSize, Frame closure, ASTNode definition, MemoCache.Limits memo) {
+        super(name);
+        this.name = name;
+        this.params = params;
+        this.frameSize = frameSize;
+        this.closure = closure;
+        this.definition = definition;
+        this.memo = memo == null ? null : new MemoCache(memo);
+    }
+
+    @Override
+    public final Object apply(Object[] args) {
+        MemoCache.Call call = memo(args, 0, args.length);
+        if (call == null) return invoke(args);
+        Object value = call.cached();
+        if (value != MemoCache.MISS) return value;
+        value = invoke(args);
+        call.store(value);
+        return value;
+    }
+
+    // 不经过结果缓存的调用
+    protected abstract Object invoke(Object[] args);
+
+    // 经过结果缓存的调用, 实参为args[from, from + argc); 不是@memo函数或实参不能作为键时返回null
+    public MemoCache.Call memo(Object[] args, int from, int argc) {
+        return memo == null ? null : memo.call(args, from, argc, closure.getFunctions().version());
+    }
+
+    // 创建调用的帧, 实参为args[from, from + argc), 按参数类型检查
+    public Frame enter(Object[] args, int from, int argc) {
+        if (argc != params.length) {
+            throw new RuntimeException(String.format("Function %s expects %d arguments but got %d", name, params.length, argc));
+        }
+        Frame frame = new Frame(frameSize, closure, closure.getGlobals(), closure.getFunctions());
+        for (int i = 0; i < argc; i++) {
+            Object arg = args[from + i];
+            frame.store(0, i, params[i] == Type.ANY ? arg : TypedOps.cast(params[i], arg));
+        }
+        return frame;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ASTNode getDefinition() {
+        return definition;
+    }
+
+    public MemoCache getMemo() {
+        return memo;
+    }
+
+    public Type[] getParams() {
+        return params;
+    }
+
+    public int arity() {
+        return params.length;
+    }
+}
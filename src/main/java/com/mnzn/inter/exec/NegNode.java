@@ -0,0 +1,15 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 取负 -
+public class NegNode extends UnaryNode {
+    public NegNode(ExecNode operand) {
+        super(operand);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return Operators.neg(operand.execute(frame));
+    }
+}
@@ -0,0 +1,366 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.opt.LoopPass;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.runtime.StringTemplate;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Resolver;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+import com.mnzn.inter.type.TypeInfo;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.*;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+
+// 将语法树编译为可执行结点树, 只在编译时按产生式名分派一次
+public class NodeCompiler {
+    private final Resolution resolution; // 标识符对应的位置
+    private final TypeInfo types;        // 类型检查的结果
+    // 编译计数循环不检查下标的循环体时: 归纳变量, 可以访问的数组, 以及访问到的(数组, 偏移)
+    private Slot counter;
+    private Set<Slot> arrays;
+    private Map<Slot, Set<Long>> accesses;
+    // 编译生成器的函数体时: 恢复标记的位置, 以及下一个可用于保存执行位置的位置(在作用域解析得到的帧之后); 不在生成器中时resume为-1
+    private int resume = -1;
+    private int positions;
+
+    public NodeCompiler(Resolution resolution, TypeInfo types) {
+        this.resolution = resolution;
+        this.types = types;
+    }
+
+    public ExecNode compile(ASTNode root) {
+        ExecNode node = compileNode(root);
+        Type cast = types.cast(root);
+        return cast == null ? node : new CastNode(node, cast);
+    }
+
+    private ExecNode compileNode(ASTNode root) {
+        if (root.isLeaf()) {
+            return compileLeaf(root);
+        }
+        return switch (root.p().toString()) {
+            case "stmt_seq" -> {
+                ExecNode[] statements = compileAll(root.flatten("stmt_seq", 1));
+                yield resumable(root) ? new ResumableBlockNode(statements, positions++, resume) : new BlockNode(statements);
+            }
+            case "expr_stmt" -> root.size() == 1 ? new ConstNode(null) : compile(root.c(0));
+            case "compound_stmt" -> compile(root.c(1));
+            // let id [: type] = expr ;
+            case "let_stmt" -> new AssignNode(resolution.slot(root.c(1)), compile(root.c(root.size() - 2)), true);
+            case "while_stmt" -> resumable(root)
+                    ? new ResumableWhileNode(compile(root.c(1)), compile(root.c(2)), resume)
+                    : new WhileNode(compile(root.c(1)), compile(root.c(2)));
+            // for ( let id [: type] in expr ) stmt
+            case "for_stmt" -> new ForNode(resolution.slot(root.c(0)).index(), resolution.slot(root.c(3)),
+                    root.size() == 10 ? Type.of(root.tag(5)) : null, compile(root.c(root.size() - 3)),
+                    compile(root.c(root.size() - 1)), resumable(root) ? resume : -1);
+            case "yield_stmt" -> new YieldNode(compile(root.c(1)), resume);
+            case "loop_stmt" -> loop(root);
+            case "hoist_expr" -> new HoistNode(resolution.slot(root.c(0)).index(), compile(root.c(1)));
+            // func id ( params ) [: type] { body }
+            case "func_stmt" -> {
+                Body body = function(root, root.t(1, TokenId.class).getId());
+                yield new FuncNode(root.c(1), types.params(root), body.frameSize(), resolution.captures(root),
+                        resolution.memo(root), body.node());
+            }
+            // @memo [( limits )] func_stmt, 缓存的上限记录在函数定义上
+            // @parallel [( reductions )] for ( let id [: type] in expr ) stmt
+            case "annotated_stmt" -> {
+                ASTNode target = root.c(root.size() - 1);
+                if (!target.is("for_stmt")) yield compile(target);
+                yield new ParallelForNode(ParallelLoop.of(root, resolution), compile(target.c(target.size() - 3)),
+                        compile(target.c(target.size() - 1)));
+            }
+            // func ( params ) [: type] { body }
+            case "lambda_expr" -> {
+                Body body = function(root, LambdaNode.NAME);
+                yield new LambdaNode(root, types.params(root), body.frameSize(), resolution.captures(root), body.node());
+            }
+            // 内联的函数调用: 函数名 参数 实参 函数体 [返回类型]
+            case "inline_expr" -> {
+                int[] slots = root.c(1).getChildren().stream()
+                        .mapToInt(param -> resolution.slot(param.isLeaf() ? param : param.c(0)).index())
+                        .toArray();
+                yield new InlineNode(root.c(0), slots, compileAll(args(root.c(2))), compile(root.c(3)));
+            }
+            // return f(args); 为尾调用, 调用函数值时不是
+            case "return_stmt" -> {
+                if (root.size() == 2) yield new ReturnNode(null);
+                if (!root.c(1).is("call_expr")) yield new ReturnNode(compile(root.c(1)));
+                ExecNode call = compileNode(root.c(1));
+                Type cast = types.cast(root.c(1));
+                if (call instanceof CallNode tail) yield new ReturnNode(tail, cast);
+                yield new ReturnNode(cast == null ? call : new CastNode(call, cast));
+            }
+            // if ( cond ) stmt [else stmt]
+            case "if_open_stmt", "if_matched_stmt" -> resumable(root) ? new ResumableIfNode(
+                    compile(root.c(1)),
+                    compile(root.c(2)),
+                    root.size() == 5 ? compile(root.c(4)) : null,
+                    positions++, resume) : new IfNode(
+                    compile(root.c(1)),
+                    compile(root.c(2)),
+                    root.size() == 5 ? compile(root.c(4)) : null);
+            case "field_expr" -> new FieldNode(compile(root.c(0)), root.t(2, TokenId.class).getId());
+            case "sub_expr" -> {
+                Long offset = uncheckedOffset(root);
+                if (offset != null) yield new ArrayLoadNode(resolution.slot(root.c(0)), counter, offset);
+                yield new IndexNode(compile(root.c(0)), compile(root.c(2)));
+            }
+            // 被调用者为函数名时在函数表中查找, 否则调用变量或表达式的值
+            case "call_expr" -> {
+                ASTNode callee = root.c(0);
+                if (callee.isLeaf() && callee.tag() == TokenTag.Identifier && !resolution.isBound(callee)) {
+                    yield new CallNode(callee.t(TokenId.class).getId(), compileAll(args(root.c(2))));
+                }
+                yield new CallValueNode(compile(callee), compileAll(args(root.c(2))));
+            }
+            case "parent_expr" -> compile(root.c(1));
+            case "object_expr" -> new ObjectNode();
+            case "array_expr" -> new ArrayNode(Type.of(root.tag(0)), compile(root.c(2)));
+            case "format_expr" -> {
+                List<String> texts = new ArrayList<>();
+                List<ASTNode> args = format(root, texts);
+                yield new FormatNode(new StringTemplate(texts), compileAll(args));
+            }
+            case "unary_expr" -> compileUnary(root);
+            case "binary_expr_*",
+                    "binary_expr_+",
+                    "binary_expr_<<",
+                    "binary_expr_<=",
+                    "binary_expr_==",
+                    "binary_expr_&",
+                    "binary_expr_^",
+                    "binary_expr_|",
+                    "binary_expr_&&",
+                    "binary_expr_||" -> binary(types.operation(root), root.tag(1), compile(root.c(0)), compile(root.c(2)));
+            // 0 ? 2 : 4
+            case "cond_expr" -> new CondNode(compile(root.c(0)), compile(root.c(2)), compile(root.c(4)));
+            case "ass_expr" -> compileAssign(root);
+            default -> throw new RuntimeException(String.format("Unsupported token %s", root.p()));
+        };
+    }
+
+    // 函数体和帧的大小
+    private record Body(ExecNode node, int frameSize) {
+    }
+
+    // 函数体, 需要存储单元的参数在进入函数时装入存储单元
+    // 生成器的帧在作用域解析得到的大小之后, 另外保存恢复标记和含有yield的语句执行到的位置
+    private Body function(ASTNode function, String name) {
+        int outerResume = resume, outerPositions = positions;
+        int frameSize = resolution.frameSize(function);
+        boolean generator = resolution.isGenerator(function);
+        resume = generator ? frameSize : -1;
+        positions = frameSize + 1;
+        List<ExecNode> statements = new ArrayList<>();
+        for (ASTNode param : Resolver.params(function)) {
+            if (!param.isLeaf()) param = param.c(0);
+            Slot slot = resolution.slot(param);
+            if (slot.boxed()) {
+                statements.add(new AssignNode(slot, new VarNode(param.t(TokenId.class).getId(), new Slot(0, slot.index())), true));
+            }
+        }
+        ExecNode body = compile(function.c(function.size() - 1));
+        if (!statements.isEmpty()) {
+            statements.add(body);
+            body = new BlockNode(statements.toArray(ExecNode[]::new));
+        }
+        Body result = generator ? new Body(new GeneratorNode(name, body, resume), positions) : new Body(body, frameSize);
+        resume = outerResume;
+        positions = outerPositions;
+        return result;
+    }
+
+    // 生成器中含有yield的语句, 需要在恢复时回到yield处
+    private boolean resumable(ASTNode root) {
+        return resume >= 0 && yields(root);
+    }
+
+    private static boolean yields(ASTNode node) {
+        if (node.isLeaf() || node.is("func_stmt") || node.is("annotated_stmt") || node.is("lambda_expr")) return false;
+        return node.is("yield_stmt") || node.getChildren().stream().anyMatch(NodeCompiler::yields);
+    }
+
+    /// 循环
+    // loop_stmt: 临时变量列表 while语句 [归纳变量 数组...]
+    private ExecNode loop(ASTNode root) {
+        ASTNode loop = root.c(1);
+        ExecNode node = compile(loop);
+        // 条件按int比较时才按计数循环执行
+        if (root.size() == 3 && types.operation(loop.c(1)) == Type.INT) node = counted(root, node);
+        int[] temps = root.c(0).getChildren().stream().mapToInt(temp -> resolution.slot(temp).index()).toArray();
+        return temps.length == 0 ? node : new LoopNode(temps, node);
+    }
+
+    private ExecNode counted(ASTNode root, ExecNode fallback) {
+        ASTNode loop = root.c(1);
+        List<ASTNode> items = LoopPass.body(loop);
+        List<ASTNode> statements = items.subList(0, items.size() - 1);
+        ExecNode body = new BlockNode(compileAll(statements));
+        List<ASTNode> names = root.c(2).getChildren();
+        Slot slot = resolution.slot(names.get(0));
+        ExecNode unchecked = null;
+        List<Slot> arraySlots = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        if (names.size() > 1) {
+            // 再编译一次循环体, 其中的数组访问不检查下标; 外层计数循环的状态在编译后恢复
+            Slot outerCounter = counter;
+            Set<Slot> outerArrays = arrays;
+            Map<Slot, Set<Long>> outerAccesses = accesses;
+            counter = slot;
+            arrays = new HashSet<>();
+            names.subList(1, names.size()).forEach(name -> arrays.add(resolution.slot(name)));
+            accesses = new LinkedHashMap<>();
+            unchecked = new BlockNode(compileAll(statements));
+            accesses.forEach((array, used) -> used.forEach(offset -> {
+                arraySlots.add(array);
+                offsets.add(offset);
+            }));
+            counter = outerCounter;
+            arrays = outerArrays;
+            accesses = outerAccesses;
+            if (arraySlots.isEmpty()) unchecked = null;
+        }
+        return new CountedLoopNode(slot, compile(loop.c(1).c(2)), loop.c(1).tag(1), LoopPass.step(loop), body, unchecked,
+                arraySlots.toArray(Slot[]::new), offsets.stream().mapToLong(Long::longValue).toArray(), fallback);
+    }
+
+    // 编译不检查下标的循环体时, array[i + offset]的偏移; 不是这种访问时返回null
+    private Long uncheckedOffset(ASTNode node) {
+        if (arrays == null || !node.c(0).isLeaf() || node.tag(0) != TokenTag.Identifier) return null;
+        Slot array = resolution.slot(node.c(0));
+        if (!arrays.contains(array)) return null;
+        ASTNode index = node.c(2);
+        ASTNode name = index.isLeaf() ? index : index.c(0);
+        if (!name.isLeaf() || name.tag() != TokenTag.Identifier || !resolution.slot(name).equals(counter)) return null;
+        Long offset = LoopPass.offset(index, name.t(TokenId.class).getId());
+        if (offset != null) accesses.computeIfAbsent(array, key -> new LinkedHashSet<>()).add(offset);
+        return offset;
+    }
+
+    private ExecNode compileLeaf(ASTNode root) {
+        return switch (root.t().getTag()) {
+            case Identifier -> new VarNode(root.t(TokenId.class).getId(), resolution.slot(root));
+            case BoolLiteral -> new ConstNode(root.t(TokenBool.class).isValue());
+            case IntLiteral -> new ConstNode(root.t(TokenInt.class).getValue());
+            case FloatLiteral -> new ConstNode(root.t(TokenFloat.class).getValue());
+            case StringLiteral -> new ConstNode(root.t(TokenString.class).getValue());
+            case Semi -> new ConstNode(null);
+            default -> throw new RuntimeException(String.format("Unsupported token %s", root.t()));
+        };
+    }
+
+    private ExecNode compileUnary(ASTNode root) {
+        return switch (root.tag(0)) {
+            case Add -> new PosNode(compile(root.c(1)));
+            case Sub -> new NegNode(compile(root.c(1)));
+            case Not -> new NotNode(compile(root.c(1)));
+            case SelfAdd -> new IncNode(target(root.c(1)), 1);
+            case SelfSub -> new IncNode(target(root.c(1)), -1);
+            default -> throw new RuntimeException("Unsupported unary operator " + root.c(0).tag());
+        };
+    }
+
+    private ExecNode compileAssign(ASTNode root) {
+        ExecNode value = compile(root.c(2));
+        // 复合赋值 a op= b 展开为 a = a op b
+        TokenTag op = switch (root.tag(1)) {
+            case Assign -> null;
+            case AssignAdd -> TokenTag.Add;
+            case AssignSub -> TokenTag.Sub;
+            case AssignMut -> TokenTag.Mut;
+            case AssignDiv -> TokenTag.Div;
+            case AssignMod -> TokenTag.Mod;
+            default -> throw new RuntimeException("Unsupported assign operator " + root.c(1).tag());
+        };
+        ASTNode target = root.c(0);
+        if (target.is("field_expr")) {
+            return new FieldAssignNode(compile(target.c(0)), target.t(2, TokenId.class).getId(), operator(op), value);
+        }
+        if (target.is("sub_expr")) {
+            Long offset = uncheckedOffset(target);
+            if (offset != null) return new ArrayStoreNode(resolution.slot(target.c(0)), counter, offset, operator(op), value);
+            return new IndexAssignNode(compile(target.c(0)), compile(target.c(2)), operator(op), value);
+        }
+        Slot slot = target(target);
+        // 全局变量可能被其他任务同时修改, 复合赋值原子地更新
+        if (op != null && slot.isGlobal()) return new GlobalUpdateNode(slot.index(), operator(op), value);
+        return new AssignNode(slot, op == null ? value : binary(types.operation(root), op, compile(target), value));
+    }
+
+    // 字段和元素的类型未知, 复合赋值使用通用的运算
+    private static BinaryOperator<Object> operator(TokenTag op) {
+        if (op == null) return null;
+        return switch (op) {
+            case Add -> Operators::add;
+            case Sub -> Operators::sub;
+            case Mut -> Operators::mul;
+            case Div -> Operators::div;
+            case Mod -> Operators::mod;
+            default -> throw new RuntimeException("Unknown operator " + op);
+        };
+    }
+
+    // 类型检查确定了操作数的类型时使用特化的运算
+    private ExecNode binary(Type type, TokenTag op, ExecNode left, ExecNode right) {
+        ExecNode typed = TypedBinaryNode.of(type, op, left, right);
+        if (typed != null) return typed;
+        return switch (op) {
+            case Add -> new AddNode(left, right);
+            case Sub -> new SubNode(left, right);
+            case Mut -> new MulNode(left, right);
+            case Div -> new DivNode(left, right);
+            case Mod -> new ModNode(left, right);
+            case Eq -> new EqNode(left, right);
+            case Neq -> new NeqNode(left, right);
+            case Le -> new LtNode(left, right);
+            case Ge -> new GtNode(left, right);
+            case Leq -> new LeNode(left, right);
+            case Geq -> new GeNode(left, right);
+            case And -> new AndNode(left, right);
+            case Or -> new OrNode(left, right);
+            default -> throw new RuntimeException("Unknown operator " + op);
+        };
+    }
+
+    // 可赋值的表达式, 字段和元素以外只有标识符
+    private Slot target(ASTNode node) {
+        if (node.isLeaf() && node.tag() == TokenTag.Identifier) {
+            return resolution.slot(node);
+        }
+        throw new RuntimeException("Unsupported assign target " + node);
+    }
+
+    // 函数实参列表
+    private List<ASTNode> args(ASTNode node) {
+        if (node.is("expr_seq")) {
+            return node.flatten("expr_seq", 2);
+        }
+        return List.of(node);
+    }
+
+    // 内插字符串 fh expr (fm expr)* fe, 返回内插表达式, 文本加入texts
+    private static List<ASTNode> format(ASTNode node, List<String> texts) {
+        List<ASTNode> args = new ArrayList<>();
+        while (!node.isLeaf()) {
+            texts.add(node.t(0, TokenFormat.class).getText());
+            args.add(node.c(1));
+            node = node.c(2);
+        }
+        texts.add(node.t(TokenFormat.class).getText());
+        return args;
+    }
+
+    private ExecNode[] compileAll(List<ASTNode> nodes) {
+        ExecNode[] result = new ExecNode[nodes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = compile(nodes.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,15 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 逻辑非 !
+public class NotNode extends UnaryNode {
+    public NotNode(ExecNode operand) {
+        super(operand);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return Operators.not(operand.execute(frame));
+    }
+}
@@ -0,0 +1,11 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.MObject;
+
+// 创建对象 object()
+public class ObjectNode extends ExecNode {
+    @Override
+    public Object execute(Frame frame) {
+        return new MObject();
+    }
+}
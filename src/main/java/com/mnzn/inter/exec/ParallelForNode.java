@@ -0,0 +1,20 @@
+package com.mnzn.inter.exec;
+
+// @parallel [( reductions )] for ( let var [: type] in iterable ) body
+public class ParallelForNode extends ExecNode {
+    private final ParallelLoop loop;
+    private final ExecNode iterable;
+    private final ExecNode body;
+
+    public ParallelForNode(ParallelLoop loop, ExecNode iterable, ExecNode body) {
+        this.loop = loop;
+        this.iterable = iterable;
+        this.body = body;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        loop.run(frame, iterable.execute(frame), body::execute);
+        return null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.runtime.Range;
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Resolver;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+// @parallel(+sum, min(lo), max(hi)) for ( let var in iterable ) body 的执行, 树解释器和虚拟机共用
+// 下标区间按二分划分给ForkJoinPool.commonPool()的工作线程, 每段不少于GRAIN个元素; 每段使用当前帧的一份拷贝
+// 归约变量在循环体中绑定到帧中的私有位置: 每段从单位元(min和max为循环前的值)开始, 各段的结果按下标顺序合并后再与循环前的值合并
+// 循环体不能给循环外的其他变量赋值(由作用域解析检查), 数组元素和对象字段的并发修改由脚本自己保证不冲突
+public class ParallelLoop {
+    private static final int GRAIN = 1024;
+
+    public enum Reduction {
+        ADD, MIN, MAX;
+
+        Object combine(Object left, Object right) {
+            return switch (this) {
+                case ADD -> Operators.add(left, right);
+                case MIN -> Operators.lt(right, left) ? right : left;
+                case MAX -> Operators.lt(left, right) ? right : left;
+            };
+        }
+
+        // 循环前的值为value时每段的初始值, 加法的单位元与value的类型一致
+        Object identity(Object value) {
+            if (this != ADD) return value;
+            if (value instanceof Double) return 0.0;
+            if (value instanceof CharSequence) return "";
+            return 0L;
+        }
+    }
+
+    // 执行一次循环体
+    @FunctionalInterface
+    public interface Body {
+        void run(Frame frame);
+    }
+
+    private final Slot var;
+    private final Type cast;           // 元素的声明类型, 没有声明时为null
+    private final Reduction[] reductions;
+    private final Slot[] targets;      // 归约变量
+    private final Slot[] privates;     // 归约变量在循环体中的私有位置
+
+    public ParallelLoop(Slot var, Type cast, Reduction[] reductions, Slot[] targets, Slot[] privates) {
+        this.var = var;
+        this.cast = cast;
+        this.reductions = reductions;
+        this.targets = targets;
+        this.privates = privates;
+    }
+
+    // 由@parallel [( reductions )] for_stmt结点和作用域解析的结果创建
+    public static ParallelLoop of(ASTNode node, Resolution resolution) {
+        ASTNode loop = node.c(node.size() - 1);
+        List<ASTNode> list = Resolver.reductions(node);
+        Reduction[] reductions = new Reduction[list.size()];
+        Slot[] targets = new Slot[list.size()];
+        Slot[] privates = new Slot[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            ASTNode reduction = list.get(i);
+            reductions[i] = switch (Resolver.reductionOperator(reduction)) {
+                case "+" -> Reduction.ADD;
+                case "min" -> Reduction.MIN;
+                default -> Reduction.MAX;
+            };
+            targets[i] = resolution.slot(Resolver.reductionTarget(reduction));
+            privates[i] = resolution.slot(reduction);
+        }
+        Type cast = loop.size() == 10 ? Type.of(loop.tag(5)) : null;
+        return new ParallelLoop(resolution.slot(loop.c(3)), cast, reductions, targets, privates);
+    }
+
+    public void run(Frame frame, Object iterable, Body body) {
+        long size;
+        if (iterable instanceof Range range) size = range.size();
+        else if (iterable instanceof MArray array) size = array.length();
+        else throw new RuntimeException("parallel for expects a range or an array: " + iterable);
+        Object[] initial = new Object[targets.length];
+        for (int i = 0; i < targets.length; i++) initial[i] = frame.load(targets[i]);
+        if (size == 0) return;
+        Object[] partial;
+        try {
+            // 调用线程执行第一段, 分出的其他段由公共池的工作线程执行
+            partial = new Segment(frame, iterable, body, initial, 0, size).invoke();
+        } catch (RuntimeException e) {
+            // 工作线程中抛出的异常在调用线程中被重新包装, 还原为原来的异常
+            if (e.getCause() instanceof RuntimeException cause && cause.getClass() == e.getClass()) throw cause;
+            throw e;
+        }
+        for (int i = 0; i < targets.length; i++) frame.store(targets[i], reductions[i].combine(initial[i], partial[i]));
+    }
+
+    // 下标区间[from, to)上的循环, 结果为各归约变量的部分结果
+    @SuppressWarnings("serial")
+    private class Segment extends RecursiveTask<Object[]> {
+        private final Frame frame;
+        private final Object iterable;
+        private final Body body;
+        private final Object[] initial;
+        private final long from, to;
+
+        Segment(Frame frame, Object iterable, Body body, Object[] initial, long from, long to) {
+            this.frame = frame;
+            this.iterable = iterable;
+            this.body = body;
+            this.initial = initial;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Object[] compute() {
+            if (to - from >= 2L * GRAIN) {
+                long middle = (from + to) >>> 1;
+                Segment right = new Segment(frame, iterable, body, initial, middle, to);
+                right.fork();
+                Object[] left = new Segment(frame, iterable, body, initial, from, middle).compute();
+                Object[] rest = right.join();
+                for (int i = 0; i < left.length; i++) left[i] = reductions[i].combine(left[i], rest[i]);
+                return left;
+            }
+            Frame worker = frame.copy();
+            for (int i = 0; i < privates.length; i++) worker.define(privates[i], reductions[i].identity(initial[i]));
+            for (long index = from; index < to; index++) {
+                Object element = iterable instanceof Range range ? range.get(index) : ((MArray) iterable).get((int) index);
+                worker.define(var, cast == null ? element : TypedOps.cast(cast, element));
+                body.run(worker);
+            }
+            Object[] partial = new Object[privates.length];
+            for (int i = 0; i < privates.length; i++) partial[i] = worker.load(privates[i]);
+            return partial;
+        }
+    }
+}
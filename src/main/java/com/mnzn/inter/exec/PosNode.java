@@ -0,0 +1,15 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.Operators;
+
+// 取正 +
+public class PosNode extends UnaryNode {
+    public PosNode(ExecNode operand) {
+        super(operand);
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return Operators.pos(operand.execute(frame));
+    }
+}
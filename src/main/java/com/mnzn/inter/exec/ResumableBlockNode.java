@@ -0,0 +1,24 @@
+package com.mnzn.inter.exec;
+
+// 生成器中含有yield的语句序列, 执行到的语句下标保存在帧中, 恢复时从该语句继续
+public class ResumableBlockNode extends ExecNode {
+    private final ExecNode[] statements;
+    private final int position; // 当前语句的下标在帧中的位置
+    private final int resume;   // 恢复标记在帧中的位置
+
+    public ResumableBlockNode(ExecNode[] statements, int position, int resume) {
+        this.statements = statements;
+        this.position = position;
+        this.resume = resume;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        int start = frame.load(0, resume) == Boolean.TRUE ? (Integer) frame.load(0, position) : 0;
+        for (int i = start; i < statements.length; i++) {
+            frame.store(0, position, i);
+            statements[i].execute(frame);
+        }
+        return null;
+    }
+}
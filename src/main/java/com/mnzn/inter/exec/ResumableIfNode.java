@@ -0,0 +1,30 @@
+package com.mnzn.inter.exec;
+
+// 生成器中含有yield的条件语句, 选择的分支保存在帧中, 恢复时直接回到该分支, 不重新求值条件
+public class ResumableIfNode extends ExecNode {
+    private final ExecNode cond;
+    private final ExecNode then;
+    private final ExecNode otherwise; // 没有else时为null
+    private final int branch;         // 选择的分支在帧中的位置
+    private final int resume;         // 恢复标记在帧中的位置
+
+    public ResumableIfNode(ExecNode cond, ExecNode then, ExecNode otherwise, int branch, int resume) {
+        this.cond = cond;
+        this.then = then;
+        this.otherwise = otherwise;
+        this.branch = branch;
+        this.resume = resume;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        boolean taken = frame.load(0, resume) == Boolean.TRUE ? (Boolean) frame.load(0, branch) : cond.executeCondition(frame);
+        frame.store(0, branch, taken);
+        if (taken) {
+            then.execute(frame);
+        } else if (otherwise != null) {
+            otherwise.execute(frame);
+        }
+        return null;
+    }
+}
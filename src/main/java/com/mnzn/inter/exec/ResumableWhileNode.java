@@ -0,0 +1,24 @@
+package com.mnzn.inter.exec;
+
+// 生成器中含有yield的循环语句, 恢复时直接回到循环体, 不重新求值条件
+public class ResumableWhileNode extends ExecNode {
+    private final ExecNode cond;
+    private final ExecNode body;
+    private final int resume; // 恢复标记在帧中的位置
+
+    public ResumableWhileNode(ExecNode cond, ExecNode body, int resume) {
+        this.cond = cond;
+        this.body = body;
+        this.resume = resume;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        boolean resumed = frame.load(0, resume) == Boolean.TRUE;
+        while (resumed || cond.executeCondition(frame)) {
+            resumed = false;
+            body.execute(frame);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.type.Type;
+import com.mnzn.model.ModuleFunction;
+
+// 返回语句, 以异常跳出函数体, 由TreeFunction捕获
+// return f(args); 为尾调用: 只求值实参, 由TreeFunction调用f, 返回值需要的类型转换一并交给TreeFunction
+public class ReturnNode extends ExecNode {
+    // 返回值, 或尾调用的函数,实参和返回值的类型转换; 不记录异常栈
+    @SuppressWarnings("serial")
+    static final class Return extends RuntimeException {
+        final Object value;
+        final ModuleFunction target;
+        final Object[] args;
+        final Type cast;
+
+        Return(Object value, ModuleFunction target, Object[] args, Type cast) {
+            super(null, null, false, false);
+            this.value = value;
+            this.target = target;
+            this.args = args;
+            this.cast = cast;
+        }
+    }
+
+    private final ExecNode value; // return ; 时为null
+    private final CallNode tail;  // 尾调用时不为null
+    private final Type cast;
+
+    public ReturnNode(ExecNode value) {
+        this.value = value;
+        this.tail = null;
+        this.cast = null;
+    }
+
+    // 尾调用
+    public ReturnNode(CallNode tail, Type cast) {
+        this.value = null;
+        this.tail = tail;
+        this.cast = cast;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        if (tail != null) {
+            Object[] args = tail.arguments(frame);
+            throw new Return(null, tail.target(frame, args), args, cast);
+        }
+        throw new Return(value == null ? null : value.execute(frame), null, null, null);
+    }
+}
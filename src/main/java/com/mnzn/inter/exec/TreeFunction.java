@@ -0,0 +1,69 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.type.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 函数体为可执行结点树的函数
+// 尾调用另一个树函数时在apply中循环执行, 不增加JVM调用栈的深度; 尾调用的@memo函数先查其缓存, 未命中时同样循环执行, 结束时一并保存结果
+public class TreeFunction extends MFunction {
+    private final ExecNode body;
+
+    public TreeFunction(String name, Type[] params, int frameSize, Frame closure, ASTNode definition,
+                        MemoCache.Limits memo, ExecNode body) {
+        super(name, params, frameSize, closure, definition, memo);
+        this.body = body;
+    }
+
+    @Override
+    protected Object invoke(Object[] args) {
+        TreeFunction function = this;
+        Frame frame = enter(args, 0, args.length);
+        Type cast = null; // 尾调用留下的返回值的类型转换
+        List<MemoCache.Call> pending = null; // 尾调用的@memo函数未命中缓存的调用, 结果与本次调用相同
+        while (true) {
+            Object value;
+            try {
+                function.body.execute(frame);
+                value = null;
+            } catch (ReturnNode.Return r) {
+                MemoCache.Call call = r.target instanceof MFunction f ? f.memo(r.args, 0, r.args.length) : null;
+                Object cached = call == null ? MemoCache.MISS : call.cached();
+                if (r.target == null) {
+                    value = r.value;
+                } else if (cached != MemoCache.MISS) {
+                    value = r.cast == null ? cached : TypedOps.cast(r.cast, cached);
+                } else if (r.target instanceof TreeFunction next
+                        && (call == null ? r.cast == null || cast == null || cast == r.cast : r.cast == null && cast == null)) {
+                    // 未命中缓存时, 之后的类型转换对等待保存的调用同样适用, 因此只在还没有类型转换时继续
+                    if (r.cast != null) cast = r.cast;
+                    if (call != null) {
+                        if (pending == null) pending = new ArrayList<>();
+                        pending.add(call);
+                    }
+                    function = next;
+                    frame = next.enter(r.args, 0, r.args.length);
+                    continue;
+                } else {
+                    // 只能记录一个类型转换, 与已有的转换不同时按普通调用执行
+                    if (call == null) {
+                        value = r.target.apply(r.args);
+                    } else {
+                        value = ((MFunction) r.target).invoke(r.args);
+                        call.store(value);
+                    }
+                    if (r.cast != null) value = TypedOps.cast(r.cast, value);
+                }
+            }
+            if (cast != null) value = TypedOps.cast(cast, value);
+            if (pending != null) {
+                for (MemoCache.Call call : pending) call.store(value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.MGenerator;
+
+// 函数体为可执行结点树的生成器
+// 树解释执行使用JVM的调用栈, 无法在yield处挂起; 每次恢复时从函数体的开头重新进入,
+// 语句序列, 循环和条件语句按保存在帧中的位置直接回到上次的yield, 不重复执行已经执行过的语句
+public class TreeGenerator extends MGenerator {
+    private final ExecNode body;
+    private final Frame frame;
+    private final int resume; // 恢复标记在帧中的位置
+    private boolean started = false;
+
+    public TreeGenerator(String name, ExecNode body, Frame frame, int resume) {
+        super(name);
+        this.body = body;
+        this.frame = frame;
+        this.resume = resume;
+    }
+
+    @Override
+    protected boolean advance() {
+        frame.store(0, resume, started);
+        started = true;
+        try {
+            body.execute(frame);
+        } catch (YieldNode.Yield y) {
+            yielded(y.value);
+            return true;
+        } catch (ReturnNode.Return r) {
+            // 生成器中的return不带返回值
+        }
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.type.Type;
+import com.mnzn.lex.TokenTag;
+
+// 按静态类型特化的二元运算, 由类型检查的结果选择, 执行时不再判断操作数的类型
+public class TypedBinaryNode extends BinaryNode {
+    public interface Operation {
+        Object apply(Object l, Object r);
+    }
+
+    private final Operation operation;
+
+    public TypedBinaryNode(ExecNode left, ExecNode right, Operation operation) {
+        super(left, right);
+        this.operation = operation;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        Object l = left.execute(frame);
+        Object r = right.execute(frame);
+        return operation.apply(l, r);
+    }
+
+    // 特化的比较运算, 作为条件时不装箱
+    public static class Compare extends BinaryNode {
+        public interface Predicate {
+            boolean test(Object l, Object r);
+        }
+
+        private final Predicate predicate;
+
+        public Compare(ExecNode left, ExecNode right, Predicate predicate) {
+            super(left, right);
+            this.predicate = predicate;
+        }
+
+        @Override
+        public Object execute(Frame frame) {
+            return executeCondition(frame);
+        }
+
+        @Override
+        public boolean executeCondition(Frame frame) {
+            Object l = left.execute(frame);
+            Object r = right.execute(frame);
+            return predicate.test(l, r);
+        }
+    }
+
+    // 按类型type执行的运算op, 没有对应的特化运算时返回null
+    public static BinaryNode of(Type type, TokenTag op, ExecNode left, ExecNode right) {
+        return switch (type) {
+            case INT -> switch (op) {
+                case Add -> new TypedBinaryNode(left, right, TypedOps::iadd);
+                case Sub -> new TypedBinaryNode(left, right, TypedOps::isub);
+                case Mut -> new TypedBinaryNode(left, right, TypedOps::imul);
+                case Div -> new TypedBinaryNode(left, right, TypedOps::idiv);
+                case Mod -> new TypedBinaryNode(left, right, TypedOps::imod);
+                case Le -> new Compare(left, right, TypedOps::ilt);
+                case Ge -> new Compare(left, right, (l, r) -> TypedOps.ilt(r, l));
+                case Leq -> new Compare(left, right, TypedOps::ile);
+                case Geq -> new Compare(left, right, (l, r) -> TypedOps.ile(r, l));
+                case Eq -> new Compare(left, right, TypedOps::ieq);
+                case Neq -> new Compare(left, right, (l, r) -> !TypedOps.ieq(l, r));
+                default -> null;
+            };
+            case FLOAT -> switch (op) {
+                case Add -> new TypedBinaryNode(left, right, TypedOps::fadd);
+                case Sub -> new TypedBinaryNode(left, right, TypedOps::fsub);
+                case Mut -> new TypedBinaryNode(left, right, TypedOps::fmul);
+                case Div -> new TypedBinaryNode(left, right, TypedOps::fdiv);
+                case Mod -> new TypedBinaryNode(left, right, TypedOps::fmod);
+                case Le -> new Compare(left, right, TypedOps::flt);
+                case Ge -> new Compare(left, right, (l, r) -> TypedOps.flt(r, l));
+                case Leq -> new Compare(left, right, TypedOps::fle);
+                case Geq -> new Compare(left, right, (l, r) -> TypedOps.fle(r, l));
+                case Eq -> new Compare(left, right, TypedOps::feq);
+                case Neq -> new Compare(left, right, (l, r) -> !TypedOps.feq(l, r));
+                default -> null;
+            };
+            case STRING -> op == TokenTag.Add ? new TypedBinaryNode(left, right, TypedOps::concat) : null;
+            default -> null;
+        };
+    }
+}
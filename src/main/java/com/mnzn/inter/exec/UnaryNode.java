@@ -0,0 +1,14 @@
+package com.mnzn.inter.exec;
+
+// 一元运算
+public abstract class UnaryNode extends ExecNode {
+    protected final ExecNode operand;
+
+    protected UnaryNode(ExecNode operand) {
+        this.operand = operand;
+    }
+
+    public ExecNode getOperand() {
+        return operand;
+    }
+}
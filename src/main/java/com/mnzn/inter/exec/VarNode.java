@@ -0,0 +1,27 @@
+package com.mnzn.inter.exec;
+
+import com.mnzn.inter.scope.Slot;
+
+// 读取变量
+public class VarNode extends ExecNode {
+    private final String name;
+    private final Slot slot;
+
+    public VarNode(String name, Slot slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Slot getSlot() {
+        return slot;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        return frame.load(slot);
+    }
+}
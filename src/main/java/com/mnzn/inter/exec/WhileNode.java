@@ -0,0 +1,20 @@
+package com.mnzn.inter.exec;
+
+// 循环语句
+public class WhileNode extends ExecNode {
+    private final ExecNode cond;
+    private final ExecNode body;
+
+    public WhileNode(ExecNode cond, ExecNode body) {
+        this.cond = cond;
+        this.body = body;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        while (cond.executeCondition(frame)) {
+            body.execute(frame);
+        }
+        return null;
+    }
+}
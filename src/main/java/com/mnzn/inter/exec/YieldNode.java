@@ -0,0 +1,33 @@
+package com.mnzn.inter.exec;
+
+// yield语句, 以异常跳出生成器的函数体, 由TreeGenerator捕获
+// 恢复执行时从函数体的开头按保存的位置回到这里, 清除恢复标记后继续执行之后的语句
+public class YieldNode extends ExecNode {
+    // 交出的值, 不记录异常栈
+    @SuppressWarnings("serial")
+    static final class Yield extends RuntimeException {
+        final Object value;
+
+        Yield(Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    private final ExecNode value;
+    private final int resume; // 恢复标记在帧中的位置
+
+    public YieldNode(ExecNode value, int resume) {
+        this.value = value;
+        this.resume = resume;
+    }
+
+    @Override
+    public Object execute(Frame frame) {
+        if (frame.load(0, resume) == Boolean.TRUE) {
+            frame.store(0, resume, false);
+            return null;
+        }
+        throw new Yield(value.execute(frame));
+    }
+}
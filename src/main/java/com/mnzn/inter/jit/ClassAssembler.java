@@ -0,0 +1,224 @@
+package com.mnzn.inter.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 最简单的class文件生成器, 生成只有一个静态方法的类
+// 使用49版本(Java 5)的格式, 不需要生成StackMapTable
+public class ClassAssembler {
+    private static final int MAJOR_VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    /// 用到的JVM指令
+    public static final int ALOAD_0 = 0x2a, LLOAD = 0x16, LSTORE = 0x37, LALOAD = 0x2f, LASTORE = 0x50;
+    public static final int ICONST_0 = 0x03, ICONST_1 = 0x04, BIPUSH = 0x10, SIPUSH = 0x11;
+    public static final int LCONST_0 = 0x09, LCONST_1 = 0x0a, LDC2_W = 0x14;
+    public static final int L2I = 0x88;
+    public static final int LCMP = 0x94, IFEQ = 0x99, IFNE = 0x9a, IFLT = 0x9b, IFGE = 0x9c, IFGT = 0x9d, IFLE = 0x9e;
+    public static final int GOTO = 0xa7, IRETURN = 0xac, INVOKESTATIC = 0xb8;
+    public static final int DUP2 = 0x5c, POP = 0x57, POP2 = 0x58;
+
+    // 跳转目标, 在位置确定之前可以被引用
+    public static class Label {
+        private int position = -1;
+        private final List<Integer> fixups = new ArrayList<>(); // 引用此标签的跳转指令的位置
+    }
+
+    private record CatchBlock(Label start, Label end, Label handler, int type) {
+    }
+
+    // 常量池
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+    // 方法体
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final List<Label> labels = new ArrayList<>();
+    private final List<CatchBlock> catches = new ArrayList<>();
+
+    private final String className;
+
+    public ClassAssembler(String className) {
+        this.className = className;
+    }
+
+    /// 常量池
+    private int constant(String key, int slots, PoolWriter writer) {
+        Integer index = poolIndex.get(key);
+        if (index != null) return index;
+        try {
+            writer.write(poolOut);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        index = poolCount;
+        poolCount += slots;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    private interface PoolWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int utf8(String value) {
+        return constant("U" + value, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    public int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descIndex = utf8(descriptor);
+        int nat = constant("N" + name + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descIndex);
+        });
+        return constant("M" + owner + "." + name + descriptor, 1, out -> {
+            out.writeByte(10);
+            out.writeShort(ownerIndex);
+            out.writeShort(nat);
+        });
+    }
+
+    public int longConstant(long value) {
+        return constant("J" + value, 2, out -> {
+            out.writeByte(5);
+            out.writeLong(value);
+        });
+    }
+
+    /// 指令
+    public int position() {
+        return code.size();
+    }
+
+    public void op(int opcode) {
+        code.write(opcode);
+    }
+
+    public void op(int opcode, int u1) {
+        code.write(opcode);
+        code.write(u1);
+    }
+
+    public void opShort(int opcode, int u2) {
+        code.write(opcode);
+        code.write(u2 >> 8);
+        code.write(u2);
+    }
+
+    // 压入int常量
+    public void pushInt(int value) {
+        if (value == 0) op(ICONST_0);
+        else if (value == 1) op(ICONST_1);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) op(BIPUSH, value & 0xff);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) opShort(SIPUSH, value & 0xffff);
+        else throw new IllegalArgumentException("int constant out of range: " + value);
+    }
+
+    // 压入long常量
+    public void pushLong(long value) {
+        if (value == 0) op(LCONST_0);
+        else if (value == 1) op(LCONST_1);
+        else opShort(LDC2_W, longConstant(value));
+    }
+
+    public void invokeStatic(String owner, String name, String descriptor) {
+        opShort(INVOKESTATIC, methodRef(owner, name, descriptor));
+    }
+
+    public Label newLabel() {
+        Label label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    public void mark(Label label) {
+        label.position = code.size();
+    }
+
+    // 跳转指令, 偏移量在build时回填
+    public void jump(int opcode, Label target) {
+        target.fixups.add(code.size());
+        opShort(opcode, 0);
+    }
+
+    public void tryCatch(Label start, Label end, Label handler, String exceptionType) {
+        catches.add(new CatchBlock(start, end, handler, classRef(exceptionType)));
+    }
+
+    /// 生成class文件
+    public byte[] build(String methodName, String descriptor, int maxStack, int maxLocals) {
+        byte[] body = code.toByteArray();
+        if (body.length >= 0xffff) throw new IllegalStateException("method too large");
+        for (Label label : labels) {
+            for (int at : label.fixups) {
+                if (label.position < 0) throw new IllegalStateException("unbound label");
+                int offset = label.position - at;
+                if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) throw new IllegalStateException("branch too far");
+                body[at + 1] = (byte) (offset >> 8);
+                body[at + 2] = (byte) offset;
+            }
+        }
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+        int nameIndex = utf8(methodName);
+        int descIndex = utf8(descriptor);
+        int codeIndex = utf8("Code");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolCount);
+            out.write(pool.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(1); // methods
+            out.writeShort(ACC_PUBLIC | ACC_STATIC);
+            out.writeShort(nameIndex);
+            out.writeShort(descIndex);
+            out.writeShort(1); // Code
+            out.writeShort(codeIndex);
+            out.writeInt(12 + body.length + 8 * catches.size());
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(catches.size());
+            for (CatchBlock block : catches) {
+                out.writeShort(block.start.position);
+                out.writeShort(block.end.position);
+                out.writeShort(block.handler.position);
+                out.writeShort(block.type);
+            }
+            out.writeShort(0); // Code的属性
+            out.writeShort(0); // 类的属性
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mnzn.inter.jit;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.exec.MFunction;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.lex.imp.TokenId;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+
+// 编译完成的循环, 在循环头部通过栈上替换(OSR)进入
+public class CompiledLoop {
+    private final MethodHandle body;    // static int run(long[] locals)
+    private final Slot[] vars;          // 变量的位置
+    private final LoopCompiler.Kind[] kinds; // 编译时推测的类型
+    private final boolean[] writeBack;  // 是否需要写回
+    private final ASTNode[] guards;     // 内联的函数的函数名结点
+    private final String[] names;
+    private final boolean global;       // 是否访问全局变量
+
+    CompiledLoop(MethodHandle body, Slot[] vars, LoopCompiler.Kind[] kinds, boolean[] writeBack, ASTNode[] guards) {
+        this.body = body;
+        this.vars = vars;
+        this.kinds = kinds;
+        this.writeBack = writeBack;
+        this.guards = guards;
+        this.names = Arrays.stream(guards).map(guard -> guard.t(TokenId.class).getId()).toArray(String[]::new);
+        this.global = Arrays.stream(vars).anyMatch(Slot::isGlobal);
+    }
+
+    // 编译后的循环把变量保存在JVM的局部变量中, 执行期间看不到其他任务对全局变量的修改
+    public boolean readsGlobals() {
+        return global;
+    }
+
+    // 从当前状态进入编译后的循环, 循环执行完毕时返回true
+    // 类型检查失败或执行中溢出时返回false, 此时frame处于某一轮迭代开始时的状态, 由解释器继续执行
+    // 内联的函数被重新定义时也返回false; 编译后的循环中没有函数调用和定义, 执行中不会再重新定义
+    public boolean enter(Frame frame) {
+        for (int i = 0; i < guards.length; i++) {
+            if (!(frame.getFunctions().find(names[i]) instanceof MFunction f) || f.getDefinition() != guards[i]) return false;
+        }
+        long[] locals = new long[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            Object value = frame.find(vars[i]);
+            if (LoopCompiler.Kind.of(value) != kinds[i]) return false;
+            locals[i] = value instanceof Boolean b ? (b ? 1 : 0) : (Long) value;
+        }
+        int status;
+        try {
+            status = (int) body.invokeExact(locals);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        for (int i = 0; i < vars.length; i++) {
+            if (!writeBack[i]) continue;
+            frame.store(vars[i], kinds[i] == LoopCompiler.Kind.BOOL ? (Object) (locals[i] != 0) : (Object) locals[i]);
+        }
+        return status == LoopCompiler.DONE;
+    }
+}
@@ -0,0 +1,409 @@
+package com.mnzn.inter.jit;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.TokenBool;
+import com.mnzn.lex.imp.TokenId;
+import com.mnzn.lex.imp.TokenInt;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+
+import static com.mnzn.inter.jit.ClassAssembler.*;
+
+// 将while循环编译为隐藏类中的静态方法 static int run(long[] locals)
+// 所有变量都以long储存在JVM局部变量中(bool储存为0/1), 每轮迭代开始时写回locals数组
+// 返回DONE表示循环正常结束, 溢出等情况抛出ArithmeticException时返回BAIL, locals为该轮迭代开始时的状态
+public class LoopCompiler {
+    public static final int DONE = 0;
+    public static final int BAIL = 1;
+    private static final String MATH = "java/lang/Math";
+    private static final String OPERATORS = "com/mnzn/inter/runtime/Operators";
+    private static final String BINARY_LONG = "(JJ)J";
+
+    // 变量的类型
+    enum Kind {
+        LONG, BOOL;
+
+        // 运行时的值对应的类型, 无法编译时返回null
+        static Kind of(Object value) {
+            if (value instanceof Long) return LONG;
+            if (value instanceof Boolean) return BOOL;
+            return null;
+        }
+    }
+
+    // 无法编译的结构
+    @SuppressWarnings("serial")
+    private static class Unsupported extends RuntimeException {
+        Unsupported(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private final ClassAssembler asm = new ClassAssembler("com/mnzn/inter/jit/LoopBody");
+    private final Resolution resolution;
+    private final Map<Slot, Integer> slots = new LinkedHashMap<>(); // 变量 => locals中的下标
+    private final List<Kind> kinds = new ArrayList<>();
+    private final Set<Slot> assigned = new LinkedHashSet<>();         // 循环中被赋值的变量
+    private final Set<ASTNode> guards = new LinkedHashSet<>();        // 循环中内联的函数, 进入循环时检查
+    private int depth = 0;      // 当前表达式嵌套深度
+    private int maxDepth = 0;
+
+    private LoopCompiler(Resolution resolution) {
+        this.resolution = resolution;
+    }
+
+    // 按照frame中变量当前的类型编译循环, 无法编译时返回null
+    public static CompiledLoop compile(ASTNode loop, Resolution resolution, Frame frame) {
+        try {
+            return new LoopCompiler(resolution).build(loop, frame);
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    private CompiledLoop build(ASTNode loop, Frame frame) {
+        collect(loop, frame);
+        if (slots.size() > 100) throw new Unsupported("too many variables");
+
+        // 从locals数组加载变量
+        for (int i = 0; i < slots.size(); i++) {
+            asm.op(ALOAD_0);
+            asm.pushInt(i);
+            asm.op(LALOAD);
+            asm.op(LSTORE, local(i));
+        }
+        Label head = asm.newLabel(), exit = asm.newLabel(), handler = asm.newLabel();
+        asm.mark(head);
+        commit();
+        condition(loop.c(1), exit);
+        statement(loop.c(2));
+        asm.jump(GOTO, head);
+        asm.mark(exit);
+        commit();
+        asm.pushInt(DONE);
+        asm.op(IRETURN);
+        // 回退到解释执行
+        asm.mark(handler);
+        asm.op(POP);
+        asm.pushInt(BAIL);
+        asm.op(IRETURN);
+        asm.tryCatch(head, exit, handler, "java/lang/ArithmeticException");
+
+        byte[] bytes = asm.build("run", "([J)I", 8 + 4 * maxDepth, 1 + 2 * slots.size());
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle handle = lookup.findStatic(lookup.lookupClass(), "run", MethodType.methodType(int.class, long[].class));
+            Slot[] vars = slots.keySet().toArray(Slot[]::new);
+            boolean[] writeBack = new boolean[vars.length];
+            for (int i = 0; i < vars.length; i++) writeBack[i] = assigned.contains(vars[i]);
+            return new CompiledLoop(handle, vars, kinds.toArray(Kind[]::new), writeBack, guards.toArray(ASTNode[]::new));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("failed to define compiled loop", e);
+        }
+    }
+
+    /// 收集变量, 并按照当前值推测类型
+    private void collect(ASTNode node, Frame frame) {
+        if (node.isLeaf()) {
+            if (node.tag() == TokenTag.Identifier) {
+                Slot var = resolution.slot(node);
+                if (!slots.containsKey(var)) {
+                    Kind kind = Kind.of(frame.find(var));
+                    if (kind == null) throw new Unsupported("unknown type of " + node.t(TokenId.class).getId());
+                    slots.put(var, slots.size());
+                    kinds.add(kind);
+                }
+            }
+            return;
+        }
+        // 函数调用和字段访问不能编译, 其中的名字也不是变量
+        if (node.is("call_expr") || node.is("field_expr")) throw new Unsupported("unsupported node " + node.p());
+        // 内联的函数调用, 参数在每次调用时被赋值
+        if (node.is("inline_expr")) {
+            guards.add(node.c(0));
+            for (ASTNode param : node.c(1).getChildren()) assigned.add(target(param.isLeaf() ? param : param.c(0)));
+            for (int i = 1; i < node.size(); i++) collect(node.c(i), frame);
+            return;
+        }
+        // 循环不变量由JVM外提, 编译为原来的表达式, 不使用临时变量
+        if (node.is("loop_stmt") || node.is("hoist_expr")) {
+            collect(node.c(1), frame);
+            return;
+        }
+        if (node.is("ass_expr")) assigned.add(target(node.c(0)));
+        if (node.is("let_stmt")) assigned.add(target(node.c(1)));
+        if (node.is("unary_expr") && (node.tag(0) == TokenTag.SelfAdd || node.tag(0) == TokenTag.SelfSub)) {
+            assigned.add(target(node.c(1)));
+        }
+        for (ASTNode child : node.getChildren()) {
+            collect(child, frame);
+        }
+    }
+
+    // 变量在JVM局部变量表中的位置
+    private int local(int index) {
+        return 1 + 2 * index;
+    }
+
+    private int local(Slot var) {
+        return local(slots.get(var));
+    }
+
+    private Kind kind(Slot var) {
+        return kinds.get(slots.get(var));
+    }
+
+    // 将被赋值的变量写回locals数组
+    private void commit() {
+        for (Slot var : assigned) {
+            asm.op(ALOAD_0);
+            asm.pushInt(slots.get(var));
+            asm.op(LLOAD, local(var));
+            asm.op(LASTORE);
+        }
+    }
+
+    /// 语句
+    private void statement(ASTNode node) {
+        if (node.isLeaf()) {
+            if (node.tag() != TokenTag.Semi) {
+                expression(node);
+                asm.op(POP2);
+            }
+            return;
+        }
+        switch (node.p().toString()) {
+            case "stmt_seq" -> node.flatten("stmt_seq", 1).forEach(this::statement);
+            case "expr_stmt" -> {
+                if (node.size() != 1) statement(node.c(0));
+            }
+            case "compound_stmt", "loop_stmt" -> statement(node.c(1));
+            case "let_stmt" -> {
+                Slot var = target(node.c(1));
+                if (expression(node.c(node.size() - 2)) != kind(var)) throw new Unsupported("type of " + node.c(1).t(TokenId.class).getId() + " changed");
+                asm.op(LSTORE, local(var));
+            }
+            case "while_stmt" -> {
+                Label start = asm.newLabel(), end = asm.newLabel();
+                asm.mark(start);
+                condition(node.c(1), end);
+                statement(node.c(2));
+                asm.jump(GOTO, start);
+                asm.mark(end);
+            }
+            case "if_open_stmt", "if_matched_stmt" -> {
+                Label otherwise = asm.newLabel(), end = asm.newLabel();
+                condition(node.c(1), otherwise);
+                statement(node.c(2));
+                asm.jump(GOTO, end);
+                asm.mark(otherwise);
+                if (node.size() == 5) statement(node.c(4));
+                asm.mark(end);
+            }
+            default -> {
+                expression(node);
+                asm.op(POP2);
+            }
+        }
+    }
+
+    // 条件为假时跳转到target
+    private void condition(ASTNode node, Label target) {
+        expression(node);
+        asm.op(LCONST_0);
+        asm.op(LCMP);
+        asm.jump(IFEQ, target);
+    }
+
+    /// 表达式, 在操作数栈上留下一个long
+    private Kind expression(ASTNode node) {
+        maxDepth = Math.max(maxDepth, ++depth);
+        try {
+            return node.isLeaf() ? leaf(node) : composite(node);
+        } finally {
+            --depth;
+        }
+    }
+
+    private Kind leaf(ASTNode node) {
+        return switch (node.tag()) {
+            case Identifier -> {
+                Slot var = resolution.slot(node);
+                asm.op(LLOAD, local(var));
+                yield kind(var);
+            }
+            case IntLiteral -> {
+                asm.pushLong(node.t(TokenInt.class).getValue());
+                yield Kind.LONG;
+            }
+            case BoolLiteral -> {
+                asm.pushLong(node.t(TokenBool.class).isValue() ? 1 : 0);
+                yield Kind.BOOL;
+            }
+            default -> throw new Unsupported("unsupported token " + node.t());
+        };
+    }
+
+    private Kind composite(ASTNode node) {
+        return switch (node.p().toString()) {
+            case "parent_expr", "hoist_expr" -> expression(node.c(1));
+            case "unary_expr" -> switch (node.tag(0)) {
+                case Add -> {
+                    expression(node.c(1));
+                    yield Kind.LONG;
+                }
+                case Sub -> {
+                    expression(node.c(1));
+                    asm.invokeStatic(MATH, "negateExact", "(J)J");
+                    yield Kind.LONG;
+                }
+                case Not -> {
+                    expression(node.c(1));
+                    asm.op(LCONST_0);
+                    asm.op(LCMP);
+                    materialize(IFNE);
+                    yield Kind.BOOL;
+                }
+                case SelfAdd, SelfSub -> {
+                    Slot var = target(node.c(1));
+                    if (kind(var) != Kind.LONG) throw new Unsupported("increment of bool");
+                    asm.op(LLOAD, local(var));
+                    asm.pushLong(node.tag(0) == TokenTag.SelfAdd ? 1 : -1);
+                    asm.invokeStatic(MATH, "addExact", BINARY_LONG);
+                    asm.op(DUP2);
+                    asm.op(LSTORE, local(var));
+                    yield Kind.LONG;
+                }
+                default -> throw new Unsupported("unsupported unary operator");
+            };
+            case "binary_expr_*",
+                    "binary_expr_+",
+                    "binary_expr_<=",
+                    "binary_expr_==",
+                    "binary_expr_&&",
+                    "binary_expr_||" -> binary(node.tag(1), node.c(0), node.c(2));
+            case "cond_expr" -> {
+                Label otherwise = asm.newLabel(), end = asm.newLabel();
+                condition(node.c(0), otherwise);
+                Kind then = expression(node.c(2));
+                asm.jump(GOTO, end);
+                asm.mark(otherwise);
+                Kind other = expression(node.c(4));
+                asm.mark(end);
+                if (then != other) throw new Unsupported("branches of different types");
+                yield then;
+            }
+            case "ass_expr" -> {
+                Slot var = target(node.c(0));
+                TokenTag op = switch (node.tag(1)) {
+                    case Assign -> null;
+                    case AssignAdd -> TokenTag.Add;
+                    case AssignSub -> TokenTag.Sub;
+                    case AssignMut -> TokenTag.Mut;
+                    case AssignDiv -> TokenTag.Div;
+                    case AssignMod -> TokenTag.Mod;
+                    default -> throw new Unsupported("unsupported assign operator");
+                };
+                Kind value = op == null ? expression(node.c(2)) : binary(op, node.c(0), node.c(2));
+                if (value != kind(var)) throw new Unsupported("type of " + node.c(0).t(TokenId.class).getId() + " changed");
+                asm.op(DUP2);
+                asm.op(LSTORE, local(var));
+                yield value;
+            }
+            // 内联的函数调用, 函数是否被重新定义在进入循环时检查
+            case "inline_expr" -> {
+                if (node.size() == 5 && Type.of(node.tag(4)) == Type.FLOAT) throw new Unsupported("float return value");
+                ASTNode args = node.c(2);
+                List<ASTNode> values = args.is("expr_seq") ? args.flatten("expr_seq", 2) : List.of(args);
+                List<ASTNode> params = node.c(1).getChildren();
+                for (int i = 0; i < params.size(); i++) {
+                    Slot var = target(params.get(i).isLeaf() ? params.get(i) : params.get(i).c(0));
+                    if (expression(values.get(i)) != kind(var)) throw new Unsupported("type of parameter changed");
+                    asm.op(LSTORE, local(var));
+                }
+                yield expression(node.c(3));
+            }
+            default -> throw new Unsupported("unsupported node " + node.p());
+        };
+    }
+
+    private Kind binary(TokenTag op, ASTNode left, ASTNode right) {
+        switch (op) {
+            case Add, Sub, Mut, Div, Mod -> {
+                expression(left);
+                expression(right);
+                switch (op) {
+                    case Add -> asm.invokeStatic(MATH, "addExact", BINARY_LONG);
+                    case Sub -> asm.invokeStatic(MATH, "subtractExact", BINARY_LONG);
+                    case Mut -> asm.invokeStatic(MATH, "multiplyExact", BINARY_LONG);
+                    case Div -> asm.invokeStatic(OPERATORS, "divideExact", BINARY_LONG);
+                    default -> asm.invokeStatic(OPERATORS, "remainderExact", BINARY_LONG);
+                }
+                return Kind.LONG;
+            }
+            case Eq, Neq, Le, Ge, Leq, Geq -> {
+                expression(left);
+                expression(right);
+                asm.op(LCMP);
+                // 条件不成立时跳转到false分支
+                materialize(switch (op) {
+                    case Eq -> IFNE;
+                    case Neq -> IFEQ;
+                    case Le -> IFGE;
+                    case Ge -> IFLE;
+                    case Leq -> IFGT;
+                    default -> IFLT;
+                });
+                return Kind.BOOL;
+            }
+            // 左操作数决定结果时跳过右操作数: a && b 为 a ? (b != 0) : 0, a || b 为 a ? 1 : (b != 0)
+            case And, Or -> {
+                Label shortCircuit = asm.newLabel(), end = asm.newLabel();
+                truthy(left);
+                asm.op(L2I);
+                asm.jump(op == TokenTag.And ? IFEQ : IFNE, shortCircuit);
+                truthy(right);
+                asm.jump(GOTO, end);
+                asm.mark(shortCircuit);
+                asm.op(op == TokenTag.And ? LCONST_0 : LCONST_1);
+                asm.mark(end);
+                return Kind.BOOL;
+            }
+            default -> throw new Unsupported("unsupported operator " + op);
+        }
+    }
+
+    // 求值并转为0/1
+    private void truthy(ASTNode node) {
+        if (expression(node) == Kind.BOOL) return;
+        asm.op(LCONST_0);
+        asm.op(LCMP);
+        materialize(IFEQ);
+    }
+
+    // 根据栈顶的int生成0/1, 满足jumpIfFalse时为0
+    private void materialize(int jumpIfFalse) {
+        Label isFalse = asm.newLabel(), end = asm.newLabel();
+        asm.jump(jumpIfFalse, isFalse);
+        asm.op(LCONST_1);
+        asm.jump(GOTO, end);
+        asm.mark(isFalse);
+        asm.op(LCONST_0);
+        asm.mark(end);
+    }
+
+    private Slot target(ASTNode node) {
+        if (node.isLeaf() && node.tag() == TokenTag.Identifier) {
+            return resolution.slot(node);
+        }
+        throw new Unsupported("unsupported assign target");
+    }
+}
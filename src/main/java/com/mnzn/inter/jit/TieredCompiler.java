@@ -0,0 +1,66 @@
+package com.mnzn.inter.jit;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.runtime.MTask;
+import com.mnzn.inter.scope.Resolution;
+
+// 分层编译: 解释执行时统计每个循环的迭代次数, 超过阈值后编译为JVM字节码
+// 编译后的循环多次回退到解释执行时, 放弃该循环的编译结果
+// 有任务(spawn)执行时不进入访问全局变量的编译代码, 全局变量的读写保持对其他任务可见
+// 多个线程可能同时执行同一个循环: 计数只是估计, 可能重复编译; 编译结果只读取一次, 不会在使用中被置为null
+public class TieredCompiler {
+    public static final int DEFAULT_THRESHOLD = 1000;
+    private static final int MAX_BAILS = 8;
+
+    // 一个循环的执行信息
+    public static class Profile {
+        private int count;          // 距离上次进入编译代码后的迭代次数
+        private int bails;          // 回退次数
+        private boolean disabled;   // 不再尝试编译
+        private CompiledLoop compiled;
+    }
+
+    private final int threshold;
+    // 统计信息
+    private int compiledCount, failedCount, bailCount;
+
+    public TieredCompiler() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public TieredCompiler(int threshold) {
+        this.threshold = threshold;
+    }
+
+    // 在循环头部调用, 循环已由编译后的代码执行完毕时返回true
+    public boolean onLoop(Profile profile, ASTNode loop, Resolution resolution, Frame frame) {
+        if (profile.disabled || ++profile.count < threshold) return false;
+        CompiledLoop compiled = profile.compiled;
+        if (compiled == null) {
+            compiled = LoopCompiler.compile(loop, resolution, frame);
+            if (compiled == null) {
+                profile.disabled = true;
+                ++failedCount;
+                return false;
+            }
+            profile.compiled = compiled;
+            ++compiledCount;
+        }
+        // 有任务执行时访问全局变量的循环由解释器执行, 不计为回退
+        if (compiled.readsGlobals() && MTask.running()) return false;
+        if (compiled.enter(frame)) return true;
+        // 回退到解释执行, 重新积累迭代次数
+        ++bailCount;
+        profile.count = 0;
+        if (++profile.bails >= MAX_BAILS) {
+            profile.disabled = true;
+            profile.compiled = null;
+        }
+        return false;
+    }
+
+    public String statistics() {
+        return String.format("compiled: %d, failed: %d, bails: %d", compiledCount, failedCount, bailCount);
+    }
+}
@@ -0,0 +1,10 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+
+// 语法树上的一个优化步骤, 返回优化后的语法树(可以是原来的结点)
+public interface AstPass {
+    String name();
+
+    ASTNode apply(ASTNode root);
+}
@@ -0,0 +1,80 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.lex.TokenTag;
+
+// 常量折叠: 操作数都是字面量的算术,比较和逻辑运算在编译期求值; 逻辑运算按短路求值, 左操作数能决定结果时即可折叠
+// 与执行时使用同一套运算符实现; 求值出错(如除以0)时保留原表达式, 错误在执行时报告
+public class ConstantFoldPass extends RewritePass {
+    @Override
+    public String name() {
+        return "constant-fold";
+    }
+
+    @Override
+    protected ASTNode rewrite(ASTNode node) {
+        if (node.isLeaf()) return node;
+        Object value = switch (node.p().toString()) {
+            case "unary_expr" -> unary(node.tag(0), constant(node.c(1)));
+            case "binary_expr_*",
+                    "binary_expr_+",
+                    "binary_expr_<=",
+                    "binary_expr_==" -> binary(node.tag(1), constant(node.c(0)), constant(node.c(2)));
+            case "binary_expr_&&", "binary_expr_||" -> logical(node.tag(1), constant(node.c(0)), node.c(2));
+            default -> NOT_CONSTANT;
+        };
+        if (value == NOT_CONSTANT) return node;
+        ASTNode literal = literal(value);
+        return literal == null ? node : literal;
+    }
+
+    private static Object unary(TokenTag op, Object value) {
+        if (value == NOT_CONSTANT) return NOT_CONSTANT;
+        try {
+            return switch (op) {
+                case Add -> Operators.pos(value);
+                case Sub -> Operators.neg(value);
+                case Not -> Operators.not(value);
+                default -> NOT_CONSTANT;
+            };
+        } catch (RuntimeException e) {
+            return NOT_CONSTANT;
+        }
+    }
+
+    // 左操作数是常量且能决定结果时, 右操作数不是常量也可以折叠(右操作数本来就不会执行)
+    private static Object logical(TokenTag op, Object left, ASTNode right) {
+        if (left == NOT_CONSTANT) return NOT_CONSTANT;
+        try {
+            boolean l = Operators.truthy(left);
+            if (op == TokenTag.And ? !l : l) return l;
+            Object r = constant(right);
+            return r == NOT_CONSTANT ? NOT_CONSTANT : Operators.truthy(r);
+        } catch (RuntimeException e) {
+            return NOT_CONSTANT;
+        }
+    }
+
+    private static Object binary(TokenTag op, Object left, Object right) {
+        if (left == NOT_CONSTANT || right == NOT_CONSTANT) return NOT_CONSTANT;
+        try {
+            return switch (op) {
+                case Add -> Operators.add(left, right);
+                case Sub -> Operators.sub(left, right);
+                case Mut -> Operators.mul(left, right);
+                case Div -> Operators.div(left, right);
+                case Mod -> Operators.mod(left, right);
+                case Eq -> Operators.eq(left, right);
+                case Neq -> !Operators.eq(left, right);
+                case Le -> Operators.lt(left, right);
+                case Ge -> Operators.lt(right, left);
+                case Leq -> Operators.le(left, right);
+                case Geq -> Operators.le(right, left);
+                default -> NOT_CONSTANT;
+            };
+        } catch (RuntimeException e) {
+            return NOT_CONSTANT;
+        }
+    }
+}
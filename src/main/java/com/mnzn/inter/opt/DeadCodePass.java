@@ -0,0 +1,52 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.Operators;
+
+import java.util.List;
+
+// 删除不会执行的代码: 条件为常量的if语句和条件表达式只保留执行的分支, 删除while(false)和空语句
+public class DeadCodePass extends RewritePass {
+    @Override
+    public String name() {
+        return "dead-code";
+    }
+
+    @Override
+    protected ASTNode rewrite(ASTNode node) {
+        if (node.isLeaf()) return node;
+        return switch (node.p().toString()) {
+            // if ( cond ) stmt [else stmt]
+            case "if_open_stmt", "if_matched_stmt" -> {
+                Boolean cond = condition(node.c(1));
+                if (cond == null) yield node;
+                if (cond) yield node.c(2);
+                yield node.size() == 5 ? node.c(4) : empty();
+            }
+            case "while_stmt" -> Boolean.FALSE.equals(condition(node.c(1))) ? empty() : node;
+            // 0 ? 2 : 4
+            case "cond_expr" -> {
+                Boolean cond = condition(node.c(0));
+                if (cond == null) yield node;
+                yield cond ? node.c(2) : node.c(4);
+            }
+            case "stmt_seq" -> {
+                List<ASTNode> items = node.flatten("stmt_seq", 1);
+                List<ASTNode> kept = items.stream().filter(item -> !isEmpty(item)).toList();
+                yield kept.size() == items.size() ? node : statements(node.p(), kept);
+            }
+            default -> node;
+        };
+    }
+
+    // 常量条件的真假, 不是常量时返回null
+    private static Boolean condition(ASTNode node) {
+        Object value = constant(node);
+        if (value == NOT_CONSTANT) return null;
+        try {
+            return Operators.truthy(value);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.grammar.ProduceTag;
+import com.mnzn.inter.scope.Resolver;
+import com.mnzn.lex.Token;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.TokenId;
+
+import java.util.*;
+
+// 函数内联: 将小函数的调用替换为函数体, 省去创建帧和调用的开销
+// 可以内联的函数: 定义在顶层(不在任何块中), 函数体只有一条 return expr; 语句, 结点数不超过budget, 不调用自己
+// 调用 f(args) 替换为 inline_expr: 函数名 参数 实参 函数体 [返回类型]
+// 参数重命名为 name$k, 在调用者的帧中分配位置; 函数体中的其他变量都是全局变量, 不受调用处的局部变量影响
+// 函数可能在交互执行中被重新定义, 执行时检查函数表中的函数是否仍是内联时的定义, 不是时按普通调用执行
+// 以不同的参数类型定义过多次的函数是重载的, 调用哪个定义由实参的类型决定, 不内联
+// 与变量或参数同名的函数不内联, 调用的可能是变量的值(lambda); 函数体中有lambda的函数也不内联
+// @memo函数不内联, 调用需要经过结果缓存
+public class InlinePass extends RewritePass {
+    public static final int DEFAULT_BUDGET = 32;
+    private static final ProduceTag INLINE = ProduceTag.of("inline_expr");
+    private static final ProduceTag PARAMS = ProduceTag.of("inline_params");
+    private static final ProduceTag PARAM = ProduceTag.of("param");
+
+    // 可以内联的函数, name为定义处的函数名结点, 用于执行时检查
+    private record Inlinable(ASTNode name, List<ASTNode> params, ASTNode body, ASTNode returnType) {
+    }
+
+    private final int budget;
+    // 可以内联的函数, 在多次求值之间保留
+    private final Map<String, Inlinable> functions = new HashMap<>();
+    private final Set<ASTNode> topLevel = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 函数名 => 参数类型, 重载的函数名
+    private final Map<String, List<String>> signatures = new HashMap<>();
+    private final Set<String> overloaded = new HashSet<>();
+    private final Set<String> variables = new HashSet<>(); // 用let定义过或作为参数的名字
+    private final Set<String> memoized = new HashSet<>(); // 以@memo定义过的函数名
+    private int renamed = 0; // 用于生成不重复的参数名
+
+    public InlinePass() {
+        this(DEFAULT_BUDGET);
+    }
+
+    // budget为0时不内联
+    public InlinePass(int budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public String name() {
+        return "inline";
+    }
+
+    @Override
+    public ASTNode apply(ASTNode root) {
+        // 本次求值中定义的函数, 在定义之前不能再按旧的定义内联
+        topLevel.clear();
+        Deque<ASTNode> stack = new ArrayDeque<>();
+        Deque<Boolean> inBlock = new ArrayDeque<>();
+        stack.push(root);
+        inBlock.push(false);
+        while (!stack.isEmpty()) {
+            ASTNode node = stack.pop();
+            boolean block = inBlock.pop() || node.is("compound_stmt");
+            if (node.is("func_stmt")) {
+                functions.remove(node.t(1, TokenId.class).getId());
+                if (!block) topLevel.add(node.c(1));
+            }
+            if (node.is("let_stmt")) variables.add(node.t(1, TokenId.class).getId());
+            if (node.is("for_stmt")) variables.add(node.t(3, TokenId.class).getId());
+            if (node.is("annotated_stmt") && node.c(node.size() - 1).is("func_stmt")) {
+                memoized.add(node.c(node.size() - 1).t(1, TokenId.class).getId());
+            }
+            if (node.is("func_stmt") || node.is("lambda_expr")) {
+                for (ASTNode param : Resolver.params(node)) {
+                    variables.add((param.isLeaf() ? param : param.c(0)).t(TokenId.class).getId());
+                }
+            }
+            for (ASTNode child : node.getChildren()) {
+                stack.push(child);
+                inBlock.push(block);
+            }
+        }
+        functions.keySet().removeAll(variables);
+        functions.keySet().removeAll(memoized);
+        return super.apply(root);
+    }
+
+    @Override
+    protected ASTNode rewrite(ASTNode node) {
+        if (node.isLeaf()) return node;
+        return switch (node.p().toString()) {
+            case "func_stmt" -> {
+                define(node);
+                yield node;
+            }
+            case "call_expr" -> {
+                Inlinable function = node.c(0).isLeaf() ? functions.get(node.t(0, TokenId.class).getId()) : null;
+                if (function == null || args(node.c(2)) != function.params.size()) yield node;
+                yield inline(function, node.c(2));
+            }
+            default -> node;
+        };
+    }
+
+    // 函数定义的函数体已经内联过, 判断函数本身是否可以内联
+    private void define(ASTNode node) {
+        String name = node.t(1, TokenId.class).getId();
+        List<String> signature = Resolver.params(node).stream()
+                .map(param -> param.isLeaf() ? TokenTag.ObjectT.toString() : param.tag(2).toString()).toList();
+        List<String> previous = signatures.put(name, signature);
+        if (previous != null && !previous.equals(signature)) overloaded.add(name);
+        if (overloaded.contains(name) || variables.contains(name) || memoized.contains(name)) {
+            functions.remove(name);
+            return;
+        }
+        ASTNode body = node.c(node.size() - 1).c(1);
+        if (!topLevel.contains(node.c(1)) || !body.is("return_stmt") || body.size() != 3) return;
+        ASTNode expr = body.c(1);
+        if (PassManager.count(expr) > budget || calls(expr, name) || contains(expr, "lambda_expr")) return;
+        functions.put(name, new Inlinable(node.c(1), Resolver.params(node), expr, node.size() == 8 ? node.c(6) : null));
+    }
+
+    // 表达式中是否调用了名为name的函数
+    private static boolean calls(ASTNode node, String name) {
+        if (node.isLeaf()) return false;
+        if ((node.is("call_expr") || node.is("inline_expr")) && node.c(0).isLeaf()
+                && node.t(0, TokenId.class).getId().equals(name)) {
+            return true;
+        }
+        return node.getChildren().stream().anyMatch(child -> calls(child, name));
+    }
+
+    private static boolean contains(ASTNode node, String production) {
+        if (node.isLeaf()) return false;
+        return node.is(production) || node.getChildren().stream().anyMatch(child -> contains(child, production));
+    }
+
+    // 实参个数
+    private static int args(ASTNode node) {
+        if (node.is("expr_seq")) return node.flatten("expr_seq", 2).size();
+        return 1;
+    }
+
+    private ASTNode inline(Inlinable function, ASTNode args) {
+        // 参数重命名, 类型保持不变
+        Map<String, String> names = new HashMap<>();
+        List<ASTNode> params = new ArrayList<>();
+        for (ASTNode param : function.params) {
+            ASTNode id = param.isLeaf() ? param : param.c(0);
+            String name = id.t(TokenId.class).getId();
+            String fresh = name + "$" + ++renamed;
+            names.put(name, fresh);
+            ASTNode renamedId = new ASTNode(Token.of(TokenTag.Identifier, fresh));
+            params.add(param.isLeaf() ? renamedId : copy(PARAM, List.of(renamedId, leaf(param.c(1)), leaf(param.c(2)))));
+        }
+        List<ASTNode> children = new ArrayList<>(List.of(function.name, copy(PARAMS, params), args, rename(function.body, names)));
+        if (function.returnType != null) children.add(leaf(function.returnType));
+        return copy(INLINE, children);
+    }
+
+    // 复制函数体, 每个调用处使用新的结点; 参数按names重命名, 字段名和内联的函数名不是变量
+    // 被调用的名字与参数同名时是参数的值, 同样重命名
+    // 已内联的函数体中只有它自己的参数和全局变量, 不重命名
+    private static ASTNode rename(ASTNode node, Map<String, String> names) {
+        if (node.isLeaf()) {
+            if (node.tag() == TokenTag.Identifier) {
+                String name = node.t(TokenId.class).getId();
+                return new ASTNode(Token.of(TokenTag.Identifier, names.getOrDefault(name, name)));
+            }
+            return leaf(node);
+        }
+        List<ASTNode> children = new ArrayList<>(node.size());
+        for (int i = 0; i < node.size(); i++) {
+            ASTNode child = node.c(i);
+            boolean keep = (i == 2 && node.is("field_expr")) || (i == 0 && node.is("inline_expr"));
+            boolean inlined = i == 3 && node.is("inline_expr");
+            children.add(keep ? child : rename(child, inlined ? Map.of() : names));
+        }
+        return copy(node.p(), children);
+    }
+
+    private static ASTNode leaf(ASTNode node) {
+        return new ASTNode(Token.of(node.tag(), node.t().getRaw()));
+    }
+}
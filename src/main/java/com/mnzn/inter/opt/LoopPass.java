@@ -0,0 +1,240 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.grammar.ProduceTag;
+import com.mnzn.lex.Token;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.TokenId;
+import com.mnzn.lex.imp.TokenInt;
+
+import java.util.*;
+
+// 循环优化: 循环不变量外提, 识别归纳变量
+// 只优化没有函数调用和定义的循环, 被调用的函数可能修改任何变量
+// 不变量: 由循环中没有被赋值的变量和字面量经算术, 比较和逻辑运算得到的表达式, 替换为 hoist_expr: 临时变量 表达式
+// 临时变量在每次进入循环时清空, 第一次求值时保存结果; 仍在原来的位置求值, 不会提前求值或提前抛出异常
+// while语句替换为 loop_stmt: 临时变量列表 while语句 [归纳变量 数组...]
+// 归纳变量i: 条件为 i op limit 且limit不变, 循环体的最后一条语句为 ++i --i i += k 或 i -= k, 循环中没有其他对i的赋值
+// 其后列出循环中以 i 或 i +/- 常数 为下标访问的不变的数组变量, 进入循环时一次检查整个下标范围
+public class LoopPass extends RewritePass {
+    private static final ProduceTag LOOP = ProduceTag.of("loop_stmt");
+    private static final ProduceTag TEMPS = ProduceTag.of("loop_temps");
+    private static final ProduceTag COUNTER = ProduceTag.of("loop_counter");
+    private static final ProduceTag HOIST = ProduceTag.of("hoist_expr");
+    // 没有副作用的运算
+    private static final Set<TokenTag> OPERATORS = EnumSet.of(TokenTag.Add, TokenTag.Sub, TokenTag.Mut, TokenTag.Div,
+            TokenTag.Mod, TokenTag.Le, TokenTag.Ge, TokenTag.Leq, TokenTag.Geq, TokenTag.Eq, TokenTag.Neq,
+            TokenTag.And, TokenTag.Or);
+    private static final Set<TokenTag> UNARY = EnumSet.of(TokenTag.Add, TokenTag.Sub, TokenTag.Not);
+
+    private int temps = 0; // 用于生成不重复的临时变量名
+
+    @Override
+    public String name() {
+        return "loop";
+    }
+
+    // 内层循环先优化, 外层循环中不变的 hoist_expr 再整体外提一次
+    @Override
+    protected ASTNode rewrite(ASTNode node) {
+        if (!node.is("while_stmt")) return node;
+        Set<String> variant = new HashSet<>();
+        if (!scan(node, variant)) return node;
+        // 相同的表达式共用一个临时变量
+        Map<String, String> hoisted = new LinkedHashMap<>();
+        ASTNode cond = hoist(node.c(1), variant, hoisted);
+        ASTNode body = hoist(node.c(2), variant, hoisted);
+        ASTNode loop = cond == node.c(1) && body == node.c(2) ? node : copy(node.p(), List.of(node.c(0), cond, body));
+        ASTNode counter = counter(loop, variant);
+        if (hoisted.isEmpty() && counter == null) return node;
+        List<ASTNode> names = hoisted.values().stream().map(LoopPass::identifier).toList();
+        List<ASTNode> children = new ArrayList<>(List.of(copy(TEMPS, names), loop));
+        if (counter != null) children.add(counter);
+        return copy(LOOP, children);
+    }
+
+    /// 分析
+    // 收集循环中被赋值的变量, 有函数调用或定义时返回false; 遍历语句取下一个元素时可能执行生成器, 也返回false
+    private static boolean scan(ASTNode node, Set<String> variant) {
+        if (node.isLeaf()) return true;
+        switch (node.p().toString()) {
+            case "call_expr", "inline_expr", "func_stmt", "lambda_expr", "for_stmt", "yield_stmt" -> {
+                return false;
+            }
+            case "let_stmt" -> variant.add(name(node.c(1)));
+            case "ass_expr" -> {
+                if (node.c(0).isLeaf()) variant.add(name(node.c(0)));
+            }
+            case "unary_expr" -> {
+                if (isIncrement(node)) variant.add(name(node.c(1)));
+            }
+            default -> {
+            }
+        }
+        for (ASTNode child : items(node)) {
+            if (!scan(child, variant)) return false;
+        }
+        return true;
+    }
+
+    // 在循环中是否不变, 且求值没有副作用
+    private static boolean invariant(ASTNode node, Set<String> variant) {
+        if (node.isLeaf()) {
+            return switch (node.tag()) {
+                case Identifier -> !variant.contains(name(node));
+                case IntLiteral, FloatLiteral, BoolLiteral, StringLiteral -> true;
+                default -> false;
+            };
+        }
+        return switch (node.p().toString()) {
+            case "hoist_expr" -> invariant(node.c(1), variant);
+            case "unary_expr" -> UNARY.contains(node.tag(0)) && invariant(node.c(1), variant);
+            case "binary_expr_*",
+                    "binary_expr_+",
+                    "binary_expr_<=",
+                    "binary_expr_==",
+                    "binary_expr_&&",
+                    "binary_expr_||" -> OPERATORS.contains(node.tag(1))
+                    && invariant(node.c(0), variant) && invariant(node.c(2), variant);
+            case "cond_expr" -> invariant(node.c(0), variant) && invariant(node.c(2), variant) && invariant(node.c(4), variant);
+            default -> false;
+        };
+    }
+
+    // 外提后能省去运算, 单独的变量和一元运算不外提
+    private static boolean worth(ASTNode node) {
+        if (node.isLeaf()) return false;
+        if (node.is("hoist_expr") || node.is("cond_expr") || node.p().toString().startsWith("binary_expr")) return true;
+        return node.getChildren().stream().anyMatch(LoopPass::worth);
+    }
+
+    /// 外提
+    // 将不变的最大子表达式替换为 hoist_expr
+    private ASTNode hoist(ASTNode node, Set<String> variant, Map<String, String> hoisted) {
+        if (node.isLeaf() || node.is("loop_temps") || node.is("loop_counter")) return node;
+        if (invariant(node, variant) && worth(node)) {
+            String name = hoisted.computeIfAbsent(key(node), key -> "loop$" + ++temps);
+            return copy(HOIST, List.of(identifier(name), node));
+        }
+        List<ASTNode> items = items(node);
+        List<ASTNode> children = new ArrayList<>(items.size());
+        boolean changed = false;
+        for (ASTNode item : items) {
+            ASTNode result = hoist(item, variant, hoisted);
+            changed |= result != item;
+            children.add(result);
+        }
+        if (!changed) return node;
+        return node.is("stmt_seq") ? statements(node.p(), children) : copy(node.p(), children);
+    }
+
+    // 表达式的结构, 结构相同的表达式值相同
+    private static String key(ASTNode node) {
+        if (node.isLeaf()) return node.tag() + ":" + node.t().getRaw();
+        StringJoiner joiner = new StringJoiner(" ", node.p() + "(", ")");
+        node.getChildren().forEach(child -> joiner.add(key(child)));
+        return joiner.toString();
+    }
+
+    /// 归纳变量
+    private static ASTNode counter(ASTNode loop, Set<String> variant) {
+        ASTNode cond = loop.c(1);
+        if (!cond.is("binary_expr_<=") || !cond.c(0).isLeaf() || cond.tag(0) != TokenTag.Identifier) return null;
+        if (!invariant(cond.c(2), variant)) return null;
+        String name = name(cond.c(0));
+        List<ASTNode> items = body(loop);
+        if (items == null || step(loop) == 0 || assignments(loop, name) != 1) return null;
+        // 以归纳变量为下标访问的不变的数组
+        Set<String> arrays = new LinkedHashSet<>();
+        for (int i = 0; i < items.size() - 1; i++) arrays(items.get(i), name, variant, arrays);
+        List<ASTNode> children = new ArrayList<>();
+        children.add(identifier(name));
+        arrays.forEach(array -> children.add(identifier(array)));
+        return copy(COUNTER, children);
+    }
+
+    private static void arrays(ASTNode node, String counter, Set<String> variant, Set<String> arrays) {
+        if (node.isLeaf()) return;
+        if (node.is("sub_expr") && node.c(0).isLeaf() && node.tag(0) == TokenTag.Identifier
+                && !variant.contains(name(node.c(0))) && offset(node.c(2), counter) != null) {
+            arrays.add(name(node.c(0)));
+        }
+        items(node).forEach(child -> arrays(child, counter, variant, arrays));
+    }
+
+    // 对变量name赋值的次数
+    private static int assignments(ASTNode node, String name) {
+        if (node.isLeaf()) return 0;
+        int count = switch (node.p().toString()) {
+            case "let_stmt" -> name(node.c(1)).equals(name) ? 1 : 0;
+            case "ass_expr" -> node.c(0).isLeaf() && name(node.c(0)).equals(name) ? 1 : 0;
+            case "unary_expr" -> isIncrement(node) && name(node.c(1)).equals(name) ? 1 : 0;
+            default -> 0;
+        };
+        for (ASTNode child : items(node)) count += assignments(child, name);
+        return count;
+    }
+
+    // 循环体 { stmt_seq } 中的语句, 不是这种形式时返回null
+    public static List<ASTNode> body(ASTNode loop) {
+        ASTNode body = loop.c(2);
+        if (!body.is("compound_stmt") || body.c(1).isLeaf() || body.c(1).size() == 0) return null;
+        return body.c(1).is("stmt_seq") ? body.c(1).flatten("stmt_seq", 1) : List.of(body.c(1));
+    }
+
+    // 循环体最后一条语句 ++i --i i += k i -= k 给归纳变量加的值, i为条件的左操作数; 不是这种形式时返回0
+    public static long step(ASTNode loop) {
+        List<ASTNode> items = body(loop);
+        if (items == null) return 0;
+        ASTNode last = items.get(items.size() - 1);
+        if (!last.is("expr_stmt") || last.size() != 2) return 0;
+        String name = name(loop.c(1).c(0));
+        ASTNode expr = last.c(0);
+        if (isIncrement(expr) && name(expr.c(1)).equals(name)) {
+            return expr.tag(0) == TokenTag.SelfAdd ? 1 : -1;
+        }
+        if (expr.is("ass_expr") && expr.c(0).isLeaf() && expr.tag(0) == TokenTag.Identifier && name(expr.c(0)).equals(name)
+                && expr.c(2).isLeaf() && expr.tag(2) == TokenTag.IntLiteral) {
+            long k = expr.t(2, TokenInt.class).getValue();
+            return switch (expr.tag(1)) {
+                case AssignAdd -> k;
+                case AssignSub -> k == Long.MIN_VALUE ? 0 : -k;
+                default -> 0;
+            };
+        }
+        return 0;
+    }
+
+    // 下标 i, i + c 或 i - c 相对于归纳变量i的偏移, 不是这种形式时返回null
+    public static Long offset(ASTNode index, String counter) {
+        if (index.isLeaf()) {
+            return index.tag() == TokenTag.Identifier && name(index).equals(counter) ? 0L : null;
+        }
+        if (!index.is("binary_expr_+") || !index.c(0).isLeaf() || index.tag(0) != TokenTag.Identifier
+                || !name(index.c(0)).equals(counter) || !index.c(2).isLeaf() || index.tag(2) != TokenTag.IntLiteral) {
+            return null;
+        }
+        long c = index.t(2, TokenInt.class).getValue();
+        if (Math.abs(c) > Integer.MAX_VALUE) return null;
+        return index.tag(1) == TokenTag.Add ? c : -c;
+    }
+
+    /// 工具
+    private static boolean isIncrement(ASTNode node) {
+        return node.is("unary_expr") && (node.tag(0) == TokenTag.SelfAdd || node.tag(0) == TokenTag.SelfSub)
+                && node.c(1).isLeaf() && node.tag(1) == TokenTag.Identifier;
+    }
+
+    // 子结点, 语句列表展开
+    private static List<ASTNode> items(ASTNode node) {
+        return node.is("stmt_seq") && node.size() != 0 ? node.flatten("stmt_seq", 1) : node.getChildren();
+    }
+
+    private static String name(ASTNode identifier) {
+        return identifier.t(TokenId.class).getId();
+    }
+
+    private static ASTNode identifier(String name) {
+        return new ASTNode(Token.of(TokenTag.Identifier, name));
+    }
+}
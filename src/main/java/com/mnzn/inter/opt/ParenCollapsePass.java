@@ -0,0 +1,16 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+
+// 去掉括号表达式 ( expr ), 括号只影响语法分析时的结合顺序
+public class ParenCollapsePass extends RewritePass {
+    @Override
+    public String name() {
+        return "paren-collapse";
+    }
+
+    @Override
+    protected ASTNode rewrite(ASTNode node) {
+        return node.is("parent_expr") ? node.c(1) : node;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// 按顺序执行一组语法树优化步骤, 并统计每一步的耗时和减少的结点数
+public class PassManager {
+    // 一个优化步骤的累计统计
+    public static class PassStats {
+        private final String name;
+        private int runs;
+        private long nanos;
+        private long nodesBefore, nodesAfter;
+
+        PassStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        // 累计减少的结点数
+        public long getRemoved() {
+            return nodesBefore - nodesAfter;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s runs: %d, time: %.3f ms, nodes: %d -> %d (%+d)",
+                    name, runs, nanos / 1e6, nodesBefore, nodesAfter, -getRemoved());
+        }
+    }
+
+    private final List<AstPass> passes = new ArrayList<>();
+    private final List<PassStats> stats = new ArrayList<>();
+
+    // 默认的优化步骤: 先去掉括号, 折叠常量后再删除常量条件下不会执行的代码, 然后内联小函数, 最后优化循环
+    public static PassManager defaults() {
+        return defaults(InlinePass.DEFAULT_BUDGET);
+    }
+
+    // inlineBudget: 可以内联的函数体的最大结点数
+    public static PassManager defaults(int inlineBudget) {
+        return new PassManager()
+                .add(new ParenCollapsePass())
+                .add(new ConstantFoldPass())
+                .add(new DeadCodePass())
+                .add(new InlinePass(inlineBudget))
+                .add(new LoopPass());
+    }
+
+    public PassManager add(AstPass pass) {
+        passes.add(pass);
+        stats.add(new PassStats(pass.name()));
+        return this;
+    }
+
+    public ASTNode run(ASTNode root) {
+        int count = count(root);
+        for (int i = 0; i < passes.size(); i++) {
+            PassStats stat = stats.get(i);
+            long start = System.nanoTime();
+            root = passes.get(i).apply(root);
+            stat.nanos += System.nanoTime() - start;
+            ++stat.runs;
+            stat.nodesBefore += count;
+            count = count(root);
+            stat.nodesAfter += count;
+        }
+        return root;
+    }
+
+    public List<PassStats> getStats() {
+        return stats;
+    }
+
+    public String statistics() {
+        StringBuilder sb = new StringBuilder();
+        stats.forEach(stat -> sb.append(stat).append('\n'));
+        return sb.toString();
+    }
+
+    // 语法树的结点数
+    public static int count(ASTNode root) {
+        int count = 0;
+        Deque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ASTNode node = stack.pop();
+            ++count;
+            node.getChildren().forEach(stack::push);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,98 @@
+package com.mnzn.inter.opt;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.grammar.ProduceTag;
+import com.mnzn.lex.Token;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 自底向上重写语法树的优化步骤, 子结点重写后再重写父结点
+// 子结点没有变化时复用原来的结点, 不修改原来的语法树
+public abstract class RewritePass implements AstPass {
+    // 表示结点不是常量
+    protected static final Object NOT_CONSTANT = new Object();
+
+    // 重写一个子结点已经重写过的结点
+    protected abstract ASTNode rewrite(ASTNode node);
+
+    @Override
+    public ASTNode apply(ASTNode root) {
+        return visit(root);
+    }
+
+    private ASTNode visit(ASTNode node) {
+        if (node.isLeaf()) return rewrite(node);
+        List<ASTNode> children;
+        if (node.is("stmt_seq") && node.size() != 0) {
+            // 语句列表很长时递归过深, 展开后重建
+            List<ASTNode> items = node.flatten("stmt_seq", 1);
+            children = new ArrayList<>(items.size());
+            boolean changed = false;
+            for (ASTNode item : items) {
+                ASTNode result = visit(item);
+                changed |= result != item;
+                children.add(result);
+            }
+            return rewrite(changed ? statements(node.p(), children) : node);
+        }
+        children = new ArrayList<>(node.size());
+        boolean changed = false;
+        for (ASTNode child : node.getChildren()) {
+            ASTNode result = visit(child);
+            changed |= result != child;
+            children.add(result);
+        }
+        return rewrite(changed ? copy(node.p(), children) : node);
+    }
+
+    /// 构造结点
+    protected static ASTNode copy(ProduceTag produce, List<ASTNode> children) {
+        ASTNode node = new ASTNode(produce);
+        children.forEach(node::addChild);
+        return node;
+    }
+
+    // 按照 stmt_seq -> stmt_seq stmt 重建左递归的语句列表, 只有一项时为该项本身
+    protected static ASTNode statements(ProduceTag produce, List<ASTNode> items) {
+        if (items.isEmpty()) return new ASTNode(produce);
+        ASTNode seq = items.get(0);
+        for (int i = 1; i < items.size(); i++) {
+            seq = copy(produce, List.of(seq, items.get(i)));
+        }
+        return seq;
+    }
+
+    // 空语句
+    protected static ASTNode empty() {
+        return new ASTNode(Token.of(TokenTag.Semi, ";"));
+    }
+
+    protected static boolean isEmpty(ASTNode node) {
+        return node.isLeaf() && node.tag() == TokenTag.Semi;
+    }
+
+    /// 常量
+    // 字面量的值, 不是字面量时返回NOT_CONSTANT
+    protected static Object constant(ASTNode node) {
+        while (node.is("parent_expr")) node = node.c(1);
+        if (!node.isLeaf()) return NOT_CONSTANT;
+        return switch (node.tag()) {
+            case IntLiteral -> node.t(TokenInt.class).getValue();
+            case FloatLiteral -> node.t(TokenFloat.class).getValue();
+            case BoolLiteral -> node.t(TokenBool.class).isValue();
+            case StringLiteral -> node.t(TokenString.class).getValue();
+            default -> NOT_CONSTANT;
+        };
+    }
+
+    // 值对应的字面量结点, 无法表示为字面量时返回null
+    protected static ASTNode literal(Object value) {
+        if (value instanceof Long l) return new ASTNode(Token.of(TokenTag.IntLiteral, Long.toString(l)));
+        if (value instanceof Double d && Double.isFinite(d)) return new ASTNode(Token.of(TokenTag.FloatLiteral, Double.toString(d)));
+        if (value instanceof Boolean b) return new ASTNode(Token.of(TokenTag.BoolLiteral, Boolean.toString(b)));
+        return null;
+    }
+}
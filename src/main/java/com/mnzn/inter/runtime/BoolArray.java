@@ -0,0 +1,55 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+import java.util.Arrays;
+
+// bool数组, 元素储存在boolean[]中
+public class BoolArray extends MArray {
+    private boolean[] values;
+
+    public BoolArray(int length) {
+        super(length);
+        this.values = new boolean[length];
+    }
+
+    @Override
+    public Type elementType() {
+        return Type.BOOL;
+    }
+
+    @Override
+    public Object at(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object put(int index, Object value) {
+        values[index] = unbox(value);
+        return value;
+    }
+
+    @Override
+    public void push(Object value) {
+        boolean unboxed = unbox(value);
+        if (length == values.length) {
+            values = Arrays.copyOf(values, grow(values.length, length + 1));
+        }
+        values[length++] = unboxed;
+    }
+
+    @Override
+    public void fill(Object value) {
+        Arrays.fill(values, 0, length, unbox(value));
+    }
+
+    @Override
+    protected void copyTo(int from, MArray target, int to, int count) {
+        System.arraycopy(values, from, ((BoolArray) target).values, to, count);
+    }
+
+    private boolean unbox(Object value) {
+        if (value instanceof Boolean b) return b;
+        throw mismatch(value);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.model.ModuleFunction;
+
+// 函数调用点的缓存, 每个 name(args) 表达式一个
+// 函数表没有变化时直接使用上次查找到的函数, 不再按名字查找
+// 函数有重载时还记住上次实参的类型签名和选择的函数, 签名相同时不再查调度表
+public class CallCache {
+    private final String name;
+    private Binding binding;     // 上次查找的结果, 整体替换以便并发读取
+    private Selection selection; // 上次的重载选择, 整体替换以便并发读取
+
+    private record Binding(FunctionTable table, int version, ModuleFunction target) {
+    }
+
+    private record Selection(Overloads overloads, long signature, Overloads.Target target) {
+    }
+
+    public CallCache(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ModuleFunction lookup(FunctionTable functions) {
+        Binding last = binding;
+        if (last == null || functions != last.table || functions.version() != last.version) {
+            int version = functions.version();
+            last = new Binding(functions, version, functions.get(name));
+            binding = last;
+            selection = null;
+        }
+        return last.target;
+    }
+
+    // 实参为args[from, from + argc)的调用的函数; 重载时按实参类型选择, 并在原位置做隐式转换
+    public ModuleFunction select(FunctionTable functions, Object[] args, int from, int argc) {
+        ModuleFunction function = lookup(functions);
+        if (!(function instanceof Overloads overloads)) return function;
+        long signature = Overloads.signature(args, from, argc);
+        Selection last = selection;
+        if (last == null || last.overloads() != overloads || last.signature() != signature || signature == Overloads.UNCACHED) {
+            last = new Selection(overloads, signature, overloads.dispatch(signature, args, from, argc));
+            selection = last;
+        }
+        return last.target().convert(args, from);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+import java.math.BigInteger;
+import java.util.function.UnaryOperator;
+
+// 隐式类型转换, 用于选择重载的函数
+// 在直接的隐式转换组成的图上预先计算任意两个类型之间代价最小的转换链, 每一步代价为1
+// 目前直接的隐式转换只有int拓宽为float; 任何值都可以传给object参数, 代价高于具体类型之间的任何转换链
+public final class Conversions {
+    public static final int NONE = Integer.MAX_VALUE; // 无法转换
+    private static final int TO_ANY = 16;
+    private static final Type[] TYPES = Type.values();
+    private static final int[][] COSTS = new int[TYPES.length][TYPES.length];
+    @SuppressWarnings("unchecked")
+    private static final UnaryOperator<Object>[][] CHAINS = (UnaryOperator<Object>[][]) new UnaryOperator<?>[TYPES.length][TYPES.length];
+
+    static {
+        for (int[] row : COSTS) java.util.Arrays.fill(row, NONE);
+        for (Type type : TYPES) COSTS[type.ordinal()][type.ordinal()] = 0;
+        // 直接的隐式转换
+        direct(Type.INT, Type.FLOAT, value -> ((Number) value).doubleValue());
+        // Floyd-Warshall, 转换链为各步转换的组合
+        for (Type via : TYPES) {
+            for (Type from : TYPES) {
+                for (Type to : TYPES) {
+                    int first = COSTS[from.ordinal()][via.ordinal()], second = COSTS[via.ordinal()][to.ordinal()];
+                    if (first == NONE || second == NONE || first + second >= COSTS[from.ordinal()][to.ordinal()]) continue;
+                    COSTS[from.ordinal()][to.ordinal()] = first + second;
+                    CHAINS[from.ordinal()][to.ordinal()] = compose(CHAINS[from.ordinal()][via.ordinal()], CHAINS[via.ordinal()][to.ordinal()]);
+                }
+            }
+        }
+        for (Type from : TYPES) {
+            if (from != Type.ANY && from != Type.VOID) COSTS[from.ordinal()][Type.ANY.ordinal()] = TO_ANY;
+        }
+    }
+
+    private Conversions() {
+    }
+
+    // 长度为length的转换数组, 泛型数组只能以通配符类型创建
+    @SuppressWarnings("unchecked")
+    static UnaryOperator<Object>[] newArray(int length) {
+        return (UnaryOperator<Object>[]) new UnaryOperator<?>[length];
+    }
+
+    private static void direct(Type from, Type to, UnaryOperator<Object> conversion) {
+        COSTS[from.ordinal()][to.ordinal()] = 1;
+        CHAINS[from.ordinal()][to.ordinal()] = conversion;
+    }
+
+    private static UnaryOperator<Object> compose(UnaryOperator<Object> first, UnaryOperator<Object> second) {
+        if (first == null) return second;
+        if (second == null) return first;
+        return value -> second.apply(first.apply(value));
+    }
+
+    // 值在执行时的类型, 不是int float bool string的值(对象, 数组, null)为object
+    public static Type kind(Object value) {
+        if (value instanceof Long || value instanceof BigInteger) return Type.INT;
+        if (value instanceof Double) return Type.FLOAT;
+        if (value instanceof Boolean) return Type.BOOL;
+        if (Strings.isString(value)) return Type.STRING;
+        return Type.ANY;
+    }
+
+    // from类型的值传给to类型的参数的代价, 无法转换时为NONE
+    public static int cost(Type from, Type to) {
+        return COSTS[from.ordinal()][to.ordinal()];
+    }
+
+    // from到to的转换链, 不需要转换时为null
+    public static UnaryOperator<Object> chain(Type from, Type to) {
+        return CHAINS[from.ordinal()][to.ordinal()];
+    }
+}
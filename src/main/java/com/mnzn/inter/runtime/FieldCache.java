@@ -0,0 +1,135 @@
+package com.mnzn.inter.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 字段访问点的内联缓存, 每个 obj.name 表达式一个
+// 记录最近遇到的接收者类型和解析好的getter, 命中时只比较一次类型; 超过POLYMORPHIC种类型后改用全局缓存
+// M对象(MObject)按Shape缓存槽位下标, 赋值时还缓存添加属性的转换; 字典模式的对象直接按名字查找
+public class FieldCache {
+    private static final int POLYMORPHIC = 4;
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    // 全局缓存: 类型 => 字段名 => getter
+    private static final ClassValue<Map<String, MethodHandle>> GLOBAL = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final String name;
+    // 缓存的各项整体替换为新数组, 多个线程同时执行时不会读到写了一半的项; 并发的未命中最多丢失一项
+    private Getter[] getters = new Getter[0];
+    private boolean megamorphic = false;
+    // M对象的读取: Shape => 槽位下标
+    private Property[] properties = new Property[0];
+    // M对象的赋值: 赋值前的Shape => 赋值后的Shape和槽位下标, 两者相同时为已有属性
+    private Transition[] transitions = new Transition[0];
+
+    private record Getter(Class<?> type, MethodHandle handle) {
+    }
+
+    private record Property(Shape shape, int index) {
+    }
+
+    private record Transition(Shape from, Shape to, int index) {
+    }
+
+    public FieldCache(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object get(Object receiver) {
+        if (receiver == null) {
+            throw new RuntimeException("Cannot read field " + name + " of null");
+        }
+        if (receiver instanceof MObject object) return getProperty(object);
+        Class<?> type = receiver.getClass();
+        for (Getter getter : getters) {
+            if (getter.type == type) return invoke(getter.handle, receiver);
+        }
+        return invoke(miss(type), receiver);
+    }
+
+    // 赋值, 返回赋的值; 只有M对象的属性可以赋值, 不存在的属性会被添加
+    public Object set(Object receiver, Object value) {
+        if (!(receiver instanceof MObject object)) {
+            if (receiver == null) throw new RuntimeException("Cannot set field " + name + " of null");
+            throw new RuntimeException(String.format("Cannot set field %s of %s", name, receiver.getClass().getSimpleName()));
+        }
+        Shape shape = object.getShape();
+        if (shape == null) return object.set(name, value); // 字典模式
+        for (Transition transition : transitions) {
+            if (transition.from == shape) {
+                return shape == transition.to ? object.set(transition.index, value) : object.add(transition.to, value);
+            }
+        }
+        int index = shape.index(name);
+        if (index < 0 && shape.size() >= MObject.MAX_SHAPE_SIZE) return object.set(name, value); // 将转为字典模式
+        Shape next = index < 0 ? shape.with(name) : shape;
+        transitions = append(transitions, new Transition(shape, next, index < 0 ? shape.size() : index));
+        return index < 0 ? object.add(next, value) : object.set(index, value);
+    }
+
+    private Object getProperty(MObject object) {
+        Shape shape = object.getShape();
+        if (shape == null) return object.get(name); // 字典模式
+        for (Property property : properties) {
+            if (property.shape == shape) return object.get(property.index);
+        }
+        int index = shape.index(name);
+        if (index < 0) {
+            throw new RuntimeException("Unknown field " + name + " of object");
+        }
+        properties = append(properties, new Property(shape, index));
+        return object.get(index);
+    }
+
+    private MethodHandle miss(Class<?> type) {
+        MethodHandle getter = GLOBAL.get(type).computeIfAbsent(name, k -> resolve(type));
+        if (!megamorphic) {
+            if (getters.length < POLYMORPHIC) {
+                getters = append(getters, new Getter(type, getter));
+            } else {
+                megamorphic = true;
+            }
+        }
+        return getter;
+    }
+
+    // 加入一项后的新数组, 已有POLYMORPHIC项时不再加入
+    private static <T> T[] append(T[] entries, T entry) {
+        if (entries.length >= POLYMORPHIC) return entries;
+        T[] next = Arrays.copyOf(entries, entries.length + 1);
+        next[entries.length] = entry;
+        return next;
+    }
+
+    private MethodHandle resolve(Class<?> type) {
+        try {
+            Field field = type.getField(name);
+            return MethodHandles.publicLookup().unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(String.format("Unknown field %s of %s", name, type.getSimpleName()), e);
+        }
+    }
+
+    private static Object invoke(MethodHandle getter, Object receiver) {
+        try {
+            return (Object) getter.invokeExact(receiver);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
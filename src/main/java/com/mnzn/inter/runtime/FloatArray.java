@@ -0,0 +1,57 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+import java.util.Arrays;
+
+// float数组, 元素储存在double[]中
+public class FloatArray extends MArray {
+    private double[] values;
+
+    public FloatArray(int length) {
+        super(length);
+        this.values = new double[length];
+    }
+
+    @Override
+    public Type elementType() {
+        return Type.FLOAT;
+    }
+
+    @Override
+    public Object at(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object put(int index, Object value) {
+        values[index] = unbox(value);
+        return values[index];
+    }
+
+    @Override
+    public void push(Object value) {
+        double unboxed = unbox(value);
+        if (length == values.length) {
+            values = Arrays.copyOf(values, grow(values.length, length + 1));
+        }
+        values[length++] = unboxed;
+    }
+
+    @Override
+    public void fill(Object value) {
+        Arrays.fill(values, 0, length, unbox(value));
+    }
+
+    @Override
+    protected void copyTo(int from, MArray target, int to, int count) {
+        System.arraycopy(values, from, ((FloatArray) target).values, to, count);
+    }
+
+    // int拓宽为float
+    private double unbox(Object value) {
+        if (value instanceof Double d) return d;
+        if (value instanceof Long l) return l;
+        throw mismatch(value);
+    }
+}
@@ -0,0 +1,38 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.exec.MFunction;
+import com.mnzn.model.ModuleFunction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 函数表, 每次修改都会增加版本号, 调用点的缓存据此判断是否失效
+// 同名的用户函数参数类型不同时组成重载集合(Overloads), 参数类型相同时替换原来的函数
+// 并行执行的函数中也可能定义函数: 查找不加锁, 定义互斥; 版本号在函数写入之后增加
+public class FunctionTable {
+    private final Map<String, ModuleFunction> functions = new ConcurrentHashMap<>();
+    private volatile int version = 0;
+
+    public synchronized void define(String name, ModuleFunction function) {
+        if (function instanceof MFunction f) function = Overloads.define(name, functions.get(name), f);
+        functions.put(name, function);
+        ++version;
+    }
+
+    public ModuleFunction get(String name) {
+        ModuleFunction function = functions.get(name);
+        if (function == null) {
+            throw new RuntimeException("Unknown function " + name);
+        }
+        return function;
+    }
+
+    // 查找函数, 不存在时返回null
+    public ModuleFunction find(String name) {
+        return functions.get(name);
+    }
+
+    public int version() {
+        return version;
+    }
+}
@@ -0,0 +1,56 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+import java.util.Arrays;
+
+// int数组, 元素储存在long[]中
+public class IntArray extends MArray {
+    private long[] values;
+
+    public IntArray(int length) {
+        super(length);
+        this.values = new long[length];
+    }
+
+    @Override
+    public Type elementType() {
+        return Type.INT;
+    }
+
+    @Override
+    public Object at(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object put(int index, Object value) {
+        values[index] = unbox(value);
+        return value;
+    }
+
+    @Override
+    public void push(Object value) {
+        long unboxed = unbox(value);
+        if (length == values.length) {
+            values = Arrays.copyOf(values, grow(values.length, length + 1));
+        }
+        values[length++] = unboxed;
+    }
+
+    @Override
+    public void fill(Object value) {
+        Arrays.fill(values, 0, length, unbox(value));
+    }
+
+    @Override
+    protected void copyTo(int from, MArray target, int to, int count) {
+        System.arraycopy(values, from, ((IntArray) target).values, to, count);
+    }
+
+    // 只接受int, 超出long范围的整数不能储存
+    private long unbox(Object value) {
+        if (value instanceof Long l) return l;
+        throw mismatch(value);
+    }
+}
@@ -0,0 +1,100 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+// M语言的数组, 按元素类型使用基本类型数组储存, 避免每个元素一个包装对象
+// 数组可以增长: 容量不足时按1.5倍扩容, length之后的部分未使用
+public abstract class MArray {
+    protected int length;
+
+    protected MArray(int length) {
+        if (length < 0) throw new RuntimeException("Negative array length: " + length);
+        this.length = length;
+    }
+
+    // 创建元素类型为type, 长度为length的数组, 元素为默认值
+    public static MArray create(Type type, int length) {
+        return switch (type) {
+            case INT -> new IntArray(length);
+            case FLOAT -> new FloatArray(length);
+            case BOOL -> new BoolArray(length);
+            case VOID -> throw new RuntimeException("Array of void");
+            default -> new ObjectArray(length);
+        };
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public abstract Type elementType();
+
+    /// 元素访问, 下标越界时抛出异常
+    public final Object get(int index) {
+        check(index);
+        return at(index);
+    }
+
+    public final Object set(int index, Object value) {
+        check(index);
+        return put(index, value);
+    }
+
+    // 不检查下标, 只用于已经确定下标在范围内的访问
+    public abstract Object at(int index);
+
+    public abstract Object put(int index, Object value);
+
+    // 在末尾添加元素
+    public abstract void push(Object value);
+
+    // 所有元素赋为value
+    public abstract void fill(Object value);
+
+    // 同类型数组之间的批量复制, 由子类按基本类型数组实现
+    protected abstract void copyTo(int from, MArray target, int to, int count);
+
+    // 将src[srcPos, srcPos + count)复制到dst[dstPos, dstPos + count), 可以是同一个数组
+    public static void copy(MArray src, int srcPos, MArray dst, int dstPos, int count) {
+        if (count < 0 || srcPos < 0 || dstPos < 0 || srcPos > src.length - count || dstPos > dst.length - count) {
+            throw new RuntimeException(String.format("Copy range out of bounds: [%d, %d) of %d to [%d, %d) of %d",
+                    srcPos, srcPos + count, src.length, dstPos, dstPos + count, dst.length));
+        }
+        if (src.getClass() == dst.getClass()) {
+            src.copyTo(srcPos, dst, dstPos, count);
+        } else {
+            // 类型不同时逐个转换
+            for (int i = 0; i < count; i++) dst.set(dstPos + i, src.get(srcPos + i));
+        }
+    }
+
+    // 检查下标, 只在越界时分配异常对象
+    protected final void check(int index) {
+        if (index < 0 || index >= length) {
+            throw new RuntimeException(String.format("Index %d out of bounds for length %d", index, length));
+        }
+    }
+
+    // 增长后的容量, 至少为required
+    protected static int grow(int capacity, int required) {
+        int grown = capacity + (capacity >> 1) + 1;
+        return Math.max(grown, required);
+    }
+
+    // 元素类型不符
+    protected final RuntimeException mismatch(Object value) {
+        return new RuntimeException(String.format("Cannot store %s in %s[]", value == null ? "null" : value.getClass().getSimpleName(),
+                elementType()));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < length; i++) {
+            if (i != 0) sb.append(", ");
+            Object value = get(i);
+            sb.append(value == this ? "[...]" : value);
+        }
+        return sb.append(']').toString();
+    }
+}
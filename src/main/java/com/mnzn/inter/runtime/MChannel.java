@@ -0,0 +1,127 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.model.ModuleFunction;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 有界通道: channel(capacity) 创建, 用于任务之间传递值
+// send(v) 在通道已满时阻塞, receive() 在通道为空时阻塞; close() 之后不能再发送, 剩余的值仍可以接收
+// for (let v in ch) 依次接收, 通道关闭且取完后结束
+public final class MChannel {
+    private static final Object CLOSED = new Object(); // 通道关闭且取完时receive的结果
+
+    private final int capacity;
+    private final ArrayDeque<Object> values;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private boolean closed = false;
+
+    /// 方法, 以字段的形式访问: ch.send(v)
+    public final ModuleFunction send = new ModuleFunction("send") {
+        @Override
+        public Object apply(Object[] args) {
+            if (args.length != 1) throw new RuntimeException("send() expects a value");
+            MChannel.this.send(args[0]);
+            return null;
+        }
+    };
+    public final ModuleFunction receive = new ModuleFunction("receive") {
+        @Override
+        public Object apply(Object[] args) {
+            Object value = MChannel.this.receive();
+            if (value == CLOSED) throw new RuntimeException("Channel is closed");
+            return value;
+        }
+    };
+    public final ModuleFunction close = new ModuleFunction("close") {
+        @Override
+        public Object apply(Object[] args) {
+            MChannel.this.close();
+            return null;
+        }
+    };
+
+    public MChannel(int capacity) {
+        if (capacity < 1) throw new RuntimeException("Channel capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.values = new ArrayDeque<>(capacity);
+    }
+
+    public void send(Object value) {
+        if (value == null) throw new RuntimeException("Cannot send null to a channel");
+        lock.lock();
+        try {
+            while (!closed && values.size() == capacity) await(notFull);
+            if (closed) throw new RuntimeException("Channel is closed");
+            values.add(value);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 通道关闭且取完时返回CLOSED
+    private Object receive() {
+        lock.lock();
+        try {
+            while (!closed && values.isEmpty()) await(notEmpty);
+            if (values.isEmpty()) return CLOSED;
+            notFull.signal();
+            return values.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 唤醒所有等待的任务: 发送者报告通道已关闭, 接收者取完剩余的值后结束
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void await(Condition condition) {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting on a channel");
+        }
+    }
+
+    // 依次接收, 用于for语句
+    public Iterator<Object> iterator() {
+        return new Iterator<>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) next = receive();
+                return next != CLOSED;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Object value = next;
+                next = null;
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "channel(" + capacity + ")";
+    }
+}
@@ -0,0 +1,56 @@
+package com.mnzn.inter.runtime;
+
+import java.util.Iterator;
+
+// 生成器: 调用生成器函数(含有yield的函数)得到, 此时还没有执行函数体
+// 每次取值时从上次的yield之后继续执行到下一个yield; 函数体执行完毕或return后结束, 只能遍历一次
+public abstract class MGenerator implements Iterator<Object> {
+    private final String name;
+    private Object next;
+    private boolean ready = false;  // next是已交出但未取走的值
+    private boolean done = false;
+    private boolean running = false;
+
+    protected MGenerator(String name) {
+        this.name = name;
+    }
+
+    // 继续执行函数体, 交出值时调用yielded并返回true, 结束时返回false
+    protected abstract boolean advance();
+
+    protected void yielded(Object value) {
+        next = value;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (ready || done) return ready;
+        if (running) throw new RuntimeException("Generator " + name + " is already running");
+        running = true;
+        try {
+            ready = advance();
+        } catch (RuntimeException e) {
+            // 抛出异常后生成器结束
+            done = true;
+            throw e;
+        } finally {
+            running = false;
+        }
+        done = !ready;
+        return ready;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) throw new RuntimeException("Generator " + name + " is exhausted");
+        Object value = next;
+        next = null;
+        ready = false;
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "generator " + name;
+    }
+}
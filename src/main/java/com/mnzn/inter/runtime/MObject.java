@@ -0,0 +1,106 @@
+package com.mnzn.inter.runtime;
+
+import java.util.Arrays;
+
+// M语言的对象(object), 属性值按Shape给出的下标存放在数组中
+// 对象只保存自己的值, 属性名由共享的Shape保存
+// 属性超过MAX_SHAPE_SIZE个时转为字典模式, 改用自己的PropertyMap, 此时Shape为null
+public class MObject {
+    public static final int MAX_SHAPE_SIZE = 32;
+    private static final Object[] NO_SLOTS = {};
+
+    private Shape shape = Shape.EMPTY;
+    private Object[] slots = NO_SLOTS;
+    private PropertyMap dictionary;
+
+    // 字典模式时为null
+    public Shape getShape() {
+        return shape;
+    }
+
+    /// 按下标访问, 下标由缓存按Shape解析
+    public Object get(int index) {
+        return slots[index];
+    }
+
+    public Object set(int index, Object value) {
+        slots[index] = value;
+        return value;
+    }
+
+    // 添加属性, next为当前Shape添加该属性后的Shape
+    public Object add(Shape next, Object value) {
+        int index = shape.size();
+        if (index == slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(4, index << 1));
+        }
+        shape = next;
+        slots[index] = value;
+        return value;
+    }
+
+    /// 按名字访问
+    public Object get(String name) {
+        if (dictionary != null) {
+            int entry = dictionary.find(name);
+            if (entry >= 0) return dictionary.valueAt(entry);
+        } else {
+            int index = shape.index(name);
+            if (index >= 0) return slots[index];
+        }
+        throw new RuntimeException("Unknown field " + name + " of object");
+    }
+
+    public Object set(String name, Object value) {
+        if (dictionary != null) return dictionary.put(name, value);
+        int index = shape.index(name);
+        if (index >= 0) return set(index, value);
+        if (shape.size() < MAX_SHAPE_SIZE) return add(shape.with(name), value);
+        toDictionary();
+        return dictionary.put(name, value);
+    }
+
+    public boolean has(String name) {
+        return dictionary != null ? dictionary.containsKey(name) : shape.index(name) >= 0;
+    }
+
+    // 属性个数
+    public int size() {
+        return dictionary != null ? dictionary.size() : shape.size();
+    }
+
+    // 按添加顺序的属性名
+    public String[] names() {
+        if (dictionary == null) return shape.names();
+        String[] names = new String[dictionary.size()];
+        for (int i = 0; i < names.length; i++) names[i] = dictionary.keyAt(i);
+        return names;
+    }
+
+    // 按添加顺序的第i个属性值
+    private Object valueAt(int i) {
+        return dictionary != null ? dictionary.valueAt(i) : slots[i];
+    }
+
+    private void toDictionary() {
+        String[] names = shape.names();
+        dictionary = new PropertyMap(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            dictionary.put(names[i], slots[i]);
+        }
+        shape = null;
+        slots = NO_SLOTS;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        String[] names = names();
+        for (int i = 0; i < names.length; i++) {
+            if (i != 0) sb.append(", ");
+            Object value = valueAt(i);
+            sb.append(names[i]).append(": ").append(value == this ? "{...}" : value);
+        }
+        return sb.append('}').toString();
+    }
+}
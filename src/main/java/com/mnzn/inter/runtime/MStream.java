@@ -0,0 +1,210 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.model.ModuleFunction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// 惰性的流: stream(source).map(f).filter(g).take(n).reduce(h, init) 或 .collect()
+// map, filter, take只记录操作, 得到新的流; reduce和collect执行时各操作合并为一趟遍历, 不产生中间数组
+// 数据源为range, 数组, 文件的行(lines(path))或其他可遍历的值; 流不保存遍历状态, 可以多次执行
+// parallel()后按数据源的下标划分给ForkJoinPool的工作线程执行, 元素较少时仍然顺序执行
+// reduce并行执行时各部分分别合并后再按顺序合并, 要求合并函数满足结合律
+public final class MStream {
+    private static final int PARALLEL_THRESHOLD = 2048; // 元素个数已知且少于此数时不并行
+
+    private enum Kind {MAP, FILTER, TAKE}
+
+    private record Stage(Kind kind, ModuleFunction function, long limit) {
+    }
+
+    private final Object source;
+    private final Stage[] stages;
+    private final boolean parallelized; // 是否已调用parallel()
+
+    /// 方法, 以字段的形式访问: s.map(f)
+    public final ModuleFunction map = new ModuleFunction("map") {
+        @Override
+        public Object apply(Object[] args) {
+            return then(new Stage(Kind.MAP, function(args, "map"), 0));
+        }
+    };
+    public final ModuleFunction filter = new ModuleFunction("filter") {
+        @Override
+        public Object apply(Object[] args) {
+            return then(new Stage(Kind.FILTER, function(args, "filter"), 0));
+        }
+    };
+    public final ModuleFunction take = new ModuleFunction("take") {
+        @Override
+        public Object apply(Object[] args) {
+            if (args.length != 1 || !(args[0] instanceof Long n) || n < 0) {
+                throw new RuntimeException("take() expects a non-negative int");
+            }
+            return then(new Stage(Kind.TAKE, null, n));
+        }
+    };
+    public final ModuleFunction parallel = new ModuleFunction("parallel") {
+        @Override
+        public Object apply(Object[] args) {
+            return new MStream(source, stages, true);
+        }
+    };
+    // reduce(f, init) : 从init开始依次合并每个元素 f(acc, x)
+    public final ModuleFunction reduce = new ModuleFunction("reduce") {
+        @Override
+        public Object apply(Object[] args) {
+            if (args.length != 2) throw new RuntimeException("reduce() expects a function and an initial value");
+            return MStream.this.reduce(Operators.toFunction(args[0]), args[1]);
+        }
+    };
+    // collect() : 按顺序收集到数组中
+    public final ModuleFunction collect = new ModuleFunction("collect") {
+        @Override
+        public Object apply(Object[] args) {
+            return MStream.this.collect();
+        }
+    };
+
+    public MStream(Object source) {
+        this(source, new Stage[0], false);
+    }
+
+    private MStream(Object source, Stage[] stages, boolean parallelized) {
+        this.source = source;
+        this.stages = stages;
+        this.parallelized = parallelized;
+    }
+
+    // 文件的每一行, 执行时才读取
+    public static MStream lines(String path) {
+        return new MStream(Path.of(path));
+    }
+
+    private MStream then(Stage stage) {
+        Stage[] next = new Stage[stages.length + 1];
+        System.arraycopy(stages, 0, next, 0, stages.length);
+        next[stages.length] = stage;
+        return new MStream(source, next, parallelized);
+    }
+
+    private static ModuleFunction function(Object[] args, String name) {
+        if (args.length != 1) throw new RuntimeException(name + "() expects a function");
+        return Operators.toFunction(args[0]);
+    }
+
+    /// 执行
+    public Object reduce(ModuleFunction function, Object init) {
+        return run(stream -> {
+            if (!stream.isParallel()) {
+                Object acc = init;
+                for (Iterator<Object> it = stream.iterator(); it.hasNext(); ) {
+                    acc = function.apply(new Object[]{acc, it.next()});
+                }
+                return acc;
+            }
+            return stream.reduce((a, b) -> function.apply(new Object[]{a, b}))
+                    .map(rest -> function.apply(new Object[]{init, rest}))
+                    .orElse(init);
+        });
+    }
+
+    public MArray collect() {
+        List<Object> values = run(Stream::toList);
+        MArray array = new ObjectArray(values.size());
+        for (int i = 0; i < values.size(); i++) array.set(i, values.get(i));
+        return array;
+    }
+
+    // 顺序遍历, 用于for语句
+    public Iterator<Object> iterator() {
+        Stream<Object> stream = build(false);
+        Iterator<Object> it = stream.iterator();
+        return new Iterator<>() {
+            private boolean open = true;
+
+            @Override
+            public boolean hasNext() {
+                if (open && !it.hasNext()) {
+                    stream.close();
+                    open = false;
+                }
+                return open;
+            }
+
+            @Override
+            public Object next() {
+                return it.next();
+            }
+        };
+    }
+
+    private <T> T run(Function<Stream<Object>, T> terminal) {
+        try (Stream<Object> stream = build(parallelized)) {
+            return terminal.apply(stream);
+        } catch (RuntimeException e) {
+            // 工作线程中抛出的异常在调用线程中被重新包装, 还原为原来的异常
+            if (parallelized && e.getCause() instanceof RuntimeException cause && cause.getClass() == e.getClass()) throw cause;
+            throw e;
+        }
+    }
+
+    // 数据源的流加上各操作, 由java.util.stream合并为一趟遍历
+    private Stream<Object> build(boolean parallel) {
+        Stream<Object> stream = source(parallel);
+        for (Stage stage : stages) {
+            ModuleFunction function = stage.function;
+            stream = switch (stage.kind) {
+                case MAP -> stream.map(x -> function.apply(new Object[]{x}));
+                case FILTER -> stream.filter(x -> Operators.truthy(function.apply(new Object[]{x})));
+                case TAKE -> stream.limit(stage.limit);
+            };
+        }
+        return stream;
+    }
+
+    private Stream<Object> source(boolean parallel) {
+        if (source instanceof Range range) {
+            long size = range.size();
+            LongStream indices = LongStream.range(0, size);
+            if (parallel && size >= PARALLEL_THRESHOLD) indices = indices.parallel();
+            return indices.mapToObj(range::get);
+        }
+        if (source instanceof MArray array) {
+            int size = array.length();
+            IntStream indices = IntStream.range(0, size);
+            if (parallel && size >= PARALLEL_THRESHOLD) indices = indices.parallel();
+            return indices.mapToObj(array::get);
+        }
+        if (source instanceof Path path) {
+            try {
+                Stream<Object> lines = Files.lines(path).map(line -> line);
+                return parallel ? lines.parallel() : lines;
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read " + path, e);
+            }
+        }
+        Spliterator<Object> values = Spliterators.spliteratorUnknownSize(castIterator(Operators.iterator(source)), Spliterator.ORDERED);
+        return StreamSupport.stream(values, parallel);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterator<Object> castIterator(Iterator<?> iterator) {
+        return (Iterator<Object>) iterator;
+    }
+
+    @Override
+    public String toString() {
+        return parallelized ? "parallel stream" : "stream";
+    }
+}
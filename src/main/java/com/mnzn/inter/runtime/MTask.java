@@ -0,0 +1,115 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.model.ModuleFunction;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 任务: spawn(f, args...) 在另一个线程中执行 f(args...), await(task) 等待其结果
+// 编译结果(结点树, 字节码)只读, 由各任务共享; 每次调用都创建新的帧, 任务之间只通过全局变量, 捕获的变量和通道共享数据
+// 每个执行中的任务占用一个守护线程(目标版本没有虚拟线程), 执行完毕的线程接着执行排队的任务或被之后的任务复用; 阻塞(通道, 文件, sleep)只阻塞所在的任务
+// 同时执行的任务数不超过上限(默认DEFAULT_MAX_TASKS, 可由setMaxTasks修改), 超出的任务按spawn的顺序排队, 等执行中的任务结束后开始
+// 排队的任务还没有开始: 执行中的任务都在等待排队的任务(await, 通道)时不会再有进展, 需要更多同时阻塞的任务时应调大上限
+public final class MTask {
+    public static final int DEFAULT_MAX_TASKS = 4096;
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static final AtomicInteger ACTIVE = new AtomicInteger(); // 执行中和排队的任务数
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "m-task-" + COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 排队的任务, 执行中的任务数; 由QUEUE的锁保护
+    private static final ArrayDeque<Runnable> QUEUE = new ArrayDeque<>();
+    private static int running = 0;
+    private static int maxTasks = DEFAULT_MAX_TASKS;
+
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    private MTask() {
+    }
+
+    public static MTask spawn(ModuleFunction function, Object[] args) {
+        MTask task = new MTask();
+        ACTIVE.incrementAndGet();
+        Runnable job = () -> {
+            try {
+                task.result.complete(function.apply(args));
+            } catch (Throwable e) {
+                task.result.completeExceptionally(e);
+            } finally {
+                ACTIVE.decrementAndGet();
+            }
+        };
+        synchronized (QUEUE) {
+            if (running == maxTasks) {
+                QUEUE.add(job);
+                return task;
+            }
+            ++running;
+        }
+        start(job);
+        return task;
+    }
+
+    // 在一个线程中执行job, 之后依次执行排队的任务, 没有排队的任务时释放名额
+    private static void start(Runnable job) {
+        EXECUTOR.execute(() -> {
+            Runnable next = job;
+            while (next != null) {
+                next.run();
+                synchronized (QUEUE) {
+                    next = running > maxTasks ? null : QUEUE.poll();
+                    if (next == null) --running;
+                }
+            }
+        });
+    }
+
+    // 同时执行的任务数的上限; 调大时立即开始排队的任务
+    public static void setMaxTasks(int max) {
+        if (max < 1) throw new IllegalArgumentException("max tasks must be positive: " + max);
+        while (true) {
+            Runnable job;
+            synchronized (QUEUE) {
+                maxTasks = max;
+                if (running >= maxTasks || QUEUE.isEmpty()) return;
+                job = QUEUE.poll();
+                ++running;
+            }
+            start(job);
+        }
+    }
+
+    // 是否有任务正在执行或排队; 没有时全局变量只被当前线程访问
+    public static boolean running() {
+        return ACTIVE.get() > 0;
+    }
+
+    // 等待任务结束, 返回函数的结果; 函数抛出的异常在等待的线程中重新抛出
+    public Object await() {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    @Override
+    public String toString() {
+        return result.isDone() ? "finished task" : "task";
+    }
+}
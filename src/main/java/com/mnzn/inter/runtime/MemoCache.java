@@ -0,0 +1,155 @@
+package com.mnzn.inter.runtime;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 记忆化函数(@memo)的结果缓存, 以实参元组为键, 淘汰最近最少使用(LRU)的条目
+// 条目数不超过limits.entries, 键和值的估计大小之和不超过limits.weight
+// 只缓存实参都是不可变值(数字, 布尔, 字符串, null)的调用, 字符串按内容比较; 数组, 对象和函数可能被修改或按引用比较, 这样的调用不经过缓存
+// 函数表变化后清空缓存, 被调用的函数可能已被重新定义
+public class MemoCache {
+    // 缓存中没有该调用的结果
+    public static final Object MISS = new Object();
+    private static final int ENTRY_WEIGHT = 48; // 每个条目本身的估计大小(字节)
+
+    // 条目数和总大小(字节)的上限
+    public record Limits(int entries, long weight) {
+        public static final Limits DEFAULT = new Limits(1024, 1L << 20);
+
+        public Limits {
+            if (entries <= 0 || weight <= 0) throw new RuntimeException("@memo limits must be positive");
+        }
+    }
+
+    // 实参元组
+    private record Key(Object[] args, int hash) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && hash == key.hash && Arrays.equals(args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // 一次经过缓存的调用, 未命中时函数返回后保存结果
+    public record Call(MemoCache cache, Key key, int version) {
+        // 缓存的结果, 没有时为MISS
+        public Object cached() {
+            return cache.get(this);
+        }
+
+        public void store(Object value) {
+            cache.put(this, value);
+        }
+    }
+
+    private final Limits limits;
+    private final Map<Key, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, Long> weights = new HashMap<>();
+    private long weight = 0;
+    private int version = -1; // 缓存的结果对应的函数表版本
+    /// 统计
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long uncached = 0;
+
+    public MemoCache(Limits limits) {
+        this.limits = limits;
+    }
+
+    // 开始一次调用, 实参为args[from, from + argc); 实参不能作为键时返回null
+    public Call call(Object[] args, int from, int argc, int version) {
+        Object[] key = new Object[argc];
+        int hash = 1;
+        for (int i = 0; i < argc; i++) {
+            Object arg = args[from + i];
+            if (!isValue(arg)) {
+                synchronized (this) {
+                    ++uncached;
+                }
+                return null;
+            }
+            key[i] = arg instanceof CharSequence str ? str.toString() : arg;
+            hash = 31 * hash + (arg == null ? 0 : key[i].hashCode());
+        }
+        return new Call(this, new Key(key, hash), version);
+    }
+
+    private synchronized Object get(Call call) {
+        if (call.version != version) {
+            clear();
+            version = call.version;
+        }
+        Object value = entries.getOrDefault(call.key, MISS);
+        if (value == MISS) ++misses;
+        else ++hits;
+        return value;
+    }
+
+    // 计算期间函数表发生变化时不保存
+    private synchronized void put(Call call, Object value) {
+        if (call.version != version || !isValue(value) || entries.containsKey(call.key)) return;
+        long size = ENTRY_WEIGHT + weight(value);
+        for (Object arg : call.key.args) size += weight(arg);
+        if (size > limits.weight) return;
+        entries.put(call.key, value);
+        weights.put(call.key, size);
+        weight += size;
+        // 按最近使用的顺序淘汰
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > limits.entries || weight > limits.weight) {
+            Key key = eldest.next();
+            eldest.remove();
+            weight -= weights.remove(key);
+            ++evictions;
+        }
+    }
+
+    private void clear() {
+        entries.clear();
+        weights.clear();
+        weight = 0;
+    }
+
+    private static boolean isValue(Object value) {
+        return value == null || value instanceof Number || value instanceof Boolean || value instanceof CharSequence;
+    }
+
+    // 值的估计大小
+    private static long weight(Object value) {
+        if (value instanceof CharSequence str) return 40 + 2L * str.length();
+        if (value instanceof BigInteger big) return 40 + big.bitLength() / 8;
+        return 16;
+    }
+
+    /// 统计
+    // 多个缓存(重载的@memo函数)的统计之和
+    public static MObject statistics(List<MemoCache> caches) {
+        long[] totals = new long[6];
+        for (MemoCache cache : caches) {
+            synchronized (cache) {
+                long[] counts = {cache.hits, cache.misses, cache.uncached, cache.evictions, cache.entries.size(), cache.weight};
+                for (int i = 0; i < totals.length; i++) totals[i] += counts[i];
+            }
+        }
+        MObject stats = new MObject();
+        String[] names = {"hits", "misses", "uncached", "evictions", "entries", "weight"};
+        for (int i = 0; i < names.length; i++) stats.set(names[i], totals[i]);
+        long lookups = totals[0] + totals[1];
+        stats.set("hitRate", lookups == 0 ? 0.0 : (double) totals[0] / lookups);
+        return stats;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+import java.util.Arrays;
+
+// 元素为任意类型的数组(object[], string[])
+public class ObjectArray extends MArray {
+    private Object[] values;
+
+    public ObjectArray(int length) {
+        super(length);
+        this.values = new Object[length];
+    }
+
+    @Override
+    public Type elementType() {
+        return Type.ANY;
+    }
+
+    @Override
+    public Object at(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object put(int index, Object value) {
+        values[index] = value;
+        return value;
+    }
+
+    @Override
+    public void push(Object value) {
+        if (length == values.length) {
+            values = Arrays.copyOf(values, grow(values.length, length + 1));
+        }
+        values[length++] = value;
+    }
+
+    @Override
+    public void fill(Object value) {
+        Arrays.fill(values, 0, length, value);
+    }
+
+    @Override
+    protected void copyTo(int from, MArray target, int to, int count) {
+        System.arraycopy(values, from, ((ObjectArray) target).values, to, count);
+    }
+}
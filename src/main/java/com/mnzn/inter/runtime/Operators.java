@@ -0,0 +1,305 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.model.ModuleFunction;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Iterator;
+import java.util.List;
+
+// 运算符的实现, 所有的执行方式共享同一套语义
+// 数字的表示: 整数为Long, 溢出时提升为BigInteger; 浮点数为Double; 外部传入的BigDecimal按高精度计算
+// 两个Long之间的运算走无分配的快速路径(结果在Long缓存范围内时), 其余情况按照 Long < BigInteger < Double < BigDecimal 提升
+public class Operators {
+    private static final MathContext DIV_CONTEXT = MathContext.DECIMAL128;
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    // 数字的等级, 运算时提升到两者中较高的等级
+    private static final int LONG = 0, BIG_INTEGER = 1, DOUBLE = 2, BIG_DECIMAL = 3;
+
+    private static int rank(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Boolean) return LONG;
+        if (value instanceof Double || value instanceof Float) return DOUBLE;
+        if (value instanceof BigInteger) return BIG_INTEGER;
+        if (value instanceof BigDecimal) return BIG_DECIMAL;
+        throw new RuntimeException(String.format("Unsupported operand %s", describe(value)));
+    }
+
+    /// 类型转换
+    public static long toLong(Object value) {
+        if (value instanceof Boolean b) return b ? 1 : 0;
+        return ((Number) value).longValue();
+    }
+
+    public static double toDouble(Object value) {
+        if (value instanceof Boolean b) return b ? 1 : 0;
+        return ((Number) value).doubleValue();
+    }
+
+    public static BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger i) return i;
+        return BigInteger.valueOf(toLong(value));
+    }
+
+    public static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal d) return d;
+        if (value instanceof BigInteger i) return new BigDecimal(i);
+        if (value instanceof Double || value instanceof Float) return BigDecimal.valueOf(toDouble(value));
+        return BigDecimal.valueOf(toLong(value));
+    }
+
+    // 转为数组下标
+    public static int toIndex(Object value) {
+        if (rank(value) != LONG) throw new RuntimeException(String.format("Index must be an integer: %s", describe(value)));
+        long index = toLong(value);
+        if (index < 0 || index > Integer.MAX_VALUE) throw new IndexOutOfBoundsException("Index out of range: " + index);
+        return (int) index;
+    }
+
+    // 被调用的值, 只有函数值(lambda)可以调用
+    public static ModuleFunction toFunction(Object value) {
+        if (value instanceof ModuleFunction function) return function;
+        throw new RuntimeException(String.format("Not a function: %s", describe(value)));
+    }
+
+    // for遍历的元素: range, 生成器, 流(顺序执行), 通道(接收到关闭为止), 数组(按下标逐个读取, 遍历中修改的元素可见), 字符串(逐个字符)
+    public static Iterator<?> iterator(Object value) {
+        if (value instanceof Iterator<?> iterator) return iterator;
+        if (value instanceof Range range) return range.iterator();
+        if (value instanceof MStream stream) return stream.iterator();
+        if (value instanceof MChannel channel) return channel.iterator();
+        if (value instanceof MArray array) {
+            return new Iterator<>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < array.length();
+                }
+
+                @Override
+                public Object next() {
+                    return array.get(index++);
+                }
+            };
+        }
+        if (value instanceof CharSequence str) {
+            return new Iterator<>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < str.length();
+                }
+
+                @Override
+                public Object next() {
+                    return String.valueOf(str.charAt(index++));
+                }
+            };
+        }
+        throw new RuntimeException(String.format("Not iterable: %s", describe(value)));
+    }
+
+    // BigInteger能用long表示时收缩为Long
+    private static Object normalize(BigInteger value) {
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) return value.longValue();
+        return value;
+    }
+
+    // 作为条件时的真假
+    public static boolean truthy(Object value) {
+        if (value instanceof Boolean b) return b;
+        if (value instanceof Long l) return l != 0;
+        return switch (rank(value)) {
+            case LONG -> toLong(value) != 0;
+            case BIG_INTEGER -> ((BigInteger) value).signum() != 0;
+            case DOUBLE -> toDouble(value) != 0;
+            default -> ((BigDecimal) value).signum() != 0;
+        };
+    }
+
+    /// long的带溢出检查的运算, 溢出或除数为0时抛出ArithmeticException, 编译后的代码也会调用
+    public static long divideExact(long left, long right) {
+        if (right == 0) throw new ArithmeticException("Division by zero");
+        if (left == Long.MIN_VALUE && right == -1) throw new ArithmeticException("long overflow");
+        return left / right;
+    }
+
+    public static long remainderExact(long left, long right) {
+        if (right == 0) throw new ArithmeticException("Division by zero");
+        return left % right;
+    }
+
+    /// 算术运算
+    public static Object add(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) {
+            long r = a + b;
+            // 符号位检查溢出, 同Math.addExact
+            if (((a ^ r) & (b ^ r)) >= 0) return r;
+        }
+        // 有一个操作数为字符串时拼接
+        if (Strings.isString(left) || Strings.isString(right)) return Strings.concat(left, right);
+        return switch (Math.max(rank(left), rank(right))) {
+            case LONG, BIG_INTEGER -> normalize(toBigInteger(left).add(toBigInteger(right)));
+            case DOUBLE -> toDouble(left) + toDouble(right);
+            default -> toBigDecimal(left).add(toBigDecimal(right));
+        };
+    }
+
+    public static Object sub(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) {
+            long r = a - b;
+            if (((a ^ b) & (a ^ r)) >= 0) return r;
+        }
+        return switch (Math.max(rank(left), rank(right))) {
+            case LONG, BIG_INTEGER -> normalize(toBigInteger(left).subtract(toBigInteger(right)));
+            case DOUBLE -> toDouble(left) - toDouble(right);
+            default -> toBigDecimal(left).subtract(toBigDecimal(right));
+        };
+    }
+
+    public static Object mul(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) {
+            long hi = Math.multiplyHigh(a, b);
+            long lo = a * b;
+            if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) return lo;
+        }
+        return switch (Math.max(rank(left), rank(right))) {
+            case LONG, BIG_INTEGER -> normalize(toBigInteger(left).multiply(toBigInteger(right)));
+            case DOUBLE -> toDouble(left) * toDouble(right);
+            default -> toBigDecimal(left).multiply(toBigDecimal(right));
+        };
+    }
+
+    // 整数除法向0取整
+    public static Object div(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b && b != 0 && !(a == Long.MIN_VALUE && b == -1)) {
+            return a / b;
+        }
+        return switch (Math.max(rank(left), rank(right))) {
+            case LONG, BIG_INTEGER -> {
+                BigInteger divisor = toBigInteger(right);
+                if (divisor.signum() == 0) throw new ArithmeticException("Division by zero");
+                yield normalize(toBigInteger(left).divide(divisor));
+            }
+            case DOUBLE -> toDouble(left) / toDouble(right);
+            default -> toBigDecimal(left).divide(toBigDecimal(right), DIV_CONTEXT);
+        };
+    }
+
+    // 余数的符号与被除数相同
+    public static Object mod(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b && b != 0) {
+            return a % b;
+        }
+        return switch (Math.max(rank(left), rank(right))) {
+            case LONG, BIG_INTEGER -> {
+                BigInteger divisor = toBigInteger(right);
+                if (divisor.signum() == 0) throw new ArithmeticException("Division by zero");
+                yield normalize(toBigInteger(left).remainder(divisor));
+            }
+            case DOUBLE -> toDouble(left) % toDouble(right);
+            default -> toBigDecimal(left).remainder(toBigDecimal(right));
+        };
+    }
+
+    public static Object neg(Object value) {
+        if (value instanceof Long a && a != Long.MIN_VALUE) return -a;
+        return switch (rank(value)) {
+            case LONG, BIG_INTEGER -> normalize(toBigInteger(value).negate());
+            case DOUBLE -> -toDouble(value);
+            default -> ((BigDecimal) value).negate();
+        };
+    }
+
+    public static Object pos(Object value) {
+        return switch (rank(value)) {
+            case LONG -> toLong(value);
+            case DOUBLE -> toDouble(value);
+            default -> value;
+        };
+    }
+
+    /// 比较运算
+    public static int compare(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return Long.compare(a, b);
+        return switch (Math.max(rank(left), rank(right))) {
+            case LONG -> Long.compare(toLong(left), toLong(right));
+            case BIG_INTEGER -> toBigInteger(left).compareTo(toBigInteger(right));
+            case DOUBLE -> Double.compare(toDouble(left), toDouble(right));
+            default -> toBigDecimal(left).compareTo(toBigDecimal(right));
+        };
+    }
+
+    // 非数字之间按照equals比较
+    public static boolean eq(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return a.longValue() == b.longValue();
+        if (isNumber(left) && isNumber(right)) {
+            if (Math.max(rank(left), rank(right)) == DOUBLE) return toDouble(left) == toDouble(right);
+            return compare(left, right) == 0;
+        }
+        if (Strings.isString(left) && Strings.isString(right)) return left.toString().equals(right.toString());
+        return left == null ? right == null : left.equals(right);
+    }
+
+    public static boolean lt(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return a < b;
+        if (Math.max(rank(left), rank(right)) == DOUBLE) return toDouble(left) < toDouble(right);
+        return compare(left, right) < 0;
+    }
+
+    public static boolean le(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return a <= b;
+        if (Math.max(rank(left), rank(right)) == DOUBLE) return toDouble(left) <= toDouble(right);
+        return compare(left, right) <= 0;
+    }
+
+    /// 逻辑运算
+    public static boolean not(Object value) {
+        return !truthy(value);
+    }
+
+    /// 下标访问 obj[index], 对象按字符串键访问属性
+    public static Object index(Object obj, Object index) {
+        if (obj instanceof MObject object) return object.get(key(index));
+        int i = toIndex(index);
+        if (obj instanceof MArray array) return array.get(i);
+        if (obj instanceof List<?> list) return list.get(i);
+        if (Strings.isString(obj)) return Strings.charAt((CharSequence) obj, i);
+        throw new RuntimeException("Unsupported sub expression " + typeName(obj));
+    }
+
+    // obj[index] = value, 返回赋的值
+    @SuppressWarnings("unchecked")
+    public static Object setIndex(Object obj, Object index, Object value) {
+        if (obj instanceof MObject object) return object.set(key(index), value);
+        int i = toIndex(index);
+        if (obj instanceof MArray array) return array.set(i, value);
+        if (obj instanceof List<?> list) {
+            ((List<Object>) list).set(i, value);
+            return value;
+        }
+        throw new RuntimeException("Cannot assign to element of " + typeName(obj));
+    }
+
+    // 对象的键 obj["key"]
+    private static String key(Object value) {
+        if (Strings.isString(value)) return value.toString();
+        throw new RuntimeException(String.format("Key must be a string: %s", describe(value)));
+    }
+
+    private static boolean isNumber(Object value) {
+        return value instanceof Number || value instanceof Boolean;
+    }
+
+    private static String typeName(Object value) {
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+
+    private static String describe(Object value) {
+        return value == null ? "null" : String.format("%s (%s)", value, value.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,118 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.exec.MFunction;
+import com.mnzn.inter.type.Type;
+import com.mnzn.model.ModuleFunction;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+// 同名函数的一组重载, 按实参执行时的类型选择参数类型最匹配的函数
+// 调度表: 实参的类型签名 => 选中的函数和每个实参的转换链, 每种签名只解析一次
+// 重新定义参数类型相同的函数时替换原来的函数; 每次定义都创建新的重载集合, 不修改已有的集合
+public class Overloads extends ModuleFunction {
+    // 每个实参的类型占3位, 超过MAX_CACHED_ARGS个实参时不使用调度表
+    private static final int MAX_CACHED_ARGS = 20;
+    public static final long UNCACHED = -1;
+
+    // 选择的结果, conversions[i]为null时第i个实参不需要转换
+    public record Target(MFunction function, UnaryOperator<Object>[] conversions) {
+        // 在原位置转换实参, 返回选中的函数
+        public MFunction convert(Object[] args, int from) {
+            for (int i = 0; i < conversions.length; i++) {
+                if (conversions[i] != null) args[from + i] = conversions[i].apply(args[from + i]);
+            }
+            return function;
+        }
+    }
+
+    private final String name;
+    private final List<MFunction> functions;
+    private final Map<Long, Target> table = new HashMap<>();
+
+    private Overloads(String name, List<MFunction> functions) {
+        super(name);
+        this.name = name;
+        this.functions = functions;
+    }
+
+    // 在已有的函数(可以是重载集合)中加入function, 只剩一个函数时直接返回该函数
+    public static ModuleFunction define(String name, ModuleFunction existing, MFunction function) {
+        List<MFunction> functions = new ArrayList<>();
+        if (existing instanceof Overloads overloads) functions.addAll(overloads.functions);
+        else if (existing instanceof MFunction single) functions.add(single);
+        functions.removeIf(old -> Arrays.equals(old.getParams(), function.getParams()));
+        functions.add(function);
+        return functions.size() == 1 ? function : new Overloads(name, List.copyOf(functions));
+    }
+
+    public List<MFunction> getFunctions() {
+        return functions;
+    }
+
+    // 实参args[from, from + argc)的类型签名, 实参过多时为UNCACHED
+    public static long signature(Object[] args, int from, int argc) {
+        if (argc > MAX_CACHED_ARGS) return UNCACHED;
+        long signature = argc;
+        for (int i = 0; i < argc; i++) {
+            signature = signature << 3 | Conversions.kind(args[from + i]).ordinal();
+        }
+        return signature;
+    }
+
+    // 按签名查调度表, 没有时解析并加入调度表
+    public Target dispatch(long signature, Object[] args, int from, int argc) {
+        if (signature == UNCACHED) return resolve(args, from, argc);
+        synchronized (table) {
+            Target target = table.get(signature);
+            if (target == null) {
+                target = resolve(args, from, argc);
+                table.put(signature, target);
+            }
+            return target;
+        }
+    }
+
+    // 各实参转换代价之和最小的函数, 最小的有多个时报告歧义
+    private Target resolve(Object[] args, int from, int argc) {
+        Type[] kinds = new Type[argc];
+        for (int i = 0; i < argc; i++) kinds[i] = Conversions.kind(args[from + i]);
+        MFunction best = null;
+        int bestCost = Conversions.NONE;
+        boolean ambiguous = false;
+        for (MFunction function : functions) {
+            int cost = cost(function.getParams(), kinds);
+            if (cost < bestCost) {
+                best = function;
+                bestCost = cost;
+                ambiguous = false;
+            } else if (cost == bestCost && cost != Conversions.NONE) {
+                ambiguous = true;
+            }
+        }
+        String call = name + "(" + String.join(", ", Arrays.stream(kinds).map(Type::toString).toList()) + ")";
+        if (best == null) throw new RuntimeException("No overload of function " + name + " matches " + call);
+        if (ambiguous) throw new RuntimeException("Ambiguous call " + call);
+        @SuppressWarnings("unchecked")
+        UnaryOperator<Object>[] conversions = Conversions.newArray(argc);
+        for (int i = 0; i < argc; i++) conversions[i] = Conversions.chain(kinds[i], best.getParams()[i]);
+        return new Target(best, conversions);
+    }
+
+    private static int cost(Type[] params, Type[] kinds) {
+        if (params.length != kinds.length) return Conversions.NONE;
+        int total = 0;
+        for (int i = 0; i < params.length; i++) {
+            int cost = Conversions.cost(kinds[i], params[i]);
+            if (cost == Conversions.NONE) return Conversions.NONE;
+            total += cost;
+        }
+        return total;
+    }
+
+    // 不经过调用点缓存的调用, 如内联的函数被重新定义后的调用
+    @Override
+    public Object apply(Object[] args) {
+        return dispatch(signature(args, 0, args.length), args, 0, args.length).convert(args, 0).apply(args);
+    }
+}
@@ -0,0 +1,102 @@
+package com.mnzn.inter.runtime;
+
+import java.util.Arrays;
+
+// 字典模式的对象属性, 以字符串为键的开放定址散列表
+// 条目按插入顺序紧凑地存放在keys/hashes/values中, 散列表table只保存条目下标+1(0为空位), 线性探测
+// 键的散列值随条目保存, 扩容和比较时不再重新计算
+public final class PropertyMap {
+    private static final int MIN_CAPACITY = 8;
+
+    private String[] keys;
+    private int[] hashes;
+    private Object[] values;
+    private int size = 0;
+    private int[] table; // 长度为2的幂, 装载因子不超过2/3
+
+    public PropertyMap(int expected) {
+        int entries = Math.max(MIN_CAPACITY, expected);
+        keys = new String[entries];
+        hashes = new int[entries];
+        values = new Object[entries];
+        table = new int[tableSize(entries)];
+    }
+
+    private static int tableSize(int entries) {
+        int size = MIN_CAPACITY * 2;
+        while (size * 2 < entries * 3) size <<= 1;
+        return size;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // 键对应的条目下标, 不存在时返回-1
+    public int find(String key) {
+        int h = hash(key);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int entry = table[i] - 1;
+            if (entry < 0) return -1;
+            if (hashes[entry] == h && (keys[entry] == key || keys[entry].equals(key))) return entry;
+        }
+    }
+
+    public boolean containsKey(String key) {
+        return find(key) >= 0;
+    }
+
+    public Object put(String key, Object value) {
+        int h = hash(key);
+        int mask = table.length - 1;
+        int i = h & mask;
+        for (; table[i] != 0; i = (i + 1) & mask) {
+            int entry = table[i] - 1;
+            if (hashes[entry] == h && (keys[entry] == key || keys[entry].equals(key))) {
+                values[entry] = value;
+                return value;
+            }
+        }
+        if (size == keys.length) {
+            grow();
+            return put(key, value);
+        }
+        keys[size] = key;
+        hashes[size] = h;
+        values[size] = value;
+        table[i] = ++size;
+        return value;
+    }
+
+    // 条目数组扩容1.5倍, 散列表按新的容量重建
+    private void grow() {
+        int capacity = keys.length + (keys.length >> 1);
+        keys = Arrays.copyOf(keys, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        values = Arrays.copyOf(values, capacity);
+        int tableSize = tableSize(capacity);
+        if (tableSize == table.length) return;
+        table = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int i = hashes[entry] & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = entry + 1;
+        }
+    }
+
+    /// 按插入顺序访问条目
+    public int size() {
+        return size;
+    }
+
+    public String keyAt(int entry) {
+        return keys[entry];
+    }
+
+    public Object valueAt(int entry) {
+        return values[entry];
+    }
+}
@@ -0,0 +1,71 @@
+package com.mnzn.inter.runtime;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// 整数区间 range(start, end, step), 不保存元素, 遍历时逐个计算, 占用的内存与长度无关
+// step > 0 时为 start, start + step, ... < end; step < 0 时为 ... > end
+public final class Range implements Iterable<Object> {
+    private final long start;
+    private final long end;
+    private final long step;
+    private final long size;
+
+    public Range(long start, long end, long step) {
+        if (step == 0) throw new RuntimeException("range() step cannot be 0");
+        this.start = start;
+        this.end = end;
+        this.step = step;
+        this.size = size(start, end, step);
+    }
+
+    // 元素个数, 不超过long的范围
+    private static long size(long start, long end, long step) {
+        if (step > 0 ? start >= end : start <= end) return 0;
+        try {
+            long span = Math.abs(Math.subtractExact(end, start)) - 1;
+            return Math.addExact(span / Math.abs(step), 1);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(String.format("range(%d, %d, %d) is too large", start, end, step));
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // 第index个元素
+    public long get(long index) {
+        if (index < 0 || index >= size) {
+            throw new RuntimeException(String.format("Index %d out of bounds for %s", index, this));
+        }
+        return start + index * step;
+    }
+
+    // 按剩余个数计数, 最后一个元素之后不会溢出
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<>() {
+            private long next = start;
+            private long remaining = size;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Object next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                long value = next;
+                if (--remaining > 0) next += step;
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return step == 1 ? String.format("range(%d, %d)", start, end) : String.format("range(%d, %d, %d)", start, end, step);
+    }
+}
@@ -0,0 +1,75 @@
+package com.mnzn.inter.runtime;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// 拼接得到的长字符串, 只记录左右两部分, 第一次读取内容时才展开为String
+// 反复执行 s = s + x 时每次只分配一个结点, 不复制已有的内容
+// 多个线程可能同时展开同一个结点: 先写入flat再释放两部分, 读到已释放的部分时改用flat
+public final class Rope implements CharSequence {
+    private static final VarHandle LEFT, RIGHT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            LEFT = lookup.findVarHandle(Rope.class, "left", CharSequence.class);
+            RIGHT = lookup.findVarHandle(Rope.class, "right", CharSequence.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CharSequence left, right; // 展开后置为null
+    private final int length;
+    private String flat;
+
+    Rope(CharSequence left, CharSequence right) {
+        this.left = left;
+        this.right = right;
+        this.length = left.length() + right.length();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    // 展开, 结果缓存; 不使用递归以支持很深的拼接
+    @Override
+    public String toString() {
+        if (flat != null) return flat;
+        StringBuilder sb = new StringBuilder(length);
+        Deque<CharSequence> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            CharSequence part = stack.pop();
+            if (part instanceof Rope rope) {
+                CharSequence l = (CharSequence) LEFT.getAcquire(rope), r = (CharSequence) RIGHT.getAcquire(rope);
+                if (l != null && r != null) {
+                    stack.push(r);
+                    stack.push(l);
+                    continue;
+                }
+                part = rope.flat;
+            }
+            sb.append(part);
+        }
+        String result = sb.toString();
+        flat = result;
+        LEFT.setRelease(this, null);
+        RIGHT.setRelease(this, null);
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package com.mnzn.inter.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 对象的隐藏类: 属性名到槽位下标的映射, 结构相同的对象共享同一个Shape
+// 添加属性时沿转换树走到子结点, 按相同顺序添加相同属性的对象得到同一个Shape
+public final class Shape {
+    // 没有属性的对象, 转换树的根
+    public static final Shape EMPTY = new Shape(null, null);
+
+    private final Shape parent;
+    private final String name;                  // 相对于parent新增的属性
+    private final Map<String, Integer> indices; // 属性名 => 槽位下标
+    private final Map<String, Shape> transitions = new ConcurrentHashMap<>();
+
+    private Shape(Shape parent, String name) {
+        this.parent = parent;
+        this.name = name;
+        this.indices = parent == null ? Map.of() : new HashMap<>(parent.indices);
+        if (name != null) indices.put(name, parent.size());
+    }
+
+    // 属性的槽位下标, 不存在时返回-1
+    public int index(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    // 添加一个属性后的Shape
+    public Shape with(String name) {
+        if (indices.containsKey(name)) {
+            throw new IllegalArgumentException("Property " + name + " already exists");
+        }
+        return transitions.computeIfAbsent(name, k -> new Shape(this, k));
+    }
+
+    public int size() {
+        return indices.size();
+    }
+
+    public Shape getParent() {
+        return parent;
+    }
+
+    // 按槽位顺序的属性名
+    public String[] names() {
+        String[] names = new String[size()];
+        for (Shape shape = this; shape.name != null; shape = shape.parent) {
+            names[shape.parent.size()] = shape.name;
+        }
+        return names;
+    }
+}
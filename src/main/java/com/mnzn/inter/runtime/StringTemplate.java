@@ -0,0 +1,69 @@
+package com.mnzn.inter.runtime;
+
+import java.lang.invoke.*;
+import java.util.Arrays;
+import java.util.List;
+
+// 编译后的内插字符串 $"a{x}b{y}c", 每个内插字符串只在编译时构造一次
+// 由StringConcatFactory生成拼接方法, 执行时一次算出长度并复制, 不逐段拼接
+public final class StringTemplate {
+    // StringConcatFactory最多支持的参数个数
+    private static final int MAX_ARGS = 200;
+    private static final char TAG_ARG = '\1', TAG_CONST = '\2';
+
+    private final String[] texts; // 比参数多一个
+    private final MethodHandle concat; // (Object[])String, 参数过多时为null
+
+    public StringTemplate(List<String> texts) {
+        this.texts = texts.toArray(String[]::new);
+        this.concat = this.texts.length - 1 <= MAX_ARGS ? bootstrap(this.texts) : null;
+    }
+
+    private static MethodHandle bootstrap(String[] texts) {
+        int count = texts.length - 1;
+        StringBuilder recipe = new StringBuilder();
+        Object[] constants = Arrays.stream(texts).filter(StringTemplate::hasTag).toArray();
+        for (int i = 0; i <= count; i++) {
+            // 含有标记字符的文本作为常量参数传入
+            if (hasTag(texts[i])) recipe.append(TAG_CONST);
+            else recipe.append(texts[i]);
+            if (i < count) recipe.append(TAG_ARG);
+        }
+        MethodType type = MethodType.genericMethodType(count).changeReturnType(String.class);
+        try {
+            CallSite site = StringConcatFactory.makeConcatWithConstants(MethodHandles.lookup(), "format", type,
+                    recipe.toString(), constants);
+            return site.getTarget().asSpreader(Object[].class, count);
+        } catch (StringConcatException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean hasTag(String text) {
+        return text.indexOf(TAG_ARG) >= 0 || text.indexOf(TAG_CONST) >= 0;
+    }
+
+    public int argumentCount() {
+        return texts.length - 1;
+    }
+
+    public String apply(Object[] args) {
+        if (concat == null) {
+            StringBuilder sb = new StringBuilder(texts[0]);
+            for (int i = 0; i < args.length; i++) sb.append(args[i]).append(texts[i + 1]);
+            return sb.toString();
+        }
+        try {
+            return (String) concat.invokeExact(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "$\"" + String.join("{}", texts) + '"';
+    }
+}
@@ -0,0 +1,38 @@
+package com.mnzn.inter.runtime;
+
+// 字符串的运算, 字符串的值为String或Rope
+public final class Strings {
+    // 结果短于此长度时直接拼接为String, 否则构造Rope
+    private static final int ROPE_THRESHOLD = 64;
+    // 单个字符的字符串, 下标访问时共享
+    private static final String[] CHARS = new String[256];
+
+    static {
+        for (int i = 0; i < CHARS.length; i++) {
+            CHARS[i] = String.valueOf((char) i).intern();
+        }
+    }
+
+    private Strings() {
+    }
+
+    public static boolean isString(Object value) {
+        return value instanceof String || value instanceof Rope;
+    }
+
+    // 拼接, 非字符串的操作数按String.valueOf转换
+    public static Object concat(Object left, Object right) {
+        CharSequence l = left instanceof CharSequence s ? s : String.valueOf(left);
+        CharSequence r = right instanceof CharSequence s ? s : String.valueOf(right);
+        if (l.length() == 0) return r;
+        if (r.length() == 0) return l;
+        if (l.length() + r.length() < ROPE_THRESHOLD) return l.toString().concat(r.toString());
+        return new Rope(l, r);
+    }
+
+    // 第index个字符
+    public static String charAt(CharSequence value, int index) {
+        char c = value.charAt(index);
+        return c < CHARS.length ? CHARS[c] : String.valueOf(c);
+    }
+}
@@ -0,0 +1,129 @@
+package com.mnzn.inter.runtime;
+
+import com.mnzn.inter.type.Type;
+
+import java.math.BigInteger;
+
+// 按静态类型特化的运算, 操作数的类型由类型检查保证, 快速路径上只有一次instanceof判断, 不经过通用运算的类型分派
+// 操作数不是期望的类型时(静态类型有误)回退到通用的运算, 不会因类型转换失败而中断解释器
+// int的值溢出后会提升为BigInteger, 此时或再次溢出时回退到通用的运算; 溢出由结果的位判断, 不抛出异常
+public class TypedOps {
+    /// int
+    public static Object iadd(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) {
+            long r = a + b;
+            if (((a ^ r) & (b ^ r)) >= 0) return r;
+        }
+        return Operators.add(left, right);
+    }
+
+    public static Object isub(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) {
+            long r = a - b;
+            if (((a ^ b) & (a ^ r)) >= 0) return r;
+        }
+        return Operators.sub(left, right);
+    }
+
+    public static Object imul(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) {
+            long r = a * b;
+            // 128位乘积的高64位只是低64位的符号扩展时没有溢出
+            if (Math.multiplyHigh(a, b) == r >> 63) return r;
+        }
+        return Operators.mul(left, right);
+    }
+
+    // 除数为0和Long.MIN_VALUE / -1由通用的运算处理
+    public static Object idiv(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b && b != 0 && (b != -1 || a != Long.MIN_VALUE)) return a / b;
+        return Operators.div(left, right);
+    }
+
+    public static Object imod(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b && b != 0) return a % b;
+        return Operators.mod(left, right);
+    }
+
+    public static boolean ilt(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return a < b;
+        return Operators.lt(left, right);
+    }
+
+    public static boolean ile(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return a <= b;
+        return Operators.le(left, right);
+    }
+
+    public static boolean ieq(Object left, Object right) {
+        if (left instanceof Long a && right instanceof Long b) return (long) a == b;
+        return Operators.eq(left, right);
+    }
+
+    /// float
+    public static Object fadd(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a + b;
+        return Operators.add(left, right);
+    }
+
+    public static Object fsub(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a - b;
+        return Operators.sub(left, right);
+    }
+
+    public static Object fmul(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a * b;
+        return Operators.mul(left, right);
+    }
+
+    public static Object fdiv(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a / b;
+        return Operators.div(left, right);
+    }
+
+    public static Object fmod(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a % b;
+        return Operators.mod(left, right);
+    }
+
+    public static boolean flt(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a < b;
+        return Operators.lt(left, right);
+    }
+
+    public static boolean fle(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return a <= b;
+        return Operators.le(left, right);
+    }
+
+    public static boolean feq(Object left, Object right) {
+        if (left instanceof Double a && right instanceof Double b) return (double) a == b;
+        return Operators.eq(left, right);
+    }
+
+    /// string
+    public static Object concat(Object left, Object right) {
+        return Strings.concat(left, right);
+    }
+
+    // 将值转换为静态类型: int拓宽为float, 或检查object的值是否为该类型
+    public static Object cast(Type type, Object value) {
+        boolean ok = switch (type) {
+            case INT -> value instanceof Long || value instanceof BigInteger;
+            case FLOAT -> {
+                if (value instanceof Long || value instanceof BigInteger) {
+                    value = ((Number) value).doubleValue();
+                }
+                yield value instanceof Double;
+            }
+            case BOOL -> value instanceof Boolean;
+            case STRING -> Strings.isString(value);
+            default -> true;
+        };
+        if (!ok) {
+            throw new RuntimeException(String.format("Type error: expected %s but got %s", type,
+                    value == null ? "null" : value.getClass().getSimpleName()));
+        }
+        return value;
+    }
+}
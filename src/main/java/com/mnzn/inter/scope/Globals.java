@@ -0,0 +1,86 @@
+package com.mnzn.inter.scope;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+
+// 全局变量表, 在多次求值(交互执行)之间共享
+// 名字只在作用域解析时查找一次, 执行时按下标访问
+// 任务(spawn)可能与解析同时执行: 值按固定大小的块存放, 扩容只复制块的引用, 不会丢失其他线程同时写入的值
+// 每个值按volatile读写, 一个任务的赋值对其他任务立即可见; 自增和复合赋值(g += x)用CAS原子地更新
+public class Globals {
+    private static final int BLOCK_BITS = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final VarHandle VALUE = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[BLOCK_SIZE];
+    private volatile Object[][] values = {new Object[BLOCK_SIZE]};
+    private int size = 0;
+
+    // 查找全局变量的下标, 不存在时分配一个新的下标(值为未定义)
+    public int define(String name) {
+        Integer index = indexes.get(name);
+        if (index != null) return index;
+        synchronized (this) {
+            index = indexes.get(name);
+            if (index != null) return index;
+            if (size == names.length) {
+                Object[][] blocks = Arrays.copyOf(values, values.length + 1);
+                blocks[values.length] = new Object[BLOCK_SIZE];
+                values = blocks;
+                names = Arrays.copyOf(names, size + BLOCK_SIZE);
+            }
+            names[size] = name;
+            indexes.put(name, size);
+            return size++;
+        }
+    }
+
+    // 不存在时返回-1
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public Object get(int index) {
+        Object value = find(index);
+        if (value == null) {
+            throw new RuntimeException("Variable " + names[index] + " not found");
+        }
+        return value;
+    }
+
+    // 未定义时返回null
+    public Object find(int index) {
+        return VALUE.getVolatile(values[index >>> BLOCK_BITS], index & (BLOCK_SIZE - 1));
+    }
+
+    public Object set(int index, Object value) {
+        VALUE.setVolatile(values[index >>> BLOCK_BITS], index & (BLOCK_SIZE - 1), value);
+        return value;
+    }
+
+    // 原子地将值更新为op(原值, operand), 返回新的值
+    public Object update(int index, BinaryOperator<Object> op, Object operand) {
+        Object[] block = values[index >>> BLOCK_BITS];
+        int offset = index & (BLOCK_SIZE - 1);
+        while (true) {
+            Object old = VALUE.getVolatile(block, offset);
+            if (old == null) throw new RuntimeException("Variable " + names[index] + " not found");
+            Object value = op.apply(old, operand);
+            if (VALUE.compareAndSet(block, offset, old, value)) return value;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
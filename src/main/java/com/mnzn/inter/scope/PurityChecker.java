@@ -0,0 +1,88 @@
+package com.mnzn.inter.scope;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.TokenId;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// 纯函数检查: @memo函数的结果只由实参决定, 且没有副作用, 才能缓存
+// 函数体只能访问参数和自己的局部变量, 不能访问全局变量和捕获外层的变量
+// 只能调用自己和其他@memo函数, 不能调用内建函数(如print)和函数值
+// 不能创建数组, 对象和函数, 也不能给字段和数组元素赋值; 结果因此只能是数字, 布尔和字符串
+public class PurityChecker {
+    private final String name;
+    private final Resolution resolution;
+    private final Set<String> memoized;
+    private final Set<String> callees = new HashSet<>(); // 调用的其他@memo函数
+
+    private PurityChecker(String name, Resolution resolution, Set<String> memoized) {
+        this.name = name;
+        this.resolution = resolution;
+        this.memoized = memoized;
+    }
+
+    // function为已经解析过的func_stmt, memoized为已知的@memo函数名; 返回函数调用的其他@memo函数
+    // 这些函数被重新定义为非@memo函数时, 此函数不再是纯函数(由Resolver检查)
+    public static Set<String> check(ASTNode function, Resolution resolution, Set<String> memoized) {
+        String name = function.t(1, TokenId.class).getId();
+        PurityChecker checker = new PurityChecker(name, resolution, memoized);
+        checker.visit(function.c(function.size() - 1));
+        return checker.callees;
+    }
+
+    private void visit(ASTNode node) {
+        if (node.isLeaf()) {
+            if (node.tag() == TokenTag.Identifier && resolution.isBound(node)) {
+                Slot slot = resolution.slot(node);
+                if (slot.isGlobal() || slot.depth() > 0) {
+                    reject("it reads non-local variable " + node.t(TokenId.class).getId());
+                }
+            }
+            return;
+        }
+        switch (node.p().toString()) {
+            case "call_expr" -> {
+                ASTNode callee = node.c(0);
+                if (!callee.isLeaf() || callee.tag() != TokenTag.Identifier || resolution.isBound(callee)) {
+                    reject("it calls a function value");
+                }
+                String target = callee.t(TokenId.class).getId();
+                if (!target.equals(name)) {
+                    if (!memoized.contains(target)) reject("it calls " + target + ", which is not @memo");
+                    callees.add(target);
+                }
+                visit(node.c(2));
+            }
+            case "inline_expr" -> reject("it calls " + node.t(0, TokenId.class).getId() + ", which is not @memo");
+            case "func_stmt", "lambda_expr" -> reject("it defines a function");
+            // @parallel for的归约参数不是调用
+            case "annotated_stmt" -> {
+                ASTNode target = node.c(node.size() - 1);
+                if (target.is("func_stmt")) reject("it defines a function");
+                Resolver.reductions(node).forEach(reduction -> visit(Resolver.reductionTarget(reduction)));
+                visit(target);
+            }
+            case "yield_stmt" -> reject("it is a generator");
+            case "object_expr", "array_expr" -> reject("it creates an object or array");
+            case "ass_expr" -> {
+                if (!node.c(0).isLeaf()) reject("it assigns to a field or element");
+                node.getChildren().forEach(this::visit);
+            }
+            case "unary_expr" -> {
+                if ((node.tag(0) == TokenTag.SelfAdd || node.tag(0) == TokenTag.SelfSub) && !node.c(1).isLeaf()) {
+                    reject("it assigns to a field or element");
+                }
+                node.getChildren().forEach(this::visit);
+            }
+            // 字段名不是变量
+            case "field_expr" -> visit(node.c(0));
+            default -> node.getChildren().forEach(this::visit);
+        }
+    }
+
+    private void reject(String reason) {
+        throw new RuntimeException("Function " + name + " cannot be @memo: " + reason);
+    }
+}
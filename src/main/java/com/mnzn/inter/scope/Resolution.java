@@ -0,0 +1,93 @@
+package com.mnzn.inter.scope;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.lex.imp.TokenId;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// 作用域解析的结果: 语法树中每个标识符结点对应的位置, 以及顶层帧和每个函数的帧的大小
+// 函数(func_stmt, lambda_expr)还记录其闭包捕获的变量在定义处的帧中的位置, @memo函数还记录缓存的上限
+// 含有yield的函数是生成器函数
+public class Resolution {
+    private final Map<ASTNode, Slot> slots = new IdentityHashMap<>();
+    private final Map<ASTNode, Integer> functionSizes = new IdentityHashMap<>();
+    private final Map<ASTNode, Slot[]> captures = new IdentityHashMap<>();
+    private final Map<ASTNode, MemoCache.Limits> memos = new IdentityHashMap<>();
+    private final Set<ASTNode> generators = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Globals globals;
+    private int frameSize;
+
+    Resolution(Globals globals) {
+        this.globals = globals;
+    }
+
+    void bind(ASTNode identifier, Slot slot) {
+        slots.put(identifier, slot);
+    }
+
+    void setCaptures(ASTNode function, Slot[] slots) {
+        captures.put(function, slots);
+    }
+
+    void setMemo(ASTNode function, MemoCache.Limits limits) {
+        memos.put(function, limits);
+    }
+
+    void setGenerator(ASTNode function) {
+        generators.add(function);
+    }
+
+    void setFrameSize(int frameSize) {
+        this.frameSize = frameSize;
+    }
+
+    void setFrameSize(ASTNode function, int frameSize) {
+        functionSizes.put(function, frameSize);
+    }
+
+    // 标识符结点对应的位置
+    public Slot slot(ASTNode identifier) {
+        Slot slot = slots.get(identifier);
+        if (slot == null) {
+            throw new IllegalStateException("Unresolved identifier " + identifier.t(TokenId.class).getId());
+        }
+        return slot;
+    }
+
+    // 标识符是否绑定到了变量; 调用 name(args) 中的name没有绑定时为函数名
+    public boolean isBound(ASTNode identifier) {
+        return slots.containsKey(identifier);
+    }
+
+    public Globals globals() {
+        return globals;
+    }
+
+    public int frameSize() {
+        return frameSize;
+    }
+
+    // 函数定义结点(func_stmt, lambda_expr)对应的帧的大小
+    public int frameSize(ASTNode function) {
+        return functionSizes.get(function);
+    }
+
+    // 函数的闭包依次捕获的变量在定义处的帧中的位置; 为null时函数不逃逸, 直接以定义处的帧为外层帧
+    public Slot[] captures(ASTNode function) {
+        return captures.get(function);
+    }
+
+    // @memo函数(func_stmt)的缓存上限, 其他函数为null
+    public MemoCache.Limits memo(ASTNode function) {
+        return memos.get(function);
+    }
+
+    // 函数定义结点是否为生成器函数, 调用时不执行函数体, 而是返回生成器
+    public boolean isGenerator(ASTNode function) {
+        return generators.contains(function);
+    }
+}
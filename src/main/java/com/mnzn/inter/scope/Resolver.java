@@ -0,0 +1,456 @@
+package com.mnzn.inter.scope;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.TokenId;
+import com.mnzn.lex.imp.TokenInt;
+
+import java.util.*;
+
+// 作用域解析: 将每个标识符绑定到(depth, slot), 执行时按下标访问帧, 不再按名字查找
+// 块({})中let定义的变量分配在所属函数的帧中; 不在任何块中定义或找不到定义的变量为全局变量
+// 函数的参数依次分配在函数帧的开头; 函数名不是变量, 在函数表中查找, 但同名的变量优先
+// 闭包: 函数(func_stmt, lambda_expr)只捕获实际用到的外层局部变量, 定义时复制到扁平的闭包记录中, 在函数中为(1, k)
+// 被捕获且被赋值的变量放在共享的存储单元中(boxed), 其余被捕获的变量直接复制值
+// 只在定义的块中被直接调用的局部lambda(let f = func ...; f(x);)不逃逸, 不创建闭包记录, 直接以定义处的帧为外层帧
+// @memo函数记录缓存的上限, 并检查是否为纯函数(PurityChecker); 被@memo函数调用的@memo函数不能重新定义为非@memo函数
+// for的迭代器存放在帧中的临时位置(绑定到for关键字结点), 生成器暂停时随帧保留; 循环变量每轮重新定义
+// @parallel for的归约变量在循环体中绑定到帧中的私有位置(绑定到归约表达式结点), 循环体不能给循环外的其他变量赋值
+public class Resolver {
+    // 一个函数的作用域, 所有块共享同一个帧
+    private static class FunctionScope {
+        private final FunctionScope enclosing;
+        private final boolean linked; // 不逃逸的lambda, 外层帧为定义处的帧
+        private boolean generator = false; // 函数体中有yield
+        private final Deque<Map<String, Integer>> blocks = new ArrayDeque<>();
+        private int size = 0; // 帧的大小
+        // 捕获的变量 => 闭包记录中的下标, 以及它们在外层帧中的位置
+        private final Map<Variable, Integer> captures = new HashMap<>();
+        private final List<Slot> sources = new ArrayList<>();
+
+        FunctionScope(FunctionScope enclosing, boolean linked) {
+            this.enclosing = enclosing;
+            this.linked = linked;
+        }
+
+        Integer lookup(String name) {
+            for (Map<String, Integer> block : blocks) {
+                Integer index = block.get(name);
+                if (index != null) return index;
+            }
+            return null;
+        }
+    }
+
+    // 一个局部变量, 由定义它的函数和帧中的下标确定
+    private record Variable(FunctionScope scope, int index) {
+    }
+
+    // 查找的结果, 全局变量的variable为null
+    private record Reference(Slot slot, Variable variable) {
+    }
+
+    private final Globals globals;
+    private final Set<String> globalVariables = new HashSet<>(); // 顶层let定义过的名字, 在多次求值之间保留
+    private final Set<String> memoized = new HashSet<>(); // 最近一次以@memo定义的函数名, 在多次求值之间保留
+    private final Map<String, Set<String>> memoCallees = new HashMap<>(); // @memo函数 => 它调用的其他@memo函数
+    private FunctionScope function;
+    private Map<String, Integer> inline; // 内联的函数体中参数的位置, 不在内联的函数体中时为null
+    private final Map<String, Slot> hoisted = new HashMap<>(); // 循环不变量的临时变量
+    private final Set<ASTNode> linked = Collections.newSetFromMap(new IdentityHashMap<>()); // 不逃逸的lambda
+    // 绑定到局部变量的标识符, 以及被闭包捕获的和被赋值的变量, 两者都是的变量需要存储单元
+    private final Map<ASTNode, Variable> uses = new IdentityHashMap<>();
+    private final Set<Variable> captured = new HashSet<>();
+    private final Set<Variable> assigned = new HashSet<>();
+    private Resolution resolution;
+
+    public Resolver(Globals globals) {
+        this.globals = globals;
+    }
+
+    public Resolution resolve(ASTNode root) {
+        resolution = new Resolution(globals);
+        function = new FunctionScope(null, false);
+        inline = null;
+        hoisted.clear();
+        linked.clear();
+        uses.clear();
+        captured.clear();
+        assigned.clear();
+        // 同一次求值中的@memo函数可以互相调用
+        annotations(root);
+        visit(root);
+        resolution.setFrameSize(function.size);
+        // 所有引用确定后才知道哪些变量需要存储单元
+        uses.forEach((node, variable) -> {
+            if (captured.contains(variable) && assigned.contains(variable)) {
+                resolution.bind(node, resolution.slot(node).toBoxed());
+            }
+        });
+        return resolution;
+    }
+
+    private void visit(ASTNode node) {
+        if (node.isLeaf()) {
+            if (node.tag() == TokenTag.Identifier) {
+                Reference reference = lookup(node.t(TokenId.class).getId());
+                resolution.bind(node, reference.slot);
+                if (reference.variable != null) uses.put(node, reference.variable);
+            }
+            return;
+        }
+        switch (node.p().toString()) {
+            case "stmt_seq" -> {
+                List<ASTNode> items = node.flatten("stmt_seq", 1);
+                for (int i = 0; i < items.size(); i++) {
+                    ASTNode item = items.get(i);
+                    // 局部的 let f = func ...; 之后只直接调用f时, lambda不逃逸
+                    if (function.blocks.peek() != null && item.is("let_stmt") && item.c(item.size() - 2).is("lambda_expr")
+                            && !escapes(item.t(1, TokenId.class).getId(), items.subList(i + 1, items.size()))) {
+                        linked.add(item.c(item.size() - 2));
+                    }
+                    visit(item);
+                }
+            }
+            case "compound_stmt" -> {
+                function.blocks.push(new HashMap<>());
+                visit(node.c(1));
+                function.blocks.pop();
+            }
+            // let id [: type] = expr ; 初始值中的同名变量指向外层的定义
+            case "let_stmt" -> {
+                visit(node.c(node.size() - 2));
+                declare(node.c(1));
+            }
+            // func id ( params ) [: type] { body }
+            case "func_stmt" -> {
+                unmemo(node.t(1, TokenId.class).getId());
+                function(node, false);
+            }
+            // @name [( args )] func_stmt
+            case "annotated_stmt" -> annotated(node);
+            // func ( params ) [: type] { body }
+            case "lambda_expr" -> function(node, linked.contains(node));
+            // 内联的函数调用: 实参在调用处解析, 参数分配在当前函数的帧中
+            case "inline_expr" -> {
+                visit(node.c(2));
+                Map<String, Integer> params = new HashMap<>();
+                for (ASTNode param : node.c(1).getChildren()) {
+                    ASTNode id = param.isLeaf() ? param : param.c(0);
+                    params.put(id.t(TokenId.class).getId(), function.size);
+                    resolution.bind(id, new Slot(0, function.size++));
+                }
+                Map<String, Integer> outer = inline;
+                inline = params;
+                visit(node.c(3));
+                inline = outer;
+            }
+            // 循环不变量的临时变量分配在当前函数的帧中
+            case "loop_stmt" -> {
+                for (ASTNode temp : node.c(0).getChildren()) {
+                    Slot slot = new Slot(0, function.size++);
+                    hoisted.put(temp.t(TokenId.class).getId(), slot);
+                    resolution.bind(temp, slot);
+                }
+                for (int i = 1; i < node.size(); i++) visit(node.c(i));
+            }
+            case "hoist_expr" -> {
+                resolution.bind(node.c(0), hoisted.get(node.t(0, TokenId.class).getId()));
+                visit(node.c(1));
+            }
+            case "return_stmt" -> {
+                if (function.enclosing == null) throw new RuntimeException("return outside function");
+                node.getChildren().forEach(this::visit);
+            }
+            case "yield_stmt" -> {
+                if (function.enclosing == null) throw new RuntimeException("yield outside function");
+                function.generator = true;
+                visit(node.c(1));
+            }
+            // for ( let id [: type] in expr ) stmt, 被遍历的表达式中的同名变量指向外层的定义
+            case "for_stmt" -> {
+                visit(node.c(node.size() - 3));
+                resolution.bind(node.c(0), new Slot(0, function.size++));
+                function.blocks.push(new HashMap<>());
+                declare(node.c(3));
+                visit(node.c(node.size() - 1));
+                function.blocks.pop();
+            }
+            // 字段名不是变量
+            case "field_expr" -> visit(node.c(0));
+            // 函数名在函数表中查找, 同名的变量优先, 此时调用变量的值
+            case "call_expr" -> {
+                ASTNode callee = node.c(0);
+                if (!callee.isLeaf() || callee.tag() != TokenTag.Identifier || isVariable(callee.t(TokenId.class).getId())) {
+                    visit(callee);
+                }
+                visit(node.c(2));
+            }
+            case "ass_expr" -> {
+                node.getChildren().forEach(this::visit);
+                assign(node.c(0));
+            }
+            case "unary_expr" -> {
+                node.getChildren().forEach(this::visit);
+                if (node.tag(0) == TokenTag.SelfAdd || node.tag(0) == TokenTag.SelfSub) assign(node.c(1));
+            }
+            default -> node.getChildren().forEach(this::visit);
+        }
+    }
+
+    // 函数定义, linked为true时不创建闭包记录
+    private void function(ASTNode node, boolean linked) {
+        function = new FunctionScope(function, linked);
+        function.blocks.push(new HashMap<>());
+        params(node).forEach(param -> declare(param.isLeaf() ? param : param.c(0)));
+        visit(node.c(node.size() - 1));
+        resolution.setFrameSize(node, function.size);
+        resolution.setCaptures(node, linked ? null : function.sources.toArray(Slot[]::new));
+        if (function.generator) resolution.setGenerator(node);
+        function = function.enclosing;
+    }
+
+    private void annotations(ASTNode node) {
+        if (node.isLeaf()) return;
+        if (node.is("annotated_stmt") && node.t(1, TokenId.class).getId().equals("memo")
+                && node.c(node.size() - 1).is("func_stmt")) {
+            memoized.add(node.c(node.size() - 1).t(1, TokenId.class).getId());
+        }
+        node.getChildren().forEach(this::annotations);
+    }
+
+    // @memo和@memo(entries[, weight])注解函数, 上限为整数字面量; @parallel和@parallel(reductions)注解for语句
+    private void annotated(ASTNode node) {
+        String annotation = node.t(1, TokenId.class).getId();
+        ASTNode target = node.c(node.size() - 1);
+        switch (annotation) {
+            case "memo" -> {
+                if (!target.is("func_stmt")) throw new RuntimeException("@memo can only annotate a function");
+                memo(node);
+            }
+            case "parallel" -> {
+                if (!target.is("for_stmt")) throw new RuntimeException("@parallel can only annotate a for statement");
+                parallel(node);
+            }
+            default -> throw new RuntimeException("Unknown annotation @" + annotation);
+        }
+    }
+
+    private void memo(ASTNode node) {
+        ASTNode function = node.c(node.size() - 1);
+        MemoCache.Limits limits = MemoCache.Limits.DEFAULT;
+        if (node.size() == 6) {
+            List<ASTNode> args = node.c(3).is("expr_seq") ? node.c(3).flatten("expr_seq", 2) : List.of(node.c(3));
+            if (args.size() > 2 || args.stream().anyMatch(arg -> !arg.isLeaf() || arg.tag() != TokenTag.IntLiteral)) {
+                throw new RuntimeException("@memo expects (entries[, weight]) as integer literals");
+            }
+            long entries = args.get(0).t(TokenInt.class).getValue();
+            long weight = args.size() == 2 ? args.get(1).t(TokenInt.class).getValue() : limits.weight();
+            limits = new MemoCache.Limits((int) Math.min(entries, Integer.MAX_VALUE), weight);
+        }
+        String name = function.t(1, TokenId.class).getId();
+        resolution.setMemo(function, limits);
+        memoized.add(name);
+        function(function, false);
+        memoCallees.put(name, PurityChecker.check(function, resolution, memoized));
+    }
+
+    // name被重新定义为非@memo函数; 仍调用它的@memo函数会缓存有副作用的调用的结果, 因此拒绝
+    private void unmemo(String name) {
+        if (memoized.contains(name)) {
+            memoCallees.forEach((caller, callees) -> {
+                if (!caller.equals(name) && memoized.contains(caller) && callees.contains(name)) {
+                    throw new RuntimeException(String.format(
+                            "Function %s is called by @memo function %s and must stay @memo; redefine %s first", name, caller, caller));
+                }
+            });
+        }
+        memoized.remove(name);
+        memoCallees.remove(name);
+    }
+
+    // @parallel [( reductions )] for ( let id [: type] in expr ) stmt
+    private void parallel(ASTNode node) {
+        ASTNode loop = node.c(node.size() - 1);
+        visit(loop.c(loop.size() - 3));
+        resolution.bind(loop.c(0), new Slot(0, function.size++));
+        int base = function.size; // 在此之后分配的位置属于循环
+        Map<String, Integer> block = new HashMap<>();
+        for (ASTNode reduction : reductions(node)) {
+            ASTNode target = reductionTarget(reduction);
+            String name = target.t(TokenId.class).getId();
+            if (block.containsKey(name)) throw new RuntimeException("Variable " + name + " is reduced twice");
+            Reference reference = lookup(name);
+            if (reference.variable == null && !globalVariables.contains(name)) {
+                throw new RuntimeException("Unknown reduction variable " + name);
+            }
+            resolution.bind(target, reference.slot);
+            if (reference.variable != null) {
+                uses.put(target, reference.variable);
+                assign(target);
+            }
+            uses.put(reduction, new Variable(function, function.size));
+            block.put(name, function.size);
+            resolution.bind(reduction, new Slot(0, function.size++));
+        }
+        function.blocks.push(block);
+        declare(loop.c(3));
+        visit(loop.c(loop.size() - 1));
+        function.blocks.pop();
+        checkParallel(loop.c(loop.size() - 1), base);
+    }
+
+    // @parallel的参数: +x, min(x), max(x); 没有参数时为空
+    public static List<ASTNode> reductions(ASTNode node) {
+        if (node.size() != 6) return List.of();
+        return node.c(3).is("expr_seq") ? node.c(3).flatten("expr_seq", 2) : List.of(node.c(3));
+    }
+
+    // 归约的运算: + min max
+    public static String reductionOperator(ASTNode reduction) {
+        if (reduction.is("unary_expr") && reduction.tag(0) == TokenTag.Add && isIdentifier(reduction.c(1))) return "+";
+        if ((reduction.is("call_expr") || reduction.is("inline_expr")) && reduction.c(0).isLeaf() && isIdentifier(reduction.c(2))) {
+            String name = reduction.t(0, TokenId.class).getId();
+            if (name.equals("min") || name.equals("max")) return name;
+        }
+        throw new RuntimeException("@parallel expects reductions +x, min(x) or max(x)");
+    }
+
+    // 归约的变量
+    public static ASTNode reductionTarget(ASTNode reduction) {
+        reductionOperator(reduction);
+        return reduction.c(reduction.is("unary_expr") ? 1 : 2);
+    }
+
+    private static boolean isIdentifier(ASTNode node) {
+        return node.isLeaf() && node.tag() == TokenTag.Identifier;
+    }
+
+    // 并行的循环体中只能给循环中定义的变量(位置不小于base)赋值, 不能return和yield; 其中定义的函数不在此检查
+    private void checkParallel(ASTNode node, int base) {
+        if (node.isLeaf()) return;
+        ASTNode target = null;
+        switch (node.p().toString()) {
+            case "func_stmt", "lambda_expr", "inline_expr" -> {
+                return;
+            }
+            case "return_stmt" -> throw new RuntimeException("parallel for cannot return");
+            case "yield_stmt" -> throw new RuntimeException("parallel for cannot yield");
+            case "ass_expr" -> target = node.c(0);
+            case "unary_expr" -> {
+                if (node.tag(0) == TokenTag.SelfAdd || node.tag(0) == TokenTag.SelfSub) target = node.c(1);
+            }
+            case "annotated_stmt" -> {
+                for (ASTNode reduction : reductions(node)) checkParallelTarget(reductionTarget(reduction), base);
+            }
+            default -> {
+            }
+        }
+        if (target != null && target.isLeaf()) checkParallelTarget(target, base);
+        node.getChildren().forEach(child -> checkParallel(child, base));
+    }
+
+    private void checkParallelTarget(ASTNode target, int base) {
+        Slot slot = resolution.slot(target);
+        if (slot.isGlobal() || slot.depth() > 0 || slot.index() < base) {
+            throw new RuntimeException(String.format("parallel for cannot assign to outer variable %s, declare it as a reduction",
+                    target.t(TokenId.class).getId()));
+        }
+    }
+
+    // 函数定义的形参列表, 每一项为标识符或 id : type
+    public static List<ASTNode> params(ASTNode function) {
+        ASTNode params = function.c(function.is("lambda_expr") ? 2 : 3);
+        if (params.is("param_seq")) {
+            return params.flatten("param_seq", 2);
+        }
+        return List.of(params);
+    }
+
+    // 函数定义声明的返回类型结点, 没有声明时为null
+    public static ASTNode returnType(ASTNode function) {
+        int size = function.is("lambda_expr") ? 7 : 8;
+        return function.size() == size ? function.c(size - 2) : null;
+    }
+
+    private void declare(ASTNode identifier) {
+        String name = identifier.t(TokenId.class).getId();
+        Map<String, Integer> block = function.blocks.peek();
+        Slot slot;
+        if (block == null) {
+            // 顶层的定义在多次求值之间保留
+            slot = Slot.global(globals.define(name));
+            globalVariables.add(name);
+        } else {
+            if (block.containsKey(name)) {
+                throw new RuntimeException("Variable " + name + " is already defined in this scope");
+            }
+            block.put(name, function.size);
+            uses.put(identifier, new Variable(function, function.size));
+            slot = new Slot(0, function.size++);
+        }
+        resolution.bind(identifier, slot);
+    }
+
+    // 被赋值的局部变量; 在不逃逸的lambda中给外层变量赋值时也使用存储单元, 类型检查据此不假定其类型
+    private void assign(ASTNode target) {
+        if (!target.isLeaf()) return;
+        Variable variable = uses.get(target);
+        if (variable == null) return;
+        assigned.add(variable);
+        if (resolution.slot(target).depth() > 0) captured.add(variable);
+    }
+
+    // 调用 name(args) 中的name是否为变量
+    private boolean isVariable(String name) {
+        if (inline != null ? inline.containsKey(name) : find(function, name) != null) return true;
+        return globalVariables.contains(name);
+    }
+
+    // 由内向外查找定义
+    // 内联的函数体中只有参数和全局变量
+    private Reference lookup(String name) {
+        if (inline != null) {
+            Integer index = inline.get(name);
+            return new Reference(index != null ? new Slot(0, index) : Slot.global(globals.define(name)), null);
+        }
+        Reference reference = find(function, name);
+        return reference != null ? reference : new Reference(Slot.global(globals.define(name)), null);
+    }
+
+    // 在scope中查找局部变量, 位置相对于scope的帧
+    // 跨过不逃逸的lambda时depth加1; 跨过其他函数时变量加入该函数的闭包记录
+    private Reference find(FunctionScope scope, String name) {
+        Integer index = scope.lookup(name);
+        if (index != null) return new Reference(new Slot(0, index), new Variable(scope, index));
+        if (scope.enclosing == null) return null;
+        Reference outer = find(scope.enclosing, name);
+        if (outer == null) return null;
+        if (scope.linked) return new Reference(new Slot(outer.slot.depth() + 1, outer.slot.index()), outer.variable);
+        captured.add(outer.variable);
+        Integer k = scope.captures.get(outer.variable);
+        if (k == null) {
+            k = scope.sources.size();
+            scope.captures.put(outer.variable, k);
+            scope.sources.add(outer.slot);
+        }
+        return new Reference(new Slot(1, k), outer.variable);
+    }
+
+    // 之后的语句中除了直接调用外是否还用到了名字name; 其他函数中用到时也视为逃逸
+    private static boolean escapes(String name, List<ASTNode> nodes) {
+        return nodes.stream().anyMatch(node -> escapes(name, node, false));
+    }
+
+    private static boolean escapes(String name, ASTNode node, boolean nested) {
+        if (node.isLeaf()) return node.tag() == TokenTag.Identifier && node.t(TokenId.class).getId().equals(name);
+        if (node.is("func_stmt") || node.is("lambda_expr")) nested = true;
+        if (node.is("field_expr")) return escapes(name, node.c(0), nested);
+        if (!nested && node.is("call_expr") && node.c(0).isLeaf()) return escapes(name, node.c(2), false);
+        for (ASTNode child : node.getChildren()) {
+            if (escapes(name, child, nested)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mnzn.inter.scope;
+
+// 变量的位置, 由作用域解析得到
+// depth为向外跨过的函数帧数, index为帧中的下标; depth为GLOBAL时index为全局变量表的下标
+// boxed: 变量被闭包捕获且会被修改, 帧中保存的是共享的存储单元(Box), 访问时经过存储单元
+public record Slot(int depth, int index, boolean boxed) {
+    public static final int GLOBAL = -1;
+
+    public Slot(int depth, int index) {
+        this(depth, index, false);
+    }
+
+    public static Slot global(int index) {
+        return new Slot(GLOBAL, index);
+    }
+
+    public boolean isGlobal() {
+        return depth == GLOBAL;
+    }
+
+    // 同一位置经过存储单元访问
+    public Slot toBoxed() {
+        return new Slot(depth, index, true);
+    }
+
+    @Override
+    public String toString() {
+        return (isGlobal() ? "global#" + index : depth + ":" + index) + (boxed ? "&" : "");
+    }
+}
@@ -0,0 +1,41 @@
+package com.mnzn.inter.type;
+
+import com.mnzn.lex.TokenTag;
+
+// 静态类型, ANY表示类型在执行时才能确定(object)
+public enum Type {
+    INT("int"),
+    FLOAT("float"),
+    BOOL("bool"),
+    STRING("string"),
+    ANY("object"),
+    VOID("void");
+
+    private final String name;
+
+    Type(String name) {
+        this.name = name;
+    }
+
+    // 类型关键字对应的类型
+    public static Type of(TokenTag tag) {
+        return switch (tag) {
+            case IntT -> INT;
+            case FloatT -> FLOAT;
+            case BoolT -> BOOL;
+            case StringT -> STRING;
+            case ObjectT -> ANY;
+            case VoidT -> VOID;
+            default -> throw new IllegalArgumentException("Not a type keyword: " + tag);
+        };
+    }
+
+    public boolean isNumber() {
+        return this == INT || this == FLOAT;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
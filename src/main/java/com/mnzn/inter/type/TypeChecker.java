@@ -0,0 +1,460 @@
+package com.mnzn.inter.type;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Resolver;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.TokenBool;
+import com.mnzn.lex.imp.TokenId;
+
+import java.util.*;
+
+// 类型检查: 推导每个表达式的静态类型, 在执行前报告类型错误
+// let可以声明类型(let b : int = 10), 没有声明时取初始值的类型; 没有用let定义的变量为object
+// 结果记录每个运算按哪种类型执行, 以及int到float的拓宽和object到具体类型的检查
+// 函数可以在多次求值之间重新定义, 调用的结果为object; 返回值按声明的返回类型检查, 声明了返回类型的函数不能执行到末尾
+// 函数体在本次求值的顶层语句之后检查, 此时let定义的全局变量的类型都已确定, 函数中对它们的赋值按其类型检查
+// 之前的求值中被函数赋值时类型未知的全局变量, 之后用let定义时为object
+// 闭包可能修改的变量(boxed)和捕获的变量为object
+// 生成器函数不能声明返回类型, 也不能返回值; for的循环变量可以声明元素的类型, 每个元素按其检查
+// @parallel for的归约变量为数字(+也可以是字符串)
+public class TypeChecker {
+    // 全局变量的类型, 在多次求值之间保留
+    private final Map<Integer, Type> globalTypes = new HashMap<>();
+    // 本次求值中定义的全局变量, 检查通过后才加入globalTypes
+    private final Map<Integer, Type> pendingGlobals = new HashMap<>();
+    // 在函数中被赋值, 且赋值时类型未知的全局变量, 在多次求值之间保留
+    private final Set<Integer> untypedWrites = new HashSet<>();
+    private final Set<Integer> pendingWrites = new HashSet<>();
+    private final Deque<ASTNode> bodies = new ArrayDeque<>(); // 待检查的函数体
+    private Map<Slot, Type> locals = new HashMap<>(); // 当前函数的局部变量
+    private Type returnType;                           // 当前函数的返回类型, 不在函数中时为null
+    private boolean generator;                         // 当前函数是否为生成器函数
+    private boolean parallelFor;                       // 下一个for语句是否为@parallel for
+    private final List<String> errors = new ArrayList<>();
+    private Resolution resolution;
+    private TypeInfo info;
+
+    public TypeInfo check(ASTNode root, Resolution resolution) {
+        this.resolution = resolution;
+        this.info = new TypeInfo();
+        pendingGlobals.clear();
+        pendingWrites.clear();
+        bodies.clear();
+        locals.clear();
+        returnType = null;
+        generator = false;
+        parallelFor = false;
+        errors.clear();
+        type(root);
+        while (!bodies.isEmpty()) body(bodies.poll());
+        if (!errors.isEmpty()) {
+            throw new RuntimeException("Type error: " + String.join("\n            ", errors));
+        }
+        globalTypes.putAll(pendingGlobals);
+        untypedWrites.addAll(pendingWrites);
+        return info;
+    }
+
+    /// 表达式的类型, 语句为void
+    private Type type(ASTNode node) {
+        if (node.isLeaf()) return leaf(node);
+        return switch (node.p().toString()) {
+            case "stmt_seq" -> {
+                node.flatten("stmt_seq", 1).forEach(this::type);
+                yield Type.VOID;
+            }
+            case "expr_stmt" -> {
+                if (node.size() != 1) type(node.c(0));
+                yield Type.VOID;
+            }
+            case "compound_stmt" -> {
+                type(node.c(1));
+                yield Type.VOID;
+            }
+            case "let_stmt" -> {
+                declare(node);
+                yield Type.VOID;
+            }
+            case "func_stmt" -> {
+                function(node);
+                yield Type.VOID;
+            }
+            // @memo的参数是常量, 由作用域解析检查
+            case "annotated_stmt" -> {
+                if (node.c(node.size() - 1).is("for_stmt")) parallel(node);
+                yield type(node.c(node.size() - 1));
+            }
+            // 函数值的类型为object
+            case "lambda_expr" -> {
+                function(node);
+                yield Type.ANY;
+            }
+            case "inline_expr" -> inline(node);
+            case "return_stmt" -> {
+                if (node.size() == 3) {
+                    ASTNode value = node.c(1);
+                    Type actual = type(value);
+                    if (generator) error("generator cannot return a value");
+                    else if (returnType == Type.VOID) error("void function cannot return a value");
+                    else coerce(value, actual, returnType, "return value");
+                } else if (returnType != Type.VOID && returnType != Type.ANY) {
+                    error("missing return value of %s", returnType);
+                }
+                yield Type.VOID;
+            }
+            // 条件可以是任意类型
+            case "while_stmt" -> {
+                type(node.c(1));
+                type(node.c(2));
+                yield Type.VOID;
+            }
+            // for ( let id [: type] in expr ) stmt
+            case "for_stmt" -> {
+                ASTNode iterable = node.c(node.size() - 3);
+                boolean parallel = parallelFor;
+                parallelFor = false;
+                Type type = type(iterable);
+                if (parallel && type != Type.ANY) error("parallel for cannot iterate over %s", type);
+                else if (type != Type.STRING && type != Type.ANY) error("cannot iterate over %s", type);
+                Type element = node.size() == 10 ? Type.of(node.tag(5)) : type == Type.STRING ? Type.STRING : Type.ANY;
+                if (element == Type.VOID) error("variable %s cannot be void", node.t(3, TokenId.class).getId());
+                Slot slot = resolution.slot(node.c(3));
+                locals.put(slot, slot.boxed() ? Type.ANY : element);
+                type(node.c(node.size() - 1));
+                yield Type.VOID;
+            }
+            case "yield_stmt" -> {
+                if (type(node.c(1)) == Type.VOID) error("cannot yield void");
+                yield Type.VOID;
+            }
+            // 临时变量和归纳变量只在执行时使用
+            case "loop_stmt" -> {
+                type(node.c(1));
+                yield Type.VOID;
+            }
+            case "hoist_expr" -> type(node.c(1));
+            case "if_open_stmt", "if_matched_stmt" -> {
+                type(node.c(1));
+                type(node.c(2));
+                if (node.size() == 5) type(node.c(4));
+                yield Type.VOID;
+            }
+            case "field_expr" -> {
+                type(node.c(0));
+                yield Type.ANY;
+            }
+            case "sub_expr" -> {
+                Type object = type(node.c(0));
+                Type index = type(node.c(2));
+                // 对象以字符串为键
+                if (index != Type.INT && index != Type.STRING && index != Type.ANY) error("index must be int or string, got %s", index);
+                yield object == Type.STRING ? Type.STRING : Type.ANY;
+            }
+            // type [ length ]
+            case "array_expr" -> {
+                Type length = type(node.c(2));
+                if (length != Type.INT && length != Type.ANY) error("array length must be int, got %s", length);
+                else if (length == Type.ANY) info.setCast(node.c(2), Type.INT);
+                if (Type.of(node.tag(0)) == Type.VOID) error("array element cannot be void");
+                yield Type.ANY;
+            }
+            // 内插表达式可以是任意类型
+            case "format_expr" -> {
+                node.getChildren().forEach(this::type);
+                yield Type.STRING;
+            }
+            case "format_tail" -> {
+                node.getChildren().forEach(this::type);
+                yield Type.VOID;
+            }
+            // 调用变量或表达式的值时先求值被调用者
+            case "call_expr" -> {
+                if (!node.c(0).isLeaf() || resolution.isBound(node.c(0))) type(node.c(0));
+                ASTNode args = node.c(2);
+                if (args.is("expr_seq")) args.flatten("expr_seq", 2).forEach(this::type);
+                else type(args);
+                yield Type.ANY;
+            }
+            case "parent_expr" -> type(node.c(1));
+            case "unary_expr" -> unary(node);
+            case "binary_expr_*",
+                    "binary_expr_+",
+                    "binary_expr_<<",
+                    "binary_expr_<=",
+                    "binary_expr_==",
+                    "binary_expr_&",
+                    "binary_expr_^",
+                    "binary_expr_|",
+                    "binary_expr_&&",
+                    "binary_expr_||" -> binary(node, node.tag(1), node.c(0), type(node.c(0)), node.c(2), type(node.c(2)));
+            case "cond_expr" -> {
+                type(node.c(0));
+                Type then = type(node.c(2));
+                Type other = type(node.c(4));
+                if (then == other) yield then;
+                if (then.isNumber() && other.isNumber()) {
+                    info.setCast(then == Type.INT ? node.c(2) : node.c(4), Type.FLOAT);
+                    yield Type.FLOAT;
+                }
+                yield Type.ANY;
+            }
+            case "ass_expr" -> assign(node);
+            default -> {
+                node.getChildren().forEach(this::type);
+                yield Type.ANY;
+            }
+        };
+    }
+
+    private Type leaf(ASTNode node) {
+        return switch (node.tag()) {
+            case Identifier -> variable(resolution.slot(node));
+            case IntLiteral -> Type.INT;
+            case FloatLiteral -> Type.FLOAT;
+            case BoolLiteral -> Type.BOOL;
+            case StringLiteral -> Type.STRING;
+            default -> Type.VOID;
+        };
+    }
+
+    /// 变量
+    private Type variable(Slot slot) {
+        if (slot.isGlobal()) {
+            Type type = pendingGlobals.get(slot.index());
+            return type != null ? type : globalTypes.getOrDefault(slot.index(), Type.ANY);
+        }
+        return locals.getOrDefault(slot, Type.ANY);
+    }
+
+    // @parallel for: 归约变量的私有位置与变量同类型, 只能遍历range和数组
+    private void parallel(ASTNode node) {
+        for (ASTNode reduction : Resolver.reductions(node)) {
+            String op = Resolver.reductionOperator(reduction);
+            Type type = variable(resolution.slot(Resolver.reductionTarget(reduction)));
+            boolean valid = type == Type.ANY || type.isNumber() || op.equals("+") && type == Type.STRING;
+            if (!valid) error("cannot reduce %s with %s", type, op);
+            Slot slot = resolution.slot(reduction);
+            locals.put(slot, slot.boxed() ? Type.ANY : type);
+        }
+        parallelFor = true;
+    }
+
+    // let id [: type] = expr ;
+    private void declare(ASTNode node) {
+        ASTNode value = node.c(node.size() - 2);
+        Type actual = type(value);
+        String name = node.t(1, TokenId.class).getId();
+        Type declared;
+        if (node.size() == 7) {
+            declared = Type.of(node.tag(3));
+            if (declared == Type.VOID) error("variable %s cannot be void", name);
+            coerce(value, actual, declared, "variable " + name);
+        } else {
+            if (actual == Type.VOID) error("cannot infer the type of %s", name);
+            declared = actual;
+        }
+        Slot slot = resolution.slot(node.c(1));
+        if (!slot.isGlobal()) locals.put(slot, slot.boxed() ? Type.ANY : declared);
+        else if (untypedWrites.contains(slot.index())) pendingGlobals.put(slot.index(), Type.ANY);
+        else pendingGlobals.put(slot.index(), declared);
+    }
+
+    // func id ( params ) [: type] { body } 或 lambda, 参数的类型立即记录, 函数体留到顶层语句之后检查
+    private void function(ASTNode node) {
+        List<ASTNode> params = Resolver.params(node);
+        Type[] types = new Type[params.size()];
+        for (int i = 0; i < types.length; i++) {
+            ASTNode param = params.get(i);
+            types[i] = param.isLeaf() ? Type.ANY : Type.of(param.tag(2));
+            ASTNode id = param.isLeaf() ? param : param.c(0);
+            if (types[i] == Type.VOID) error("parameter %s cannot be void", id.t(TokenId.class).getId());
+        }
+        info.setParams(node, types);
+        if (resolution.isGenerator(node) && Resolver.returnType(node) != null) error("generator cannot declare a return type");
+        bodies.add(node);
+    }
+
+    // 函数体中的局部变量与外层分开记录, 捕获的变量为object
+    private void body(ASTNode node) {
+        locals = new HashMap<>();
+        List<ASTNode> params = Resolver.params(node);
+        Type[] types = info.params(node);
+        for (int i = 0; i < types.length; i++) {
+            ASTNode param = params.get(i);
+            Slot slot = resolution.slot(param.isLeaf() ? param : param.c(0));
+            locals.put(slot, slot.boxed() ? Type.ANY : types[i]);
+        }
+        ASTNode declared = Resolver.returnType(node);
+        returnType = declared != null ? Type.of(declared.tag()) : Type.ANY;
+        generator = resolution.isGenerator(node);
+        ASTNode body = node.c(node.size() - 1);
+        type(body);
+        if (!generator && returnType != Type.VOID && returnType != Type.ANY && completes(body)) {
+            String name = node.is("func_stmt") ? node.t(1, TokenId.class).getId() : "lambda";
+            error("missing return of %s at the end of %s", returnType, name);
+        }
+        locals = new HashMap<>();
+        returnType = null;
+        generator = false;
+    }
+
+    // 语句能否执行到末尾; 没有break, 只有条件为true的while不会正常结束
+    private static boolean completes(ASTNode node) {
+        if (node.isLeaf()) return true;
+        return switch (node.p().toString()) {
+            case "return_stmt" -> false;
+            case "compound_stmt" -> completes(node.c(1));
+            case "stmt_seq" -> node.flatten("stmt_seq", 1).stream().allMatch(TypeChecker::completes);
+            case "if_open_stmt", "if_matched_stmt" -> node.size() != 5 || completes(node.c(2)) || completes(node.c(4));
+            case "while_stmt" -> !(node.c(1).isLeaf() && node.tag(1) == TokenTag.BoolLiteral && node.t(1, TokenBool.class).isValue());
+            case "loop_stmt" -> completes(node.c(1));
+            case "annotated_stmt" -> completes(node.c(node.size() - 1));
+            default -> true;
+        };
+    }
+
+    // 内联的函数调用, 参数的类型为声明的类型或实参的类型; 函数可能被重新定义, 结果为object
+    private Type inline(ASTNode node) {
+        ASTNode args = node.c(2);
+        List<ASTNode> values = args.is("expr_seq") ? args.flatten("expr_seq", 2) : List.of(args);
+        List<ASTNode> params = node.c(1).getChildren();
+        for (int i = 0; i < params.size(); i++) {
+            ASTNode param = params.get(i);
+            Type actual = type(values.get(i));
+            Type declared = actual;
+            if (!param.isLeaf()) {
+                declared = Type.of(param.tag(2));
+                coerce(values.get(i), actual, declared, "parameter " + param.t(0, TokenId.class).getId());
+            }
+            locals.put(resolution.slot(param.isLeaf() ? param : param.c(0)), declared);
+        }
+        Type result = type(node.c(3));
+        if (node.size() == 5) coerce(node.c(3), result, Type.of(node.tag(4)), "return value");
+        return Type.ANY;
+    }
+
+    private Type assign(ASTNode node) {
+        ASTNode target = node.c(0);
+        ASTNode value = node.c(2);
+        Type actual = type(value);
+        if (!target.isLeaf() || target.tag() != TokenTag.Identifier) {
+            // 字段和下标的类型未知, 复合赋值的结果也未知
+            type(target);
+            return node.tag(1) == TokenTag.Assign ? actual : Type.ANY;
+        }
+        Slot slot = resolution.slot(target);
+        Type declared = variable(slot);
+        untypedWrite(slot);
+        String what = "variable " + target.t(TokenId.class).getId();
+        TokenTag op = switch (node.tag(1)) {
+            case AssignAdd -> TokenTag.Add;
+            case AssignSub -> TokenTag.Sub;
+            case AssignMut -> TokenTag.Mut;
+            case AssignDiv -> TokenTag.Div;
+            case AssignMod -> TokenTag.Mod;
+            default -> null;
+        };
+        if (op == null) {
+            coerce(value, actual, declared, what);
+            return declared == Type.ANY ? actual : declared;
+        }
+        // 复合赋值 a op= b, 按 a = a op b 检查, 运算记录在赋值结点上
+        if (declared != Type.ANY && actual == Type.ANY) {
+            info.setCast(value, declared);
+            actual = declared;
+        }
+        Type result = binary(node, op, null, declared, value, actual);
+        if (declared != Type.ANY && result != declared) {
+            error("cannot assign %s to %s %s", result, declared, what);
+        }
+        return declared == Type.ANY ? result : declared;
+    }
+
+    // 函数中的赋值可能在之后的求值中执行, 此时该全局变量的类型还未确定
+    private void untypedWrite(Slot slot) {
+        if (returnType != null && slot.isGlobal()
+                && !pendingGlobals.containsKey(slot.index()) && !globalTypes.containsKey(slot.index())) {
+            pendingWrites.add(slot.index());
+        }
+    }
+
+    // 将actual类型的表达式转为target类型
+    private void coerce(ASTNode node, Type actual, Type target, String what) {
+        if (target == Type.ANY || actual == target) return;
+        if (actual == Type.ANY || (actual == Type.INT && target == Type.FLOAT)) {
+            info.setCast(node, target);
+        } else {
+            error("cannot assign %s to %s %s", actual, target, what);
+        }
+    }
+
+    /// 运算符
+    private Type unary(ASTNode node) {
+        TokenTag op = node.tag(0);
+        if (op == TokenTag.SelfAdd || op == TokenTag.SelfSub) {
+            if (node.c(1).isLeaf() && node.tag(1) == TokenTag.Identifier) untypedWrite(resolution.slot(node.c(1)));
+            Type type = type(node.c(1));
+            if (!type.isNumber() && type != Type.ANY) error("operator %s cannot be applied to %s", op.getPure(), type);
+            return type;
+        }
+        Type type = type(node.c(1));
+        return switch (op) {
+            case Not -> Type.BOOL;
+            case Add, Sub -> {
+                if (type.isNumber() || type == Type.ANY) yield type;
+                error("operator %s cannot be applied to %s", op.getPure(), type);
+                yield Type.ANY;
+            }
+            default -> Type.ANY;
+        };
+    }
+
+    // 二元运算的类型, 并记录按哪种类型执行; left为null时左操作数不能转换(复合赋值的左侧)
+    private Type binary(ASTNode node, TokenTag op, ASTNode left, Type l, ASTNode right, Type r) {
+        switch (op) {
+            case And, Or -> {
+                return Type.BOOL;
+            }
+            case Eq, Neq -> {
+                if (l == r && l.isNumber()) info.setOperation(node, l);
+                return Type.BOOL;
+            }
+            case Le, Ge, Leq, Geq -> {
+                numeric(node, op, left, l, right, r);
+                return Type.BOOL;
+            }
+            case Add, Sub, Mut, Div, Mod -> {
+                if (op == TokenTag.Add && (l == Type.STRING || r == Type.STRING)) {
+                    info.setOperation(node, Type.STRING);
+                    return Type.STRING;
+                }
+                return numeric(node, op, left, l, right, r);
+            }
+            default -> {
+                return Type.ANY;
+            }
+        }
+    }
+
+    // 数值运算的类型, int和float混合时将int拓宽为float
+    private Type numeric(ASTNode node, TokenTag op, ASTNode left, Type l, ASTNode right, Type r) {
+        if ((!l.isNumber() && l != Type.ANY) || (!r.isNumber() && r != Type.ANY)) {
+            error("operator %s cannot be applied to %s and %s", op.getPure(), l, r);
+            return Type.ANY;
+        }
+        if (l == Type.ANY || r == Type.ANY) return Type.ANY;
+        if (l != r) {
+            if (l == Type.INT && left == null) return Type.FLOAT; // 复合赋值左侧的int变量不能拓宽, 由调用者报告错误
+            info.setCast(l == Type.INT ? left : right, Type.FLOAT);
+        }
+        Type type = l == Type.FLOAT || r == Type.FLOAT ? Type.FLOAT : Type.INT;
+        info.setOperation(node, type);
+        return type;
+    }
+
+    private void error(String format, Object... args) {
+        errors.add(String.format(format, args));
+    }
+}
@@ -0,0 +1,41 @@
+package com.mnzn.inter.type;
+
+import com.mnzn.grammar.ASTNode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// 类型检查的结果, 由编译器用来选择特化的运算
+public class TypeInfo {
+    // 运算结点(二元运算和复合赋值)按哪种类型执行, 没有记录时按动态类型执行
+    private final Map<ASTNode, Type> operations = new IdentityHashMap<>();
+    // 表达式求值后需要转换到的类型: int到float的拓宽, 或者object到具体类型的检查
+    private final Map<ASTNode, Type> casts = new IdentityHashMap<>();
+    // 函数定义的参数类型, 没有声明类型的参数为ANY
+    private final Map<ASTNode, Type[]> params = new IdentityHashMap<>();
+
+    void setOperation(ASTNode node, Type type) {
+        if (type != Type.ANY) operations.put(node, type);
+    }
+
+    void setCast(ASTNode node, Type type) {
+        casts.put(node, type);
+    }
+
+    void setParams(ASTNode function, Type[] types) {
+        params.put(function, types);
+    }
+
+    public Type operation(ASTNode node) {
+        return operations.getOrDefault(node, Type.ANY);
+    }
+
+    // 不需要转换时返回null
+    public Type cast(ASTNode node) {
+        return casts.get(node);
+    }
+
+    public Type[] params(ASTNode function) {
+        return params.get(function);
+    }
+}
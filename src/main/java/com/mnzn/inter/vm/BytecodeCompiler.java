@@ -0,0 +1,598 @@
+package com.mnzn.inter.vm;
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.exec.LambdaNode;
+import com.mnzn.inter.exec.ParallelLoop;
+import com.mnzn.inter.jit.TieredCompiler;
+import com.mnzn.inter.runtime.CallCache;
+import com.mnzn.inter.runtime.FieldCache;
+import com.mnzn.inter.runtime.StringTemplate;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Resolver;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+import com.mnzn.inter.type.TypeInfo;
+import com.mnzn.lex.TokenTag;
+import com.mnzn.lex.imp.*;
+
+import java.util.*;
+
+// 将语法树编译为字节码
+// 语句执行后操作数栈不变, 表达式执行后在栈顶留下一个值
+public class BytecodeCompiler {
+    private final Resolution resolution; // 标识符对应的位置
+    private final TypeInfo types;        // 类型检查的结果
+    private int[] code = new int[64];
+    private int size = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+    private final List<FieldCache> fields = new ArrayList<>(); // 每个字段访问点一个缓存
+    private final List<CallCache> calls = new ArrayList<>();   // 每个调用点一个缓存
+    private final List<Chunk.Loop> loops = new ArrayList<>();
+    private int depth = 0;      // 当前操作数栈深度
+    private int maxDepth = 0;   // 最大操作数栈深度
+
+    // 编译一棵语法树, 根结点的值作为返回值
+    public static Chunk compile(ASTNode root, Resolution resolution, TypeInfo types) {
+        BytecodeCompiler compiler = new BytecodeCompiler(resolution, types);
+        compiler.expression(root);
+        compiler.emit(OpCode.RETURN);
+        return compiler.build();
+    }
+
+    private BytecodeCompiler(Resolution resolution, TypeInfo types) {
+        this.resolution = resolution;
+        this.types = types;
+    }
+
+    private Chunk build() {
+        return new Chunk(Arrays.copyOf(code, size), constants.toArray(), fields.toArray(FieldCache[]::new),
+                calls.toArray(CallCache[]::new), maxDepth,
+                loops.toArray(Chunk.Loop[]::new), new TieredCompiler.Profile[loops.size()], resolution);
+    }
+
+    /// 语句
+    private void statement(ASTNode root) {
+        if (root.isLeaf()) {
+            // 单独的分号不产生指令
+            if (root.tag() != TokenTag.Semi) {
+                expression(root);
+                emit(OpCode.POP);
+            }
+            return;
+        }
+        switch (root.p().toString()) {
+            case "stmt_seq" -> root.flatten("stmt_seq", 1).forEach(this::statement);
+            case "expr_stmt" -> {
+                if (root.size() != 1) statement(root.c(0));
+            }
+            case "compound_stmt" -> statement(root.c(1));
+            // let id [: type] = expr ;
+            // 需要存储单元的变量每次定义都装入新的存储单元: value ; BOX i ; POP
+            case "let_stmt" -> {
+                expression(root.c(root.size() - 2));
+                Slot slot = resolution.slot(root.c(1));
+                if (slot.boxed()) emit(OpCode.BOX, slot.index());
+                else store(slot);
+                emit(OpCode.POP);
+            }
+            // expr ; ITER t ; start: FOR_NEXT t end ; [CAST type ;] 定义循环变量 ; POP ; body ; JUMP start ; end:
+            // 迭代器放在帧中, 生成器暂停时操作数栈上没有其他值
+            case "for_stmt" -> {
+                expression(root.c(root.size() - 3));
+                int iterator = resolution.slot(root.c(0)).index();
+                emit(OpCode.ITER, iterator);
+                int start = size;
+                emit(OpCode.FOR_NEXT, iterator, 0);
+                int exit = size - 1;
+                if (root.size() == 10 && Type.of(root.tag(5)) != Type.ANY) emit(OpCode.CAST, Type.of(root.tag(5)).ordinal());
+                Slot slot = resolution.slot(root.c(3));
+                if (slot.boxed()) emit(OpCode.BOX, slot.index());
+                else store(slot);
+                emit(OpCode.POP);
+                statement(root.c(root.size() - 1));
+                emitJumpTo(start);
+                patch(exit);
+            }
+            // value ; YIELD
+            case "yield_stmt" -> {
+                expression(root.c(1));
+                emit(OpCode.YIELD);
+            }
+            case "while_stmt" -> {
+                // start: LOOP id ; cond ; JUMP_IF_FALSE end ; body ; JUMP start ; end:
+                int start = size;
+                int id = loops.size();
+                loops.add(null);
+                emit(OpCode.LOOP, id);
+                expression(root.c(1));
+                int exit = emitJump(OpCode.JUMP_IF_FALSE);
+                statement(root.c(2));
+                emitJumpTo(start);
+                patch(exit);
+                loops.set(id, new Chunk.Loop(root, size));
+            }
+            // 进入循环时清空不变量的临时变量: (NULL ; STORE_LOCAL 0 t ; POP)* while
+            case "loop_stmt" -> {
+                for (ASTNode temp : root.c(0).getChildren()) {
+                    emit(OpCode.NULL);
+                    emit(OpCode.STORE_LOCAL, 0, resolution.slot(temp).index());
+                    emit(OpCode.POP);
+                }
+                statement(root.c(1));
+            }
+            // func id ( params ) [: type] { body }
+            case "func_stmt" -> {
+                constants.add(proto(root, root.t(1, TokenId.class).getId(), root.c(1)));
+                emit(OpCode.FUNCTION, constants.size() - 1);
+            }
+            // @memo [( limits )] func_stmt, 缓存的上限记录在函数原型上
+            // @parallel [( reductions )] for_stmt : expr ; PARALLEL_FOR k, 循环体单独编译, 由各工作线程在帧的拷贝上执行
+            case "annotated_stmt" -> {
+                ASTNode target = root.c(root.size() - 1);
+                if (!target.is("for_stmt")) {
+                    statement(target);
+                    break;
+                }
+                expression(target.c(target.size() - 3));
+                BytecodeCompiler body = new BytecodeCompiler(resolution, types);
+                body.statement(target.c(target.size() - 1));
+                body.emit(OpCode.NULL);
+                body.emit(OpCode.RETURN);
+                constants.add(new Chunk.Parallel(ParallelLoop.of(root, resolution), body.build()));
+                emit(OpCode.PARALLEL_FOR, constants.size() - 1);
+            }
+            // return f(args); 为尾调用: args ; TAIL_CALL c argc t ; [CAST t ;] RETURN
+            // 没有执行尾调用时(调用的不是字节码函数), TAIL_CALL与CALL相同, 之后的CAST和RETURN照常执行; 调用函数值时不是尾调用
+            case "return_stmt" -> {
+                if (root.size() == 2) {
+                    emit(OpCode.NULL);
+                } else if (root.c(1).is("call_expr") && isNamed(root.c(1))) {
+                    Type cast = types.cast(root.c(1));
+                    call(root.c(1), OpCode.TAIL_CALL, cast == null ? -1 : cast.ordinal());
+                    if (cast != null) emit(OpCode.CAST, cast.ordinal());
+                } else {
+                    expression(root.c(1));
+                }
+                emit(OpCode.RETURN);
+            }
+            case "if_open_stmt", "if_matched_stmt" -> {
+                // cond ; JUMP_IF_FALSE else ; then ; JUMP end ; else: otherwise ; end:
+                expression(root.c(1));
+                int otherwise = emitJump(OpCode.JUMP_IF_FALSE);
+                statement(root.c(2));
+                if (root.size() == 5) {
+                    int end = emitJump(OpCode.JUMP);
+                    patch(otherwise);
+                    statement(root.c(4));
+                    patch(end);
+                } else {
+                    patch(otherwise);
+                }
+            }
+            default -> {
+                expression(root);
+                emit(OpCode.POP);
+            }
+        }
+    }
+
+    /// 表达式
+    private void expression(ASTNode root) {
+        value(root);
+        Type cast = types.cast(root);
+        if (cast != null) emit(OpCode.CAST, cast.ordinal());
+    }
+
+    private void value(ASTNode root) {
+        if (root.isLeaf()) {
+            leaf(root);
+            return;
+        }
+        switch (root.p().toString()) {
+            case "stmt_seq", "expr_stmt", "compound_stmt", "let_stmt", "while_stmt", "for_stmt", "yield_stmt",
+                    "if_open_stmt", "if_matched_stmt", "func_stmt", "annotated_stmt", "return_stmt" -> {
+                statement(root);
+                emit(OpCode.NULL);
+            }
+            case "field_expr" -> {
+                expression(root.c(0));
+                fields.add(new FieldCache(root.t(2, TokenId.class).getId()));
+                emit(OpCode.FIELD, fields.size() - 1);
+            }
+            case "sub_expr" -> {
+                expression(root.c(0));
+                expression(root.c(2));
+                emit(OpCode.INDEX);
+            }
+            case "call_expr" -> {
+                if (isNamed(root)) {
+                    call(root, OpCode.CALL);
+                    return;
+                }
+                // callee ; args ; CALL_VALUE argc
+                expression(root.c(0));
+                List<ASTNode> args = args(root.c(2));
+                args.forEach(this::expression);
+                emit(OpCode.CALL_VALUE, args.size());
+            }
+            // func ( params ) [: type] { body }
+            case "lambda_expr" -> {
+                constants.add(proto(root, LambdaNode.NAME, root));
+                emit(OpCode.CLOSURE, constants.size() - 1);
+            }
+            case "inline_expr" -> inline(root);
+            // LOAD_HOISTED t end ; expr ; CACHE t ; end:
+            case "hoist_expr" -> {
+                int temp = resolution.slot(root.c(0)).index();
+                emit(OpCode.LOAD_HOISTED, temp, 0);
+                int end = size - 1;
+                expression(root.c(1));
+                emit(OpCode.CACHE, temp);
+                patch(end);
+            }
+            case "parent_expr" -> expression(root.c(1));
+            case "object_expr" -> emit(OpCode.NEW);
+            case "format_expr" -> {
+                List<String> texts = new ArrayList<>();
+                List<ASTNode> args = format(root, texts);
+                args.forEach(this::expression);
+                // 模板不参与常量去重
+                constants.add(new StringTemplate(texts));
+                emit(OpCode.FORMAT, constants.size() - 1, args.size());
+            }
+            case "array_expr" -> {
+                expression(root.c(2));
+                emit(OpCode.NEW_ARRAY, Type.of(root.tag(0)).ordinal());
+            }
+            case "unary_expr" -> unary(root);
+            // a ; AND end ; b ; BOOL ; end: (|| 同理), 左操作数决定结果时不执行右操作数
+            case "binary_expr_&&", "binary_expr_||" -> {
+                expression(root.c(0));
+                int end = emitJump(root.tag(1) == TokenTag.And ? OpCode.AND : OpCode.OR);
+                expression(root.c(2));
+                emit(OpCode.BOOL);
+                patch(end);
+            }
+            case "binary_expr_*",
+                    "binary_expr_+",
+                    "binary_expr_<<",
+                    "binary_expr_<=",
+                    "binary_expr_==",
+                    "binary_expr_&",
+                    "binary_expr_^",
+                    "binary_expr_|" -> {
+                expression(root.c(0));
+                expression(root.c(2));
+                emit(binary(types.operation(root), root.tag(1)));
+            }
+            case "cond_expr" -> {
+                // cond ; JUMP_IF_FALSE else ; a ; JUMP end ; else: b ; end:
+                expression(root.c(0));
+                int otherwise = emitJump(OpCode.JUMP_IF_FALSE);
+                expression(root.c(2));
+                int end = emitJump(OpCode.JUMP);
+                patch(otherwise);
+                --depth; // 两个分支只有一个会压栈
+                expression(root.c(4));
+                patch(end);
+            }
+            case "ass_expr" -> assign(root);
+            default -> throw new RuntimeException(String.format("Unsupported token %s", root.p()));
+        }
+    }
+
+    private void leaf(ASTNode root) {
+        switch (root.t().getTag()) {
+            case Identifier -> load(resolution.slot(root));
+            case BoolLiteral -> emit(OpCode.CONST, constant(root.t(TokenBool.class).isValue()));
+            case IntLiteral -> emit(OpCode.CONST, constant(root.t(TokenInt.class).getValue()));
+            case FloatLiteral -> emit(OpCode.CONST, constant(root.t(TokenFloat.class).getValue()));
+            case StringLiteral -> emit(OpCode.CONST, constant(root.t(TokenString.class).getValue()));
+            case Semi -> emit(OpCode.NULL);
+            default -> throw new RuntimeException(String.format("Unsupported token %s", root.t()));
+        }
+    }
+
+    // 函数体单独编译, 末尾返回null; 需要存储单元的参数在开头装入存储单元: LOAD_LOCAL 0 i ; BOX i ; POP
+    // 生成器函数在此之后返回生成器: GENERATOR name ; RETURN ; 函数体由生成器执行
+    private Chunk.Proto proto(ASTNode root, String name, ASTNode definition) {
+        BytecodeCompiler body = new BytecodeCompiler(resolution, types);
+        for (ASTNode param : Resolver.params(root)) {
+            Slot slot = resolution.slot(param.isLeaf() ? param : param.c(0));
+            if (!slot.boxed()) continue;
+            body.emit(OpCode.LOAD_LOCAL, 0, slot.index());
+            body.emit(OpCode.BOX, slot.index());
+            body.emit(OpCode.POP);
+        }
+        if (resolution.isGenerator(root)) {
+            body.emit(OpCode.GENERATOR, body.constant(name));
+            body.emit(OpCode.RETURN);
+        }
+        body.statement(root.c(root.size() - 1));
+        body.emit(OpCode.NULL);
+        body.emit(OpCode.RETURN);
+        return new Chunk.Proto(name, types.params(root), resolution.frameSize(root), resolution.captures(root),
+                resolution.memo(root), body.build(), definition);
+    }
+
+    // 被调用者是否为函数名, 不是时调用变量或表达式的值
+    private boolean isNamed(ASTNode call) {
+        ASTNode callee = call.c(0);
+        return callee.isLeaf() && callee.tag() == TokenTag.Identifier && !resolution.isBound(callee);
+    }
+
+    // args ; CALL c argc (或TAIL_CALL c argc t)
+    private void call(ASTNode root, int op, int... cast) {
+        List<ASTNode> args = args(root.c(2));
+        args.forEach(this::expression);
+        calls.add(new CallCache(root.t(0, TokenId.class).getId()));
+        if (op == OpCode.TAIL_CALL) emit(op, calls.size() - 1, args.size(), cast[0]);
+        else emit(op, calls.size() - 1, args.size());
+    }
+
+    // 内联的函数调用, 函数被重新定义时按普通调用执行:
+    // args ; STORE_LOCAL 0 s ; POP ; ... GUARD c k call ; body ; JUMP end ; call: LOAD_LOCAL 0 s ... ; CALL c argc ; end:
+    private void inline(ASTNode root) {
+        List<ASTNode> args = args(root.c(2));
+        List<ASTNode> params = root.c(1).getChildren();
+        int[] slots = new int[params.size()];
+        for (int i = 0; i < slots.length; i++) {
+            ASTNode param = params.get(i);
+            slots[i] = resolution.slot(param.isLeaf() ? param : param.c(0)).index();
+            expression(args.get(i));
+            emit(OpCode.STORE_LOCAL, 0, slots[i]);
+            emit(OpCode.POP);
+        }
+        calls.add(new CallCache(root.t(0, TokenId.class).getId()));
+        int call = calls.size() - 1;
+        constants.add(root.c(0));
+        emit(OpCode.GUARD, call, constants.size() - 1, 0);
+        int fallback = size - 1;
+        expression(root.c(3));
+        int end = emitJump(OpCode.JUMP);
+        patch(fallback);
+        --depth; // 两个分支只有一个会压栈
+        for (int slot : slots) emit(OpCode.LOAD_LOCAL, 0, slot);
+        emit(OpCode.CALL, call, slots.length);
+        patch(end);
+    }
+
+    private void unary(ASTNode root) {
+        switch (root.tag(0)) {
+            case Add -> {
+                expression(root.c(1));
+                emit(OpCode.POS);
+            }
+            case Sub -> {
+                expression(root.c(1));
+                emit(OpCode.NEG);
+            }
+            case Not -> {
+                expression(root.c(1));
+                emit(OpCode.NOT);
+            }
+            case SelfAdd -> inc(target(root.c(1)), 1);
+            case SelfSub -> inc(target(root.c(1)), -1);
+            default -> throw new RuntimeException("Unsupported unary operator " + root.c(0).tag());
+        }
+    }
+
+    private void assign(ASTNode root) {
+        // 复合赋值 a op= b 展开为 a = a op b
+        TokenTag op = switch (root.tag(1)) {
+            case Assign -> null;
+            case AssignAdd -> TokenTag.Add;
+            case AssignSub -> TokenTag.Sub;
+            case AssignMut -> TokenTag.Mut;
+            case AssignDiv -> TokenTag.Div;
+            case AssignMod -> TokenTag.Mod;
+            default -> throw new RuntimeException("Unsupported assign operator " + root.c(1).tag());
+        };
+        ASTNode target = root.c(0);
+        if (target.is("field_expr")) {
+            // obj ; [DUP ; FIELD c ;] value ; [op ;] SET_FIELD c
+            expression(target.c(0));
+            fields.add(new FieldCache(target.t(2, TokenId.class).getId()));
+            int cache = fields.size() - 1;
+            if (op != null) {
+                emit(OpCode.DUP);
+                emit(OpCode.FIELD, cache);
+            }
+            expression(root.c(2));
+            // 字段的类型未知, 使用通用的运算
+            if (op != null) emit(binary(Type.ANY, op));
+            emit(OpCode.SET_FIELD, cache);
+            return;
+        }
+        if (target.is("sub_expr")) {
+            // obj ; index ; [DUP2 ; INDEX ;] value ; [op ;] SET_INDEX
+            expression(target.c(0));
+            expression(target.c(2));
+            if (op != null) {
+                emit(OpCode.DUP2);
+                emit(OpCode.INDEX);
+            }
+            expression(root.c(2));
+            if (op != null) emit(binary(Type.ANY, op));
+            emit(OpCode.SET_INDEX);
+            return;
+        }
+        Slot slot = target(target);
+        // 全局变量可能被其他任务同时修改: value ; UPDATE_GLOBAL g op
+        if (op != null && slot.isGlobal()) {
+            expression(root.c(2));
+            emit(OpCode.UPDATE_GLOBAL, slot.index(), binary(Type.ANY, op));
+            return;
+        }
+        if (op != null) load(slot);
+        expression(root.c(2));
+        if (op != null) emit(binary(types.operation(root), op));
+        store(slot);
+    }
+
+    /// 变量访问, 按位置选择局部变量, 存储单元或全局变量的指令
+    private void load(Slot slot) {
+        if (slot.isGlobal()) emit(OpCode.LOAD_GLOBAL, slot.index());
+        else if (slot.boxed()) emit(OpCode.LOAD_BOXED, slot.depth(), slot.index());
+        else emit(OpCode.LOAD_LOCAL, slot.depth(), slot.index());
+    }
+
+    private void store(Slot slot) {
+        if (slot.isGlobal()) emit(OpCode.STORE_GLOBAL, slot.index());
+        else if (slot.boxed()) emit(OpCode.STORE_BOXED, slot.depth(), slot.index());
+        else emit(OpCode.STORE_LOCAL, slot.depth(), slot.index());
+    }
+
+    // 存储单元中的变量: LOAD_BOXED d i ; CONST delta ; ADD ; STORE_BOXED d i
+    private void inc(Slot slot, int delta) {
+        if (slot.isGlobal()) {
+            emit(OpCode.INC_GLOBAL, slot.index(), delta);
+        } else if (slot.boxed()) {
+            load(slot);
+            emit(OpCode.CONST, constant((long) delta));
+            emit(OpCode.ADD);
+            store(slot);
+        } else {
+            emit(OpCode.INC_LOCAL, slot.depth(), slot.index(), delta);
+        }
+    }
+
+    // 类型检查确定了操作数的类型时使用特化的指令
+    private static int binary(Type type, TokenTag op) {
+        int typed = switch (type) {
+            case INT -> switch (op) {
+                case Add -> OpCode.IADD;
+                case Sub -> OpCode.ISUB;
+                case Mut -> OpCode.IMUL;
+                case Div -> OpCode.IDIV;
+                case Mod -> OpCode.IMOD;
+                case Eq -> OpCode.IEQ;
+                case Neq -> OpCode.INE;
+                case Le -> OpCode.ILT;
+                case Ge -> OpCode.IGT;
+                case Leq -> OpCode.ILE;
+                case Geq -> OpCode.IGE;
+                default -> -1;
+            };
+            case FLOAT -> switch (op) {
+                case Add -> OpCode.FADD;
+                case Sub -> OpCode.FSUB;
+                case Mut -> OpCode.FMUL;
+                case Div -> OpCode.FDIV;
+                case Mod -> OpCode.FMOD;
+                case Eq -> OpCode.FEQ;
+                case Neq -> OpCode.FNE;
+                case Le -> OpCode.FLT;
+                case Ge -> OpCode.FGT;
+                case Leq -> OpCode.FLE;
+                case Geq -> OpCode.FGE;
+                default -> -1;
+            };
+            case STRING -> op == TokenTag.Add ? OpCode.CONCAT : -1;
+            default -> -1;
+        };
+        if (typed != -1) return typed;
+        return switch (op) {
+            case Add -> OpCode.ADD;
+            case Sub -> OpCode.SUB;
+            case Mut -> OpCode.MUL;
+            case Div -> OpCode.DIV;
+            case Mod -> OpCode.MOD;
+            case Eq -> OpCode.EQ;
+            case Neq -> OpCode.NEQ;
+            case Le -> OpCode.LT;
+            case Ge -> OpCode.GT;
+            case Leq -> OpCode.LE;
+            case Geq -> OpCode.GE;
+            default -> throw new RuntimeException("Unknown operator " + op);
+        };
+    }
+
+    // 可赋值的表达式, 字段和元素以外只有标识符
+    private Slot target(ASTNode node) {
+        if (node.isLeaf() && node.tag() == TokenTag.Identifier) {
+            return resolution.slot(node);
+        }
+        throw new RuntimeException("Unsupported assign target " + node);
+    }
+
+    // 函数实参列表
+    private static List<ASTNode> args(ASTNode node) {
+        if (node.is("expr_seq")) {
+            return node.flatten("expr_seq", 2);
+        }
+        return List.of(node);
+    }
+
+    // 内插字符串 fh expr (fm expr)* fe, 返回内插表达式, 文本加入texts
+    private static List<ASTNode> format(ASTNode node, List<String> texts) {
+        List<ASTNode> args = new ArrayList<>();
+        while (!node.isLeaf()) {
+            texts.add(node.t(0, TokenFormat.class).getText());
+            args.add(node.c(1));
+            node = node.c(2);
+        }
+        texts.add(node.t(TokenFormat.class).getText());
+        return args;
+    }
+
+    /// 常量池
+    private int constant(Object value) {
+        return constantIndex.computeIfAbsent(value, k -> {
+            constants.add(k);
+            return constants.size() - 1;
+        });
+    }
+
+    /// 指令生成
+    private void emit(int op, int... operands) {
+        if (size + 1 + operands.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length << 1, size + 1 + operands.length));
+        }
+        code[size++] = op;
+        for (int operand : operands) {
+            code[size++] = operand;
+        }
+        depth += stackEffect(op, operands);
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    // 生成一条待回填的跳转指令, 返回操作数的位置
+    private int emitJump(int op) {
+        emit(op, 0);
+        return size - 1;
+    }
+
+    // 生成跳转到target的指令
+    private void emitJumpTo(int target) {
+        emit(OpCode.JUMP, target - (size + 2));
+    }
+
+    // 将跳转指令的目标回填为当前位置
+    private void patch(int operand) {
+        code[operand] = size - (operand + 1);
+    }
+
+    private static int stackEffect(int op, int[] operands) {
+        return switch (op) {
+            case OpCode.CONST, OpCode.NULL, OpCode.DUP, OpCode.NEW, OpCode.LOAD_LOCAL, OpCode.LOAD_GLOBAL, OpCode.INC_LOCAL, OpCode.INC_GLOBAL,
+                    OpCode.LOAD_BOXED, OpCode.CLOSURE, OpCode.FOR_NEXT, OpCode.GENERATOR -> 1;
+            case OpCode.POP, OpCode.JUMP_IF_FALSE, OpCode.RETURN, OpCode.INDEX, OpCode.SET_FIELD, OpCode.ITER, OpCode.YIELD,
+                    OpCode.PARALLEL_FOR -> -1;
+            case OpCode.DUP2 -> 2;
+            case OpCode.SET_INDEX -> -2;
+            case OpCode.ADD, OpCode.SUB, OpCode.MUL, OpCode.DIV, OpCode.MOD,
+                    OpCode.EQ, OpCode.NEQ, OpCode.LT, OpCode.GT, OpCode.LE, OpCode.GE,
+                    OpCode.AND, OpCode.OR -> -1;
+            case OpCode.IADD, OpCode.ISUB, OpCode.IMUL, OpCode.IDIV, OpCode.IMOD,
+                    OpCode.ILT, OpCode.ILE, OpCode.IGT, OpCode.IGE, OpCode.IEQ, OpCode.INE,
+                    OpCode.FADD, OpCode.FSUB, OpCode.FMUL, OpCode.FDIV, OpCode.FMOD,
+                    OpCode.FLT, OpCode.FLE, OpCode.FGT, OpCode.FGE, OpCode.FEQ, OpCode.FNE,
+                    OpCode.CONCAT -> -1;
+            case OpCode.CALL, OpCode.TAIL_CALL, OpCode.FORMAT -> 1 - operands[1];
+            case OpCode.CALL_VALUE -> -operands[0];
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.mnzn.inter.vm;
+
+
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.inter.exec.ParallelLoop;
+import com.mnzn.inter.jit.TieredCompiler;
+import com.mnzn.inter.runtime.CallCache;
+import com.mnzn.inter.runtime.FieldCache;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.inter.scope.Resolution;
+import com.mnzn.inter.scope.Slot;
+import com.mnzn.inter.type.Type;
+
+// 一段编译完成的字节码, 包括指令,常量池,字段访问点和调用点的缓存,循环表和作用域解析的结果
+// 循环的执行信息随字节码保存, 函数多次调用时累计
+public record Chunk(int[] code, Object[] constants, FieldCache[] fields, CallCache[] calls, int maxStack, Loop[] loops,
+                    TieredCompiler.Profile[] profiles, Resolution resolution) {
+    // 一个while循环, 记录其语法树和循环结束后的位置, 用于分层编译
+    public record Loop(ASTNode node, int exit) {
+    }
+
+    // 一个@parallel for循环, body为单独编译的循环体
+    public record Parallel(ParallelLoop loop, Chunk body) {
+        @Override
+        public String toString() {
+            return "parallel for";
+        }
+    }
+
+    // 一个函数定义, 由FUNCTION或CLOSURE指令创建函数; definition为定义处的函数名结点(lambda为lambda结点)
+    // 外层帧为captures位置上的变量组成的闭包记录, captures为null时为当前帧; memo为@memo函数的缓存上限, 其他函数为null
+    public record Proto(String name, Type[] params, int frameSize, Slot[] captures, MemoCache.Limits memo, Chunk body,
+                        ASTNode definition) {
+        @Override
+        public String toString() {
+            return "func " + name + "/" + params.length;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.mnzn.inter.vm;
+
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.exec.MFunction;
+
+// 函数体为字节码的函数
+// 虚拟机中的调用不经过apply, 而是在虚拟机的调用栈上执行; apply用于其他函数(如内建函数)的回调
+public class ChunkFunction extends MFunction {
+    private final Chunk chunk;
+    private final VirtualMachine vm;
+
+    public ChunkFunction(Chunk.Proto proto, Frame closure, VirtualMachine vm) {
+        super(proto.name(), proto.params(), proto.frameSize(), closure, proto.definition(), proto.memo());
+        this.chunk = proto.body();
+        this.vm = vm;
+    }
+
+    public Chunk getChunk() {
+        return chunk;
+    }
+
+    @Override
+    protected Object invoke(Object[] args) {
+        return vm.run(chunk, enter(args, 0, args.length));
+    }
+}
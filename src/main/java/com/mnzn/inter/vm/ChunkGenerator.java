@@ -0,0 +1,35 @@
+package com.mnzn.inter.vm;
+
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.runtime.MGenerator;
+
+// 函数体为字节码的生成器, 保存调用的帧和暂停的位置, 每次恢复时从暂停处继续执行
+public class ChunkGenerator extends MGenerator {
+    private final VirtualMachine vm;
+    private final Chunk chunk;
+    private final Frame frame;
+    private int pc;
+    private boolean suspended;
+
+    ChunkGenerator(String name, VirtualMachine vm, Chunk chunk, Frame frame, int pc) {
+        super(name);
+        this.vm = vm;
+        this.chunk = chunk;
+        this.frame = frame;
+        this.pc = pc;
+    }
+
+    // 执行到YIELD时由虚拟机调用, pc为YIELD的下一条指令
+    void suspend(int pc, Object value) {
+        this.pc = pc;
+        suspended = true;
+        yielded(value);
+    }
+
+    @Override
+    protected boolean advance() {
+        suspended = false;
+        vm.run(chunk, frame, pc, this);
+        return suspended;
+    }
+}
@@ -0,0 +1,56 @@
+package com.mnzn.inter.vm;
+
+import com.mnzn.inter.type.Type;
+
+// 反汇编器, 将字节码转为可读的文本
+public class Disassembler {
+    public static String disassemble(Chunk chunk) {
+        StringBuilder sb = new StringBuilder();
+        int[] code = chunk.code();
+        int pc = 0;
+        while (pc < code.length) {
+            int op = code[pc];
+            sb.append(String.format("%04d %-14s", pc, OpCode.name(op)));
+            switch (op) {
+                case OpCode.CONST, OpCode.FUNCTION, OpCode.CLOSURE, OpCode.GENERATOR, OpCode.PARALLEL_FOR -> sb.append(String.format("%4d (%s)", code[pc + 1], describe(chunk.constants()[code[pc + 1]])));
+                case OpCode.FIELD, OpCode.SET_FIELD -> sb.append(String.format("%4d (%s)", code[pc + 1], chunk.fields()[code[pc + 1]].getName()));
+                case OpCode.LOAD_LOCAL, OpCode.STORE_LOCAL, OpCode.LOAD_BOXED, OpCode.STORE_BOXED -> sb.append(String.format("%4d %d", code[pc + 1], code[pc + 2]));
+                case OpCode.INC_LOCAL -> sb.append(String.format("%4d %d %+d", code[pc + 1], code[pc + 2], code[pc + 3]));
+                case OpCode.LOAD_GLOBAL, OpCode.STORE_GLOBAL -> sb.append(String.format("%4d (%s)", code[pc + 1], global(chunk, code[pc + 1])));
+                case OpCode.INC_GLOBAL -> sb.append(String.format("%4d (%s) %+d", code[pc + 1], global(chunk, code[pc + 1]), code[pc + 2]));
+                case OpCode.UPDATE_GLOBAL -> sb.append(String.format("%4d (%s) %s", code[pc + 1], global(chunk, code[pc + 1]), OpCode.name(code[pc + 2])));
+                case OpCode.FORMAT -> sb.append(String.format("%4d (%s) argc=%d", code[pc + 1], String.valueOf(chunk.constants()[code[pc + 1]]).replace("\n", "\\n"), code[pc + 2]));
+                case OpCode.CALL -> sb.append(String.format("%4d (%s) argc=%d", code[pc + 1], chunk.calls()[code[pc + 1]].getName(), code[pc + 2]));
+                case OpCode.TAIL_CALL -> sb.append(String.format("%4d (%s) argc=%d%s", code[pc + 1], chunk.calls()[code[pc + 1]].getName(), code[pc + 2],
+                        code[pc + 3] < 0 ? "" : " (" + Type.values()[code[pc + 3]] + ")"));
+                case OpCode.GUARD -> sb.append(String.format("%4d (%s) -> %04d", code[pc + 1], chunk.calls()[code[pc + 1]].getName(), pc + 4 + code[pc + 3]));
+                case OpCode.LOAD_HOISTED -> sb.append(String.format("%4d -> %04d", code[pc + 1], pc + 3 + code[pc + 2]));
+                case OpCode.CACHE, OpCode.BOX, OpCode.ITER -> sb.append(String.format("%4d", code[pc + 1]));
+                case OpCode.FOR_NEXT -> sb.append(String.format("%4d -> %04d", code[pc + 1], pc + 3 + code[pc + 2]));
+                case OpCode.CALL_VALUE -> sb.append(String.format("argc=%d", code[pc + 1]));
+                case OpCode.CAST, OpCode.NEW_ARRAY -> sb.append(String.format("%4d (%s)", code[pc + 1], Type.values()[code[pc + 1]]));
+                case OpCode.LOOP -> sb.append(String.format("%4d exit=%04d", code[pc + 1], chunk.loops()[code[pc + 1]].exit()));
+                case OpCode.JUMP, OpCode.JUMP_IF_FALSE, OpCode.AND, OpCode.OR -> sb.append(String.format("%4d -> %04d", code[pc + 1], pc + 2 + code[pc + 1]));
+                default -> {
+                }
+            }
+            sb.append('\n');
+            pc += 1 + OpCode.operandCount(op);
+        }
+        // 函数体附在后面
+        for (Object constant : chunk.constants()) {
+            if (constant instanceof Chunk.Proto proto) {
+                sb.append('\n').append(proto).append(":\n").append(disassemble(proto.body()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String global(Chunk chunk, int index) {
+        return chunk.resolution().globals().name(index);
+    }
+
+    private static String describe(Object constant) {
+        return constant instanceof String s ? '"' + s.replace("\n", "\\n") + '"' : String.valueOf(constant);
+    }
+}
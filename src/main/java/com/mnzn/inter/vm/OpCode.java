@@ -0,0 +1,144 @@
+package com.mnzn.inter.vm;
+
+// 虚拟机指令, 每条指令为一个int操作码加上固定个数的int操作数
+public final class OpCode {
+    /// 栈操作
+    public static final int CONST = 0;          // CONST k : 压入常量池第k项
+    public static final int NULL = 1;           // 压入null
+    public static final int POP = 2;            // 弹出栈顶
+    /// 变量
+    public static final int LOAD_LOCAL = 3;     // LOAD_LOCAL depth i : 压入向外depth层的帧中的第i个局部变量
+    public static final int STORE_LOCAL = 4;    // STORE_LOCAL depth i : 将栈顶赋给局部变量, 栈顶保留
+    public static final int INC_LOCAL = 5;      // INC_LOCAL depth i d : 局部变量加d, 并压入新值
+    public static final int LOAD_GLOBAL = 6;    // LOAD_GLOBAL g : 压入第g个全局变量
+    public static final int STORE_GLOBAL = 7;   // STORE_GLOBAL g : 将栈顶赋给全局变量, 栈顶保留
+    public static final int INC_GLOBAL = 8;     // INC_GLOBAL g d : 全局变量加d, 并压入新值
+    /// 运算
+    public static final int ADD = 9;
+    public static final int SUB = 10;
+    public static final int MUL = 11;
+    public static final int DIV = 12;
+    public static final int MOD = 13;
+    public static final int EQ = 14;
+    public static final int NEQ = 15;
+    public static final int LT = 16;
+    public static final int GT = 17;
+    public static final int LE = 18;
+    public static final int GE = 19;
+    public static final int AND = 20;           // AND off : 栈顶为假时替换为false并跳转, 否则弹出栈顶
+    public static final int OR = 21;            // OR off : 栈顶为真时替换为true并跳转, 否则弹出栈顶
+    public static final int NEG = 22;
+    public static final int POS = 23;
+    public static final int NOT = 24;
+    /// 跳转, 偏移量相对于下一条指令
+    public static final int JUMP = 25;          // JUMP off
+    public static final int JUMP_IF_FALSE = 26; // JUMP_IF_FALSE off : 弹出栈顶, 为假时跳转
+    /// 访问
+    public static final int FIELD = 27;         // FIELD c : 弹出对象, 压入字段, c为字段访问点的缓存
+    public static final int INDEX = 28;         // 弹出下标和对象, 压入obj[index]
+    public static final int CALL = 29;          // CALL c argc : 弹出argc个实参调用函数, c为调用点的缓存
+    public static final int RETURN = 30;        // 弹出栈顶作为结果
+    public static final int LOOP = 31;          // LOOP id : 循环头部, 用于统计循环的执行次数
+    /// 按静态类型特化的运算, 操作数的类型由类型检查保证
+    public static final int IADD = 32;          // I开头为int运算, F开头为float运算
+    public static final int ISUB = 33;
+    public static final int IMUL = 34;
+    public static final int IDIV = 35;
+    public static final int IMOD = 36;
+    public static final int ILT = 37;
+    public static final int ILE = 38;
+    public static final int IGT = 39;
+    public static final int IGE = 40;
+    public static final int IEQ = 41;
+    public static final int INE = 42;
+    public static final int FADD = 43;
+    public static final int FSUB = 44;
+    public static final int FMUL = 45;
+    public static final int FDIV = 46;
+    public static final int FMOD = 47;
+    public static final int FLT = 48;
+    public static final int FLE = 49;
+    public static final int FGT = 50;
+    public static final int FGE = 51;
+    public static final int FEQ = 52;
+    public static final int FNE = 53;
+    public static final int CONCAT = 54;        // 字符串拼接
+    public static final int CAST = 55;          // CAST t : 将栈顶转换为类型Type.values()[t]
+    /// 对象
+    public static final int DUP = 56;           // 复制栈顶
+    public static final int SET_FIELD = 57;     // SET_FIELD c : 弹出值和对象, 给字段赋值后压入值, c为字段访问点的缓存
+    public static final int NEW = 58;           // 压入一个没有属性的新对象
+    /// 数组
+    public static final int NEW_ARRAY = 59;     // NEW_ARRAY t : 弹出长度, 压入元素类型为Type.values()[t]的新数组
+    public static final int SET_INDEX = 60;     // 弹出值, 下标和数组, 给元素赋值后压入值
+    public static final int DUP2 = 61;          // 复制栈顶的两项
+    /// 字符串
+    public static final int FORMAT = 62;        // FORMAT k argc : 弹出argc个值, 按常量池第k项的模板拼接
+    public static final int BOOL = 63;          // 将栈顶转为bool
+    /// 函数
+    public static final int TAIL_CALL = 64;     // TAIL_CALL c argc t : 尾调用, 被调用的函数复用当前的调用记录, 返回值转换为类型t(-1时不转换)
+    public static final int FUNCTION = 65;      // FUNCTION k : 创建常量池第k项定义的函数, 加入函数表
+    public static final int GUARD = 66;         // GUARD c k off : 调用点c的函数不是常量池第k项(函数名结点)定义的函数时跳转, 用于内联
+    /// 循环不变量
+    public static final int LOAD_HOISTED = 67;  // LOAD_HOISTED i off : 局部变量i已保存不变量的值时压入该值并跳转
+    public static final int CACHE = 68;         // CACHE i : 栈顶为数值或bool时保存到局部变量i, 栈顶保留
+    /// 闭包
+    public static final int BOX = 69;           // BOX i : 将栈顶装入新的存储单元赋给局部变量i, 栈顶保留
+    public static final int LOAD_BOXED = 70;    // LOAD_BOXED depth i : 压入向外depth层的帧中第i个存储单元的值
+    public static final int STORE_BOXED = 71;   // STORE_BOXED depth i : 将栈顶赋给存储单元, 栈顶保留
+    public static final int CLOSURE = 72;       // CLOSURE k : 压入由常量池第k项定义的lambda创建的函数
+    public static final int CALL_VALUE = 73;    // CALL_VALUE argc : 弹出argc个实参和被调用的函数值, 调用后压入结果
+    /// 遍历和生成器
+    public static final int ITER = 74;          // ITER i : 弹出被遍历的值, 将其迭代器赋给局部变量i
+    public static final int FOR_NEXT = 75;      // FOR_NEXT i off : 局部变量i中的迭代器还有元素时压入下一个元素, 否则跳转
+    public static final int GENERATOR = 76;     // GENERATOR k : 压入以当前帧创建的名为常量k的生成器, 生成器从之后的RETURN的下一条指令开始执行
+    public static final int YIELD = 77;         // YIELD : 弹出交出的值, 生成器暂停
+    public static final int PARALLEL_FOR = 78;  // PARALLEL_FOR k : 弹出被遍历的值, 按常量k(Chunk.Parallel)并行执行循环
+    /// 任务
+    public static final int UPDATE_GLOBAL = 79; // UPDATE_GLOBAL g op : 弹出右操作数, 全局变量原子地更新为 (全局变量 op 右操作数), 并压入新值; op为ADD到MOD
+
+    // 指令名, 用于反汇编
+    private static final String[] NAMES = {
+            "CONST", "NULL", "POP", "LOAD_LOCAL", "STORE_LOCAL", "INC_LOCAL", "LOAD_GLOBAL", "STORE_GLOBAL", "INC_GLOBAL",
+            "ADD", "SUB", "MUL", "DIV", "MOD", "EQ", "NEQ", "LT", "GT", "LE", "GE", "AND", "OR",
+            "NEG", "POS", "NOT", "JUMP", "JUMP_IF_FALSE", "FIELD", "INDEX", "CALL", "RETURN", "LOOP",
+            "IADD", "ISUB", "IMUL", "IDIV", "IMOD", "ILT", "ILE", "IGT", "IGE", "IEQ", "INE",
+            "FADD", "FSUB", "FMUL", "FDIV", "FMOD", "FLT", "FLE", "FGT", "FGE", "FEQ", "FNE", "CONCAT", "CAST",
+            "DUP", "SET_FIELD", "NEW",
+            "NEW_ARRAY", "SET_INDEX", "DUP2",
+            "FORMAT", "BOOL",
+            "TAIL_CALL", "FUNCTION", "GUARD",
+            "LOAD_HOISTED", "CACHE",
+            "BOX", "LOAD_BOXED", "STORE_BOXED", "CLOSURE", "CALL_VALUE",
+            "ITER", "FOR_NEXT", "GENERATOR", "YIELD", "PARALLEL_FOR",
+            "UPDATE_GLOBAL"
+    };
+
+    // 操作数个数
+    private static final int[] OPERANDS = {
+            1, 0, 0, 2, 2, 3, 1, 1, 2,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1,
+            0, 0, 0, 1, 1, 1, 0, 2, 0, 1,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1,
+            0, 1, 0,
+            1, 0, 0,
+            2, 0,
+            3, 1, 3,
+            2, 1,
+            1, 2, 2, 1, 1,
+            1, 2, 1, 0, 1,
+            2
+    };
+
+    private OpCode() {
+    }
+
+    public static String name(int op) {
+        return NAMES[op];
+    }
+
+    public static int operandCount(int op) {
+        return OPERANDS[op];
+    }
+}
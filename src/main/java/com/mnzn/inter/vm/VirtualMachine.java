@@ -0,0 +1,476 @@
+package com.mnzn.inter.vm;
+
+import com.mnzn.inter.exec.Box;
+import com.mnzn.inter.exec.Frame;
+import com.mnzn.inter.exec.MFunction;
+import com.mnzn.inter.jit.TieredCompiler;
+import com.mnzn.inter.runtime.CallCache;
+import com.mnzn.inter.runtime.FieldCache;
+import com.mnzn.inter.runtime.MArray;
+import com.mnzn.inter.runtime.MObject;
+import com.mnzn.inter.runtime.MemoCache;
+import com.mnzn.inter.runtime.Operators;
+import com.mnzn.inter.runtime.StringTemplate;
+import com.mnzn.inter.runtime.TypedOps;
+import com.mnzn.inter.scope.Globals;
+import com.mnzn.inter.type.Type;
+import com.mnzn.model.ModuleFunction;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.BinaryOperator;
+
+// 基于操作数栈的虚拟机, 解释执行字节码
+// 调用字节码函数时不递归调用run, 而是将调用者的状态压入堆上的调用栈, 递归深度只受maxDepth限制
+public class VirtualMachine {
+    public static final int DEFAULT_MAX_DEPTH = 1_000_000;
+    private static final Type[] TYPES = Type.values();
+    private final TieredCompiler jit; // 为null时不进行分层编译
+    private final int maxDepth;       // 调用栈的最大深度
+
+    // 调用者的状态, 被调用的函数返回时恢复
+    private record Activation(Chunk chunk, Frame frame, int pc, Type cast, MemoCache.Call memo, Activation caller) {
+    }
+
+    public VirtualMachine() {
+        this(null);
+    }
+
+    public VirtualMachine(TieredCompiler jit) {
+        this(jit, DEFAULT_MAX_DEPTH);
+    }
+
+    public VirtualMachine(TieredCompiler jit, int maxDepth) {
+        this.jit = jit;
+        this.maxDepth = maxDepth;
+    }
+
+    public Object run(Chunk chunk, Frame frame) {
+        return run(chunk, frame, 0, null);
+    }
+
+    // 从pc处开始执行; generator为执行其函数体的生成器, YIELD时记录暂停的位置并返回
+    // yield是语句, 暂停时操作数栈为空, 生成器只需保存帧和pc
+    Object run(Chunk chunk, Frame frame, int start, ChunkGenerator generator) {
+        int[] code = chunk.code();
+        Object[] constants = chunk.constants();
+        FieldCache[] fields = chunk.fields();
+        CallCache[] calls = chunk.calls();
+        final Globals globals = frame.getGlobals();
+        // 所有调用共用一个操作数栈, 被调用的函数使用调用者栈顶之上的部分
+        Object[] stack = new Object[chunk.maxStack()];
+        int sp = 0; // 栈顶的下一个位置
+        int pc = start;
+        Activation caller = null;
+        int callDepth = 0; // 调用栈的深度
+        Type cast = null;  // 尾调用留下的返回值的类型转换
+        MemoCache.Call memo = null; // 当前调用的@memo函数未命中缓存时, 返回时保存结果
+        while (true) {
+            switch (code[pc++]) {
+                case OpCode.CONST -> stack[sp++] = constants[code[pc++]];
+                case OpCode.NULL -> stack[sp++] = null;
+                case OpCode.POP -> stack[--sp] = null;
+                case OpCode.LOAD_LOCAL -> {
+                    int depth = code[pc++];
+                    stack[sp++] = frame.load(depth, code[pc++]);
+                }
+                case OpCode.STORE_LOCAL -> {
+                    int depth = code[pc++];
+                    frame.store(depth, code[pc++], stack[sp - 1]);
+                }
+                case OpCode.INC_LOCAL -> {
+                    int depth = code[pc++];
+                    int index = code[pc++];
+                    long delta = code[pc++];
+                    stack[sp++] = frame.store(depth, index, Operators.add(frame.load(depth, index), delta));
+                }
+                case OpCode.LOAD_GLOBAL -> stack[sp++] = globals.get(code[pc++]);
+                case OpCode.STORE_GLOBAL -> globals.set(code[pc++], stack[sp - 1]);
+                case OpCode.INC_GLOBAL -> {
+                    int index = code[pc++];
+                    long delta = code[pc++];
+                    stack[sp++] = globals.update(index, Operators::add, delta);
+                }
+                case OpCode.UPDATE_GLOBAL -> {
+                    int index = code[pc++];
+                    stack[sp - 1] = globals.update(index, generic(code[pc++]), stack[sp - 1]);
+                }
+                case OpCode.ADD -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.add(stack[sp - 1], r);
+                }
+                case OpCode.SUB -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.sub(stack[sp - 1], r);
+                }
+                case OpCode.MUL -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.mul(stack[sp - 1], r);
+                }
+                case OpCode.DIV -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.div(stack[sp - 1], r);
+                }
+                case OpCode.MOD -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.mod(stack[sp - 1], r);
+                }
+                case OpCode.EQ -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.eq(stack[sp - 1], r);
+                }
+                case OpCode.NEQ -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = !Operators.eq(stack[sp - 1], r);
+                }
+                case OpCode.LT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.lt(stack[sp - 1], r);
+                }
+                case OpCode.GT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.lt(r, stack[sp - 1]);
+                }
+                case OpCode.LE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.le(stack[sp - 1], r);
+                }
+                case OpCode.GE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = Operators.le(r, stack[sp - 1]);
+                }
+                case OpCode.AND -> {
+                    int offset = code[pc++];
+                    if (Operators.truthy(stack[sp - 1])) {
+                        stack[--sp] = null;
+                    } else {
+                        stack[sp - 1] = false;
+                        pc += offset;
+                    }
+                }
+                case OpCode.OR -> {
+                    int offset = code[pc++];
+                    if (Operators.truthy(stack[sp - 1])) {
+                        stack[sp - 1] = true;
+                        pc += offset;
+                    } else {
+                        stack[--sp] = null;
+                    }
+                }
+                case OpCode.BOOL -> stack[sp - 1] = Operators.truthy(stack[sp - 1]);
+                /// 特化的运算
+                case OpCode.IADD -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.iadd(stack[sp - 1], r);
+                }
+                case OpCode.ISUB -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.isub(stack[sp - 1], r);
+                }
+                case OpCode.IMUL -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.imul(stack[sp - 1], r);
+                }
+                case OpCode.IDIV -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.idiv(stack[sp - 1], r);
+                }
+                case OpCode.IMOD -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.imod(stack[sp - 1], r);
+                }
+                case OpCode.ILT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.ilt(stack[sp - 1], r);
+                }
+                case OpCode.ILE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.ile(stack[sp - 1], r);
+                }
+                case OpCode.IGT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.ilt(r, stack[sp - 1]);
+                }
+                case OpCode.IGE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.ile(r, stack[sp - 1]);
+                }
+                case OpCode.IEQ -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.ieq(stack[sp - 1], r);
+                }
+                case OpCode.INE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = !TypedOps.ieq(stack[sp - 1], r);
+                }
+                case OpCode.FADD -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fadd(stack[sp - 1], r);
+                }
+                case OpCode.FSUB -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fsub(stack[sp - 1], r);
+                }
+                case OpCode.FMUL -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fmul(stack[sp - 1], r);
+                }
+                case OpCode.FDIV -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fdiv(stack[sp - 1], r);
+                }
+                case OpCode.FMOD -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fmod(stack[sp - 1], r);
+                }
+                case OpCode.FLT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.flt(stack[sp - 1], r);
+                }
+                case OpCode.FLE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fle(stack[sp - 1], r);
+                }
+                case OpCode.FGT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.flt(r, stack[sp - 1]);
+                }
+                case OpCode.FGE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.fle(r, stack[sp - 1]);
+                }
+                case OpCode.FEQ -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.feq(stack[sp - 1], r);
+                }
+                case OpCode.FNE -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = !TypedOps.feq(stack[sp - 1], r);
+                }
+                case OpCode.CONCAT -> {
+                    Object r = stack[--sp];
+                    stack[sp - 1] = TypedOps.concat(stack[sp - 1], r);
+                }
+                case OpCode.CAST -> stack[sp - 1] = TypedOps.cast(TYPES[code[pc++]], stack[sp - 1]);
+                case OpCode.NEG -> stack[sp - 1] = Operators.neg(stack[sp - 1]);
+                case OpCode.POS -> stack[sp - 1] = Operators.pos(stack[sp - 1]);
+                case OpCode.NOT -> stack[sp - 1] = Operators.not(stack[sp - 1]);
+                case OpCode.JUMP -> {
+                    int offset = code[pc++];
+                    pc += offset;
+                }
+                case OpCode.JUMP_IF_FALSE -> {
+                    int offset = code[pc++];
+                    Object cond = stack[--sp];
+                    stack[sp] = null;
+                    if (!Operators.truthy(cond)) pc += offset;
+                }
+                case OpCode.FIELD -> stack[sp - 1] = fields[code[pc++]].get(stack[sp - 1]);
+                case OpCode.SET_FIELD -> {
+                    Object value = stack[--sp];
+                    stack[sp] = null;
+                    stack[sp - 1] = fields[code[pc++]].set(stack[sp - 1], value);
+                }
+                case OpCode.NEW -> stack[sp++] = new MObject();
+                case OpCode.DUP2 -> {
+                    stack[sp] = stack[sp - 2];
+                    stack[sp + 1] = stack[sp - 1];
+                    sp += 2;
+                }
+                case OpCode.DUP -> {
+                    stack[sp] = stack[sp - 1];
+                    ++sp;
+                }
+                case OpCode.INDEX -> {
+                    Object index = stack[--sp];
+                    stack[sp] = null;
+                    stack[sp - 1] = Operators.index(stack[sp - 1], index);
+                }
+                case OpCode.SET_INDEX -> {
+                    Object value = stack[--sp];
+                    Object index = stack[--sp];
+                    stack[sp] = stack[sp + 1] = null;
+                    stack[sp - 1] = Operators.setIndex(stack[sp - 1], index, value);
+                }
+                case OpCode.NEW_ARRAY -> stack[sp - 1] = MArray.create(TYPES[code[pc++]], Operators.toIndex(stack[sp - 1]));
+                case OpCode.FORMAT -> {
+                    StringTemplate template = (StringTemplate) constants[code[pc++]];
+                    int argc = code[pc++];
+                    Object[] args = new Object[argc];
+                    sp -= argc;
+                    System.arraycopy(stack, sp, args, 0, argc);
+                    stack[sp++] = template.apply(args);
+                }
+                case OpCode.CALL, OpCode.TAIL_CALL, OpCode.CALL_VALUE -> {
+                    int op = code[pc - 1];
+                    boolean tail = op == OpCode.TAIL_CALL;
+                    ModuleFunction function;
+                    int argc, from;
+                    Type tailCast = null;
+                    if (op == OpCode.CALL_VALUE) {
+                        // 实参之下为被调用的函数值, 一并弹出
+                        argc = code[pc++];
+                        from = sp - argc;
+                        function = Operators.toFunction(stack[from - 1]);
+                        sp = from - 1;
+                    } else {
+                        CallCache site = calls[code[pc++]];
+                        argc = code[pc++];
+                        if (tail && code[pc++] >= 0) tailCast = TYPES[code[pc - 1]];
+                        sp -= argc;
+                        from = sp;
+                        function = site.select(frame.getFunctions(), stack, from, argc);
+                    }
+                    if (function instanceof ChunkFunction callee) {
+                        // @memo函数命中缓存时直接得到结果, 尾调用时之后的RETURN返回它
+                        MemoCache.Call call = callee.memo(stack, from, argc);
+                        if (call != null) {
+                            Object value = call.cached();
+                            if (value != MemoCache.MISS) {
+                                stack[sp++] = value;
+                                break;
+                            }
+                        }
+                        Frame next = callee.enter(stack, from, argc);
+                        // 尾调用复用当前的调用记录, 返回时直接回到调用者; 当前调用未命中缓存时, 尾调用的结果就是它的结果
+                        // 返回值只能记录一个类型转换, 与已有的转换不同时按普通调用执行; 未命中缓存的调用也按普通调用执行
+                        if (tail && call == null && (tailCast == null || cast == null || cast == tailCast)) {
+                            if (tailCast != null) cast = tailCast;
+                        } else {
+                            if (callDepth == maxDepth) {
+                                throw new RuntimeException(String.format("Stack overflow: call depth exceeds %d in %s", maxDepth, callee.getName()));
+                            }
+                            caller = new Activation(chunk, frame, pc, cast, memo, caller);
+                            cast = null;
+                            memo = call;
+                            ++callDepth;
+                        }
+                        chunk = callee.getChunk();
+                        code = chunk.code();
+                        constants = chunk.constants();
+                        fields = chunk.fields();
+                        calls = chunk.calls();
+                        frame = next;
+                        pc = 0;
+                        if (sp + chunk.maxStack() > stack.length) {
+                            stack = Arrays.copyOf(stack, Math.max(stack.length << 1, sp + chunk.maxStack()));
+                        }
+                        break;
+                    }
+                    // 其他函数直接调用, 尾调用时之后的RETURN返回其结果
+                    Object[] args = new Object[argc];
+                    System.arraycopy(stack, from, args, 0, argc);
+                    stack[sp++] = function.apply(args);
+                }
+                case OpCode.GUARD -> {
+                    ModuleFunction function = calls[code[pc++]].lookup(frame.getFunctions());
+                    Object definition = constants[code[pc++]];
+                    int offset = code[pc++];
+                    if (!(function instanceof MFunction f) || f.getDefinition() != definition) pc += offset;
+                }
+                case OpCode.LOAD_HOISTED -> {
+                    Object value = frame.load(0, code[pc++]);
+                    int offset = code[pc++];
+                    if (value != null) {
+                        stack[sp++] = value;
+                        pc += offset;
+                    }
+                }
+                // 字符串可能由对象或数组转换得到, 对象或数组修改后结果不同, 不保存
+                case OpCode.CACHE -> {
+                    Object value = stack[sp - 1];
+                    int index = code[pc++];
+                    if (value instanceof Number || value instanceof Boolean) frame.store(0, index, value);
+                }
+                case OpCode.FUNCTION -> {
+                    Chunk.Proto proto = (Chunk.Proto) constants[code[pc++]];
+                    frame.getFunctions().define(proto.name(), new ChunkFunction(proto, frame.capture(proto.captures()), this));
+                }
+                case OpCode.CLOSURE -> {
+                    Chunk.Proto proto = (Chunk.Proto) constants[code[pc++]];
+                    Frame closure = proto.captures() == null ? frame : frame.capture(proto.captures());
+                    stack[sp++] = new ChunkFunction(proto, closure, this);
+                }
+                case OpCode.BOX -> frame.store(0, code[pc++], new Box(stack[sp - 1]));
+                case OpCode.LOAD_BOXED -> {
+                    int depth = code[pc++];
+                    stack[sp++] = ((Box) frame.load(depth, code[pc++])).value;
+                }
+                case OpCode.STORE_BOXED -> {
+                    int depth = code[pc++];
+                    ((Box) frame.load(depth, code[pc++])).value = stack[sp - 1];
+                }
+                case OpCode.ITER -> {
+                    frame.store(0, code[pc++], Operators.iterator(stack[--sp]));
+                    stack[sp] = null;
+                }
+                case OpCode.FOR_NEXT -> {
+                    int index = code[pc++];
+                    int offset = code[pc++];
+                    Iterator<?> iterator = (Iterator<?>) frame.load(0, index);
+                    if (iterator.hasNext()) {
+                        stack[sp++] = iterator.next();
+                    } else {
+                        frame.store(0, index, null);
+                        pc += offset;
+                    }
+                }
+                case OpCode.GENERATOR -> {
+                    String name = (String) constants[code[pc++]];
+                    stack[sp++] = new ChunkGenerator(name, this, chunk, frame, pc + 1);
+                }
+                // 只出现在生成器的函数体中, 函数体只由生成器执行, 此时不在其他调用中
+                case OpCode.YIELD -> {
+                    generator.suspend(pc, stack[--sp]);
+                    return null;
+                }
+                case OpCode.PARALLEL_FOR -> {
+                    Chunk.Parallel parallel = (Chunk.Parallel) constants[code[pc++]];
+                    Object iterable = stack[--sp];
+                    stack[sp] = null;
+                    parallel.loop().run(frame, iterable, worker -> run(parallel.body(), worker));
+                }
+                case OpCode.LOOP -> {
+                    int id = code[pc++];
+                    if (jit == null) break;
+                    TieredCompiler.Profile[] profiles = chunk.profiles();
+                    if (profiles[id] == null) profiles[id] = new TieredCompiler.Profile();
+                    // 循环已由编译后的代码执行完毕, 跳到循环之后
+                    Chunk.Loop loop = chunk.loops()[id];
+                    if (jit.onLoop(profiles[id], loop.node(), chunk.resolution(), frame)) pc = loop.exit();
+                }
+                case OpCode.RETURN -> {
+                    Object value = stack[--sp];
+                    if (cast != null) value = TypedOps.cast(cast, value);
+                    if (memo != null) memo.store(value);
+                    if (caller == null) return value;
+                    chunk = caller.chunk();
+                    code = chunk.code();
+                    constants = chunk.constants();
+                    fields = chunk.fields();
+                    calls = chunk.calls();
+                    frame = caller.frame();
+                    pc = caller.pc();
+                    cast = caller.cast();
+                    memo = caller.memo();
+                    caller = caller.caller();
+                    --callDepth;
+                    stack[sp++] = value;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + code[pc - 1]);
+            }
+        }
+    }
+
+    // UPDATE_GLOBAL的运算
+    private static BinaryOperator<Object> generic(int op) {
+        return switch (op) {
+            case OpCode.ADD -> Operators::add;
+            case OpCode.SUB -> Operators::sub;
+            case OpCode.MUL -> Operators::mul;
+            case OpCode.DIV -> Operators::div;
+            case OpCode.MOD -> Operators::mod;
+            default -> throw new IllegalStateException("Unknown update operator " + op);
+        };
+    }
+}
@@ -1,10 +1,13 @@
 package com.mnzn.lex;
 
+import io.vavr.Tuple;
 import io.vavr.Tuple2;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 // 词法解析器,使用有限自动机解析所有Token
@@ -24,14 +27,25 @@ public class LexParser {
 
     public List<Token> parse(String str) {
         List<Token> tokens = new ArrayList<>();
+        // 正在读取的内插表达式, 每层记录表达式中未匹配的{个数
+        Deque<Integer> formats = new ArrayDeque<>();
         int start = 0;
         try {
             while (start < str.length()) {
-                // 获取最优匹配
-                Tuple2<TokenTag, Integer> best = TokenTag.bestMatch(str, start);
+                // 获取最优匹配, 内插表达式结束时继续读取字符串
+                Tuple2<TokenTag, Integer> best = !formats.isEmpty() && formats.peek() == 0 && str.charAt(start) == '}'
+                        ? formatRest(str, start)
+                        : TokenTag.bestMatch(str, start);
+                TokenTag tag = best._1;
+                if (tag == TokenTag.FormatEnd || tag == TokenTag.FormatMiddle) formats.pop();
+                if (tag == TokenTag.FormatHead || tag == TokenTag.FormatMiddle) {
+                    formats.push(0);
+                } else if (!formats.isEmpty() && (tag == TokenTag.L3 || tag == TokenTag.R3)) {
+                    formats.push(formats.pop() + (tag == TokenTag.L3 ? 1 : -1));
+                }
                 // 构造Token
                 String value = str.substring(start, best._2);
-                tokens.add(Token.of(best._1, value));
+                tokens.add(Token.of(tag, value));
                 // 匹配下一个位置, 更新游标
                 start = best._2;
                 updateCursor(value);
@@ -42,6 +56,15 @@ public class LexParser {
         return tokens;
     }
 
+    // 内插表达式之后的部分 }text{ 或 }text"
+    private static Tuple2<TokenTag, Integer> formatRest(String str, int start) {
+        for (TokenTag tag : new TokenTag[]{TokenTag.FormatMiddle, TokenTag.FormatEnd}) {
+            int end = tag.match(str, start);
+            if (end != -1) return Tuple.of(tag, end);
+        }
+        throw new RuntimeException("Unterminated format string");
+    }
+
     public List<Token> parseFile(String filePath) {
         File file = new File(filePath);
         if (!file.exists()) {
@@ -72,6 +72,24 @@ public class Token {
                                 PrintConfig.GREEN
                         }
                 );
+                case RawStringLiteral -> Tuple.of(
+                        new TokenString(value, true, false),
+                        new PrintConfig[]{
+                                PrintConfig.GREEN
+                        }
+                );
+                case FormatLiteral -> Tuple.of(
+                        new TokenString(value, false, true),
+                        new PrintConfig[]{
+                                PrintConfig.GREEN
+                        }
+                );
+                case FormatHead, FormatMiddle, FormatEnd -> Tuple.of(
+                        new TokenFormat(tag, value),
+                        new PrintConfig[]{
+                                PrintConfig.GREEN
+                        }
+                );
                 case Nop -> Tuple.of(
                         new Token(tag),
                         new PrintConfig[]{
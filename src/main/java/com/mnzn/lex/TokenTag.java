@@ -24,6 +24,7 @@ public enum TokenTag {
     Comma(","),
     Dot("."),
     Quest("?"),
+    At("@"),
     // 关系运算符
     Eq("=="),
     Le("<"),
@@ -80,12 +81,15 @@ public enum TokenTag {
     If("if"),
     Else("else"),
     Return("return"), // return
+    In("in"), // for (let x in xs)
+    Yield("yield"), // 生成器
     Switch("switch"),
     Case("case"),
     Default("default"),
     // 其他特性的关键字
     Import("import"), // 引入模块
     Let("let"), // 定义变量
+    Func("func"), // 定义函数
     // 标识符
     Identifier(Pattern.compile("[a-zA-Z_]\\w*"), "id"),
     /// 字面量
@@ -95,6 +99,14 @@ public enum TokenTag {
     FloatLiteral(Pattern.compile("\\d+\\.\\d*"), "fi"),
     // 字符串,使用\"转义
     StringLiteral(Pattern.compile("\".*?(?!\\\\)\""), "si"),
+    // 原始字符串 r"...", 不转义
+    RawStringLiteral(Pattern.compile("r\"[^\"]*\""), "rsi"),
+    // 内插字符串 $"a{x}b{y}c", 文本中的{{和}}表示{和}; 不含内插表达式时为普通字符串
+    FormatLiteral(Pattern.compile("\\$\"(?:\\\\.|\\{\\{|\\}\\}|[^\"\\\\{}])*+\""), "fsi"),
+    FormatHead(Pattern.compile("\\$\"(?:\\\\.|\\{\\{|\\}\\}|[^\"\\\\{}])*+\\{"), "fh"),
+    // 内插表达式之后的部分, 只在内插表达式结束时由LexParser匹配
+    FormatMiddle(Pattern.compile("\\}(?:\\\\.|\\{\\{|\\}\\}|[^\"\\\\{}])*+\\{"), "fm"),
+    FormatEnd(Pattern.compile("\\}(?:\\\\.|\\{\\{|\\}\\}|[^\"\\\\{}])*+\""), "fe"),
     // 空白/注释
     Nop(Pattern.compile("(?m)(\\s+)|(//[\\s\\S]*?\n)|(/\\*[\\s\\S]*?\\*/)")),
     /// 不参与词法分析的特殊token
@@ -151,8 +163,13 @@ public enum TokenTag {
         return !isNone() && this != Nop;
     }
 
+    // 上下文相关的token, 不参与最优匹配
+    boolean isContextual() {
+        return this == FormatMiddle || this == FormatEnd;
+    }
+
     // 在开头匹配,匹配失败返回-1,否则返回下一个字符的位置
-    private int match(String s, int idx) {
+    int match(String s, int idx) {
         if (null != pure) {
             // 匹配纯字符
             if (s.startsWith(pure, idx)) return idx + pure.length();
@@ -169,14 +186,18 @@ public enum TokenTag {
     static Tuple2<TokenTag, Integer> bestMatch(String s, int idx) {
         List<Tuple2<TokenTag, Integer>> matches = new ArrayList<>();
         for (TokenTag tag : values()) {
+            if (tag.isContextual()) continue;
             int nxt = tag.match(s, idx);
             if (nxt != -1) {
                 matches.add(Tuple.of(tag, nxt));
             }
         }
-        // 多个匹配时不优先考虑标识符
+        // 多个匹配时不优先考虑标识符, 除非标识符更长(function不是func加上tion)
         if (matches.size() > 1) {
-            matches.removeIf(t -> t._1 == Identifier);
+            int id = matches.stream().filter(t -> t._1 == Identifier).mapToInt(t -> t._2).findAny().orElse(-1);
+            if (matches.stream().anyMatch(t -> t._1 != Identifier && t._2 >= id)) {
+                matches.removeIf(t -> t._1 == Identifier);
+            }
         }
         if (matches.isEmpty()) {
             // Todo
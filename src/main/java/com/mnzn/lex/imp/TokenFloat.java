@@ -6,11 +6,11 @@ import lombok.Getter;
 
 public class TokenFloat extends Token {
     @Getter
-    private final float value;
+    private final double value;
 
     public TokenFloat(String value) {
         super(TokenTag.FloatLiteral);
-        this.value = Float.parseFloat(value);
+        this.value = Double.parseDouble(value);
     }
 
     @Override
@@ -0,0 +1,22 @@
+package com.mnzn.lex.imp;
+
+import com.mnzn.lex.Token;
+import com.mnzn.lex.TokenTag;
+import lombok.Getter;
+
+// 内插字符串中内插表达式之间的文本 $"text{ , }text{ , }text"
+public class TokenFormat extends Token {
+    @Getter
+    private final String text;
+
+    public TokenFormat(TokenTag tag, String value) {
+        super(tag);
+        int start = tag == TokenTag.FormatHead ? 2 : 1;
+        this.text = TokenString.unescape(value, start, value.length() - 1, true);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("<%s, \"%s\">", name(), text);
+    }
+}
@@ -6,11 +6,11 @@ import lombok.Getter;
 
 public class TokenInt extends Token {
     @Getter
-    private final int value;
+    private final long value;
 
     public TokenInt(String value) {
         super(TokenTag.IntLiteral);
-        this.value = Integer.parseInt(value);
+        this.value = Long.parseLong(value);
     }
 
     @Override
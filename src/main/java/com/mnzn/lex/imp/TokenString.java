@@ -11,8 +11,15 @@ public class TokenString extends Token {
     private final String value;
 
     public TokenString(String value) {
+        this(value, false, false);
+    }
+
+    // 原始字符串 r"..." 不转义; 不含内插表达式的内插字符串 $"..." 还需要转换{{和}}
+    public TokenString(String value, boolean raw, boolean format) {
         super(TokenTag.StringLiteral);
-        this.value = buildFrom(value);
+        int start = raw || format ? 2 : 1;
+        int end = value.length() - 1;
+        this.value = raw ? value.substring(start, end) : unescape(value, start, end, format);
     }
 
     @Override
@@ -20,13 +27,15 @@ public class TokenString extends Token {
         return String.format("<%s, \"%s\">", name(), value);
     }
 
-    private static String buildFrom(String value) {
+    // 转义value[start, end), 以\作为转义标识符; braces为true时{{和}}转为{和}
+    public static String unescape(String value, int start, int end, boolean braces) {
         StringBuilder sb = new StringBuilder();
-        // 移除首尾引号, 并以\作为转义标识符进行转义
-        int end = value.length() - 1;
-        for (int i = 1; i < end; i++) {
+        for (int i = start; i < end; i++) {
             char c = value.charAt(i);
-            if (c == '\\') {
+            if (braces && (c == '{' || c == '}')) {
+                ++i; // Token匹配的时候会确保{和}成对出现
+                sb.append(c);
+            } else if (c == '\\') {
                 c = value.charAt(++i); // Token匹配的时候会确保\不是最后一个字符
                 Character rep = castMap.get(c);
                 if (rep == null) {
@@ -1,5 +1,6 @@
 package com.mnzn.utils.visual.console;
 
+import com.mnzn.grammar.CompactAST;
 import com.mnzn.lex.Token;
 import com.mnzn.lex.TokenTag;
 import com.mnzn.utils.tree.TreeNode;
@@ -50,6 +51,14 @@ public class PrintUtils {
         }
     }
 
+    // 打印紧凑语法树, 用一个游标按先序遍历, 不递归也不构造结点对象
+    public static void printTree(CompactAST ast, String determiner) {
+        CompactAST.Cursor cursor = ast.cursor();
+        do {
+            System.out.println(determiner.repeat(cursor.depth()) + cursor);
+        } while (cursor.next());
+    }
+
     public static void main(String[] args) {
         List<List<String>> table = List.of(
                 List.of("a", "b", "c"),
@@ -1,5 +1,6 @@
 package com.mnzn.utils.visual.paint;
 
+import com.mnzn.grammar.CompactAST;
 import com.mnzn.utils.tree.DrawableTreeNode;
 import guru.nidi.graphviz.attribute.*;
 import guru.nidi.graphviz.engine.Format;
@@ -18,13 +19,16 @@ import static guru.nidi.graphviz.model.Factory.*;
 
 public class PaintUnits {
     private static <T extends DrawableTreeNode<T>> Node makeNode(T n) {
+        return makeNode(n.getId(), n.getLabels());
+    }
+
+    private static Node makeNode(String id, List<String> labels) {
         // 附带要显示的所有属性
-        Attributes<ForNode> rec = Records.of(n.getLabels().stream().
+        Attributes<ForNode> rec = Records.of(labels.stream().
                 map(StringEscapeUtils::escapeHtml3).
                 map(c -> c.replaceAll("[{}|\"]", "\\\\$0")).
                 toArray(String[]::new));
-        return node(n.getId()).with(rec);
-
+        return node(id).with(rec);
     }
 
     // 打印树状图
@@ -49,14 +53,40 @@ public class PaintUnits {
                 queue.add(child.getNode());
             }
         }
+        render(g, outputPath, width);
+    }
+
+    public static <T extends DrawableTreeNode<T>> void paintTree(T root, String outputPath) {
+        paintTree(root, outputPath, 2000);
+    }
+
+    // 打印紧凑语法树的树状图, 直接按下标遍历arena
+    public static void paintTree(CompactAST ast, String outputPath, int width) {
+        Graph g = graph().directed().
+                graphAttr().with(Rank.dir(Rank.RankDir.TOP_TO_BOTTOM)).
+                with(makeNode(ast, ast.root()));
+        for (int node = 0; node < ast.nodeCount(); node++) {
+            Node n = makeNode(ast, node);
+            for (int c = ast.firstChild(node); c != CompactAST.NONE; c = ast.nextSibling(c)) {
+                g = g.with(n.link(to(makeNode(ast, c)).with(Label.of(""))));
+            }
+        }
+        render(g, outputPath, width);
+    }
+
+    public static void paintTree(CompactAST ast, String outputPath) {
+        paintTree(ast, outputPath, 2000);
+    }
+
+    private static Node makeNode(CompactAST ast, int node) {
+        return makeNode("n" + node, List.of(ast.toString(node)));
+    }
+
+    private static void render(Graph g, String outputPath, int width) {
         try {
             Graphviz.fromGraph(g).width(width).render(Format.PNG).toFile(new File(outputPath));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-
-    public static <T extends DrawableTreeNode<T>> void paintTree(T root, String outputPath) {
-        paintTree(root, outputPath, 2000);
-    }
 }
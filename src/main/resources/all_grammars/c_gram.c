@@ -9,7 +9,13 @@ stmt |> not_if_stmt
 // 除了两个特殊if语句之外的其他语句
 not_if_stmt |> expr_stmt
                compound_stmt
-               while_stmt $
+               let_stmt
+               while_stmt
+               for_stmt
+               yield_stmt
+               func_stmt
+               annotated_stmt
+               return_stmt $
 
 // 语句列表
 stmt_seq -> stmt_seq stmt $
@@ -22,9 +28,42 @@ expr_stmt -> ; $
 // 复合语句
 compound_stmt -> { stmt_seq } $
 
+// 变量定义语句
+let_stmt -> let id = expr ; $
+let_stmt -> let id : type_name = expr ; $
+
+// 函数定义语句, 参数可以不声明类型
+func_stmt -> func id ( param_seq ) compound_stmt $
+func_stmt -> func id ( param_seq ) : type_name compound_stmt $
+param_seq -> param_seq , param $
+param_seq |> param e $
+param -> id : type_name $
+param |> id $
+
+// 带注解的函数定义 @memo func f(n) {...} 或 @memo(entries, weight) func f(n) {...}
+annotated_stmt -> @ id func_stmt $
+annotated_stmt -> @ id ( expr_seq ) func_stmt $
+// 并行的遍历语句 @parallel for (...) {...} 或 @parallel(+sum, min(lo), max(hi)) for (...) {...}
+annotated_stmt -> @ id for_stmt $
+annotated_stmt -> @ id ( expr_seq ) for_stmt $
+
+// 返回语句
+return_stmt -> return expr ; $
+return_stmt -> return ; $
+
+// 类型
+type_name |> bool int float string object void $
+
 // 循环语句
 while_stmt -> while parent_expr stmt $
 
+// 遍历语句, 逐个取出range, 生成器, 数组或字符串的元素
+for_stmt -> for ( let id in expr ) stmt $
+for_stmt -> for ( let id : type_name in expr ) stmt $
+
+// 生成器中交出一个值, 含有yield的函数是生成器函数
+yield_stmt -> yield expr ; $
+
 // 条件语句(匹配了else)
 if_matched_stmt -> if parent_expr if_matched_stmt else if_matched_stmt $
 if_matched_stmt |> not_if_stmt $
@@ -47,13 +86,24 @@ field_expr -> obj_expr . id $
 // -数组下标表达式
 sub_expr -> obj_expr [ expr ] $
 // --对象表达式
-obj_expr |> ass_able call_expr literal_expr parent_expr $
+obj_expr |> ass_able call_expr literal_expr parent_expr object_expr array_expr format_expr lambda_expr $
 // ---函数调用表达式
 call_expr   -> obj_expr ( expr_seq ) $
 // ---括号表达式
 parent_expr -> ( expr ) $
 // ---字面量表达式
 literal_expr |> ii fi si bi $
+// ---创建对象
+object_expr -> object ( ) $
+// ---创建数组
+array_expr -> type_name [ expr ] $
+// ---lambda表达式 func (x, y) { return x + y; }
+lambda_expr -> func ( param_seq ) compound_stmt $
+lambda_expr -> func ( param_seq ) : type_name compound_stmt $
+// ---内插字符串 $"a{x}b{y}c"
+format_expr -> fh expr format_tail $
+format_tail -> fm expr format_tail $
+format_tail |> fe $
 
 /// 一元运算符(算术,逻辑,位) + - ! ~ ++ --
 unary_expr -> unary_op unary_expr $
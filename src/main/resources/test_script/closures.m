@@ -0,0 +1,96 @@
+// 闭包: 只被捕获的变量按值复制, 被捕获且被赋值的变量放在共享的存储单元中
+let add = func (x, y) { return x + y; };
+print(add(2, 3), " ", func (x) { return x * 2; }(21), "\n");
+// ---
+// 存储单元: 闭包之间和闭包与定义处共享被赋值的变量
+func counter() {
+    let n = 0;
+    return func () { ++n; return n; };
+}
+let c = counter();
+c(); c();
+let d = counter();
+print(c(), " ", d(), " ", c(), "\n");
+func shared() {
+    let o = object();
+    let v = 1;
+    o.get = func () { return v; };
+    o.set = func (x) { v = x; };
+    return o;
+}
+let s = shared();
+s.set(42);
+print(s.get(), "\n");
+func param(p) {
+    let f = func () { p = p + 1; return p; };
+    f();
+    return f() + p;
+}
+print(param(10), "\n");
+func outer() {
+    let x = 1;
+    func inner() { return x + 1; }
+    x = 5;
+    return inner();
+}
+print(outer(), "\n");
+// ---
+// 按值捕获: 每轮循环的let是新的变量
+func make() {
+    let fs = object[3];
+    let i = 0;
+    while (i < 3) {
+        let j = i;
+        fs[i] = func () { return j * 10; };
+        ++i;
+    }
+    return fs;
+}
+let fs = make();
+print(fs[0](), " ", fs[1](), " ", fs[2](), "\n");
+let loops = object[0];
+for (let i in range(3)) push(loops, func () { return i; });
+print(loops[0](), loops[1](), loops[2](), "\n");
+func adder(k: int) {
+    return func (x: int): int { return x + k; };
+}
+let a5 = adder(5);
+func compose(f, g) { return func (x) { return f(g(x)); }; }
+func nest(a) {
+    return func (b) { return func (c) { return a + b + c; }; };
+}
+print(a5(10), " ", compose(a5, adder(100))(1), " ", nest(1)(2)(3), "\n");
+// ---
+// 不逃逸的局部lambda直接使用定义处的帧, 赋值在定义处可见
+func sum(n: int) {
+    let total = 0;
+    let step = func (i) { total += i; };
+    let i = 0;
+    while (i < n) { step(i); ++i; }
+    return total;
+}
+func local(n: int) {
+    let sq = func (x) { return x * x; };
+    return sq(n) + sq(n + 1);
+}
+func escaping(n: int) {
+    let total = 0;
+    let step = func (i) { total += i; return total; };
+    let keep = step;
+    keep(n);
+    return step(n) + total;
+}
+print(sum(100), " ", local(3), " ", escaping(4), "\n");
+{
+    let t = 7;
+    let g = func () { return t; };
+    print(g(), "\n");
+}
+// ---
+// 错误
+let notf = 3;
+notf(1);
+// ---
+let typed = func (x: int): string { return "v" + x; };
+print(typed(3), "\n");
+typed(1.5);
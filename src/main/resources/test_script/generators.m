@@ -0,0 +1,114 @@
+// 生成器: 树解释器从帧中保存的位置重新进入, 虚拟机暂停调用, 两者的输出必须一致
+func count(n) {
+    let i = 0;
+    while (i < n) {
+        yield i;
+        ++i;
+    }
+}
+for (let x in count(5)) print(x, " ");
+print("\n");
+// ---
+// 块, if, 嵌套的while中的yield, 以及yield之间的副作用
+func steps() {
+    print("a");
+    yield 1;
+    { print("b"); yield 2; print("c"); }
+    if (true) { yield 3; print("d"); } else yield 99;
+    let k = 0;
+    while (k < 2) {
+        let j = 0;
+        while (j < 2) {
+            if (j == 1) { yield k * 10 + j; } else yield -(k * 10 + j);
+            ++j;
+        }
+        ++k;
+    }
+    print("e");
+    return;
+    yield 100;
+}
+for (let v in steps()) print(" ", v, " ");
+print("\n");
+// ---
+// for中的yield, 内层的迭代器随帧保留
+func evens(g) {
+    for (let x in g) {
+        if (x % 2 == 0) yield x * 10;
+        else { print("[", x, "]"); }
+    }
+    yield -1;
+}
+for (let v in evens(count(7))) print(v, " ");
+print("\n");
+func pairs(n) {
+    for (let i in range(n)) {
+        for (let j in range(i)) {
+            let k = 0;
+            while (k < 2) { if (k == 1) yield $"{i}{j}"; ++k; }
+        }
+    }
+}
+for (let p in pairs(4)) print(p, " ");
+print("\n");
+// ---
+// 递归的生成器
+func walk(n) {
+    if (n > 0) {
+        for (let x in walk(n - 1)) yield x;
+        yield n;
+        for (let x in walk(n - 1)) yield -x;
+    }
+}
+for (let v in walk(3)) print(v, " ");
+print("\n");
+func tree(depth, prefix) {
+    yield prefix;
+    if (depth > 0) {
+        for (let x in tree(depth - 1, prefix + "L")) yield x;
+        for (let x in tree(depth - 1, prefix + "R")) yield x;
+    }
+}
+let names = "";
+for (let s in tree(2, "*")) names = names + s + " ";
+print(names, "\n");
+// ---
+// 提前放弃: return离开for时生成器停在yield处, 之后继续遍历同一个生成器从该处恢复
+func naturals() {
+    let i = 0;
+    while (true) { yield i; ++i; }
+}
+func first(g, n) {
+    for (let x in g) if (x >= n) return x;
+    return -1;
+}
+let g = naturals();
+print(first(g, 3), " ", first(g, 3), " ", first(g, 10), "\n");
+let fin = count(4);
+print(first(fin, 1), " ", first(fin, 10), " ", first(fin, 0), "\n");
+print(stream(naturals()).filter(func (x) { return x % 3 == 0; }).take(4).collect(), "\n");
+// ---
+// 捕获变量的生成器和yield的闭包
+let base = 100;
+let gen = func (n) { for (let i in range(n)) yield base + i; };
+let out = "";
+for (let v in gen(3)) out = out + v + ";";
+print(out, "\n");
+func closures() {
+    for (let i in range(3)) {
+        let k = i;
+        yield func () { return k * k; };
+    }
+}
+for (let f in closures()) print(f(), " ");
+print("\n");
+// ---
+// 错误
+yield 1;
+// ---
+func bad(): int { yield 1; }
+// ---
+func bad2() { yield 1; return 2; }
+// ---
+func boom() { yield 1; print(1 / 0); }
+for (let v in boom()) print(v, "\n");
@@ -0,0 +1,69 @@
+// @parallel for: 每段使用帧的拷贝, 归约变量的各段结果按下标顺序合并; 结果与顺序执行相同
+let total = 0;
+let lo = 1000000;
+let hi = -1;
+@parallel(+total, min(lo), max(hi)) for (let i in range(100000)) {
+    let v = (i * 7919) % 100003;
+    total += v;
+    if (v < lo) lo = v;
+    hi = hi < v ? v : hi;
+}
+print(total, " ", lo, " ", hi, "\n");
+// ---
+// 各段写数组的不同元素
+let out = int[50000];
+@parallel for (let i: int in range(50000)) out[i] = i * i % 97;
+let s = 0;
+for (let x in out) s += x;
+let sq = 0;
+@parallel(+sq) for (let x in out) sq += x;
+print(s, " ", sq == s, "\n");
+// ---
+// 函数中的循环, 元素少于一段和没有元素的循环
+func kernel(n) {
+    let acc = 0.5;
+    let best = 0;
+    @parallel(+acc, max(best)) for (let k in range(n)) {
+        let t = k % 10;
+        acc += t * 0.25;
+        best = t > best ? t : best;
+    }
+    return $"{acc} {best}";
+}
+print(kernel(20000), " ", kernel(3), " ", kernel(0), "\n");
+// ---
+// 字符串的+归约按下标顺序拼接
+let text = "";
+@parallel(+text) for (let i in range(5000)) text += $"{i % 10}";
+let expected = "";
+for (let i in range(5000)) expected += $"{i % 10}";
+print(len(text), " ", text == expected, "\n");
+// ---
+// 循环体中的lambda和函数调用, 嵌套的@parallel for
+let m = 0;
+func square(x) { return x * x; }
+@parallel(+m) for (let i in range(10000)) { let f = func (y) { return y + 1; }; m += f(square(i % 3)); }
+let count = 0;
+@parallel(+count) for (let i in range(10)) {
+    @parallel(+count) for (let j in range(5000)) count += 1;
+}
+print(m, " ", count, "\n");
+// ---
+// 错误
+let z = 0;
+@parallel for (let i in range(10)) z = i;
+// ---
+@parallel(+nope) for (let i in range(10)) z = 1;
+// ---
+@parallel(+z, +z) for (let i in range(3)) z += 1;
+// ---
+@parallel for (let i in "abc") print(i);
+// ---
+let b = true;
+@parallel(+b) for (let i in range(3)) b = true;
+// ---
+func r() { @parallel for (let i in range(3)) return 1; }
+// ---
+@parallel func f2() { return 1; }
+// ---
+@parallel for (let i in range(100000)) out[i] = i;
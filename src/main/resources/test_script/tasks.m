@@ -0,0 +1,77 @@
+// 任务和通道: 每个任务在自己的线程中执行, 全局变量的读写对其他任务可见, 复合赋值和自增原子地更新
+let t = spawn(func (a, b) { return a * b; }, 6, 7);
+print(await(t), "\n");
+func fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }
+let tasks = object[0];
+for (let i in range(20)) push(tasks, spawn(func (k) { return fib(k); }, i));
+let s = 0;
+for (let r in await(tasks)) s += r;
+print(s, "\n");
+// ---
+// 生产者和消费者, 通道关闭后for结束
+let ch = channel(4);
+let producer = spawn(func () {
+    for (let i in range(1000)) ch.send(i);
+    ch.close();
+    return "sent";
+});
+let total = 0;
+for (let v in ch) total += v;
+print(total, " ", await(producer), "\n");
+// ---
+// 多个工作任务共享一个任务通道
+let jobs = channel(8);
+let results = channel(8);
+let workers = object[0];
+for (let w in range(4)) push(workers, spawn(func () {
+    let n = 0;
+    for (let j in jobs) { results.send(j * j); n += 1; }
+    return n;
+}));
+let feeder = spawn(func () { for (let j in range(200)) jobs.send(j); jobs.close(); return 0; });
+let sum = 0;
+for (let k in range(200)) sum += results.receive();
+let handled = 0;
+for (let c in await(workers)) handled += c;
+print(sum, " ", handled, " ", await(feeder), "\n");
+// ---
+// 大量同时阻塞的任务, 超过同时执行的上限的任务排队等待
+let sleepers = object[0];
+for (let i in range(5000)) push(sleepers, spawn(func (x) { sleep(20); return x; }, i));
+let got = 0;
+for (let x in await(sleepers)) got += x;
+print(got, "\n");
+// ---
+// 全局变量: 其他任务的赋值可见, 并发的复合赋值和自增不丢失
+done = false;
+let waiter = spawn(func () { sleep(50); done = true; return 1; });
+let spins = 0;
+while (!done) spins += 1;
+print("stopped ", await(waiter), "\n");
+counter = 0;
+let adders = object[0];
+for (let k in range(8)) push(adders, spawn(func () {
+    for (let i in range(5000)) { counter += 2; ++counter; }
+    return 0;
+}));
+await(adders);
+print(counter, "\n");
+// ---
+// 错误
+await(spawn(func () { return 1 / 0; }));
+// ---
+let closed = channel(1);
+closed.close();
+closed.send(1);
+// ---
+let drained = channel(2);
+drained.send(5);
+drained.close();
+print(drained.receive(), "\n");
+drained.receive();
+// ---
+channel(0);
+// ---
+await(5);
+// ---
+spawn(5);
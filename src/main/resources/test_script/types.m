@@ -0,0 +1,39 @@
+// 类型检查: 函数体在顶层语句之后检查, 函数中对全局变量的赋值按let声明的类型检查
+let total: float = 1;
+func grow(k: int) { total = total * 2 + k; }
+grow(3);
+print(total, "\n");
+func sign(a): int {
+    if (a > 0) return 1;
+    else if (a < 0) return -1;
+    else { return 0; }
+}
+func first(a): int {
+    while (true) { if (a % 7 == 0) return a; ++a; }
+}
+let twice = func (a: int): int { return a * 2; };
+print(sign(5), sign(-5), sign(0), " ", first(10), " ", twice(21), "\n");
+// ---
+// 之前的求值中被函数赋值的全局变量, 之后用let定义时为object
+func later() { seen = "text"; }
+// ---
+let seen = 1.5;
+later();
+print(seen, " ", seen + "!", "\n");
+// ---
+// 错误
+func f() { x = "s"; }
+let x = 1.5;
+f();
+print(x * 2.0);
+// ---
+func f2() { n = 1.5; }
+let n = 1;
+f2();
+print(n + 1);
+// ---
+func g(a): int { if (a > 0) return 1; }
+// ---
+let h = func (a): string { print(a); };
+// ---
+func loop(a): int { while (a > 0) { return a; } }
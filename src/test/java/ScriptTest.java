@@ -0,0 +1,66 @@
+import com.mnzn.grammar.Grammar;
+import com.mnzn.grammar.Product;
+import com.mnzn.inter.InterpreterContext;
+import com.mnzn.lex.LexParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+// 回归脚本: test_script下的每个脚本在所有执行方式下执行, 输出必须与同名的.expected文件一致
+// 脚本按单独一行的"// ---"分为几段, 依次在同一个上下文中求值; 一段出错时输出"error: 信息"后继续求值下一段
+public class ScriptTest {
+    private static final String[] SCRIPTS = {"generators", "closures", "parallel", "tasks", "types"};
+    private static final String SEPARATOR = "\n// ---\n";
+
+    public static void main(String[] args) throws IOException {
+        String path = Objects.requireNonNull(ScriptTest.class.getResource("/all_grammars/c_gram.c")).getFile();
+        Grammar grammar = new Grammar("root_unit", Arrays.stream(new Product.ProductBuilder()
+                .autoImport().load(path)
+                .build()).toList());
+        int failures = 0;
+        for (String name : args.length > 0 ? args : SCRIPTS) {
+            String source = read("/test_script/" + name + ".m");
+            String expected = read("/test_script/" + name + ".expected");
+            for (InterpreterContext.Mode mode : InterpreterContext.Mode.values()) {
+                String actual = run(grammar, source, mode);
+                if (actual.equals(expected)) {
+                    System.out.printf("PASS %s %s%n", name, mode);
+                } else {
+                    ++failures;
+                    System.out.printf("FAIL %s %s%n--- expected%n%s--- actual%n%s", name, mode, expected, actual);
+                }
+            }
+        }
+        if (failures > 0) System.exit(1);
+    }
+
+    private static String run(Grammar grammar, String source, InterpreterContext.Mode mode) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            InterpreterContext context = new InterpreterContext(mode);
+            for (String part : source.split(SEPARATOR)) {
+                try {
+                    context.eval(grammar.parse(new LexParser().parse(part)));
+                } catch (RuntimeException e) {
+                    System.out.println("error: " + e.getMessage());
+                }
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = Objects.requireNonNull(ScriptTest.class.getResourceAsStream(resource), resource)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        }
+    }
+}
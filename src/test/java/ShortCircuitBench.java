@@ -0,0 +1,54 @@
+import com.mnzn.grammar.ASTNode;
+import com.mnzn.grammar.Grammar;
+import com.mnzn.grammar.Product;
+import com.mnzn.inter.InterpreterContext;
+import com.mnzn.lex.LexParser;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// 守卫条件密集的循环, 比较各执行方式的耗时, 并统计短路求值跳过的右操作数
+public class ShortCircuitBench {
+    private static final int N = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    // 右操作数中的++evaluated只在右操作数被执行时计数
+    private static final String SCRIPT = """
+            let n = %d;
+            let a = int[n];
+            let i = 0;
+            while (i < n) { a[i] = i %% 7; ++i; }
+            let evaluated = 0;
+            let hits = 0;
+            i = 0;
+            while (i <= n) {
+                if (i < n && a[i] > 3 && ++evaluated > 0) ++hits;
+                if (i == n || a[i] == 0 || ++evaluated < 0) ++hits;
+                ++i;
+            }
+            """.formatted(N);
+
+    public static void main(String[] args) {
+        String path = Objects.requireNonNull(ShortCircuitBench.class.getResource("/all_grammars/c_gram.c")).getFile();
+        Grammar grammar = new Grammar("root_unit", Arrays.stream(new Product.ProductBuilder()
+                .autoImport().load(path)
+                .build()).toList());
+        ASTNode root = grammar.parse(new LexParser().parse(SCRIPT));
+        // 不短路时每次循环两个++evaluated都会执行, 且i == n时a[i]越界
+        long eager = 2L * (N + 1);
+        for (InterpreterContext.Mode mode : InterpreterContext.Mode.values()) {
+            long best = Long.MAX_VALUE;
+            Object evaluated = null;
+            for (int i = 0; i < ROUNDS; i++) {
+                InterpreterContext context = new InterpreterContext(mode);
+                long start = System.nanoTime();
+                context.eval(root);
+                best = Math.min(best, System.nanoTime() - start);
+                evaluated = context.eval(grammar.parse(new LexParser().parse("evaluated")));
+            }
+            System.out.printf("%-4s best of %d: %8.2f ms, ++evaluated executed: %s of %d (%.1f%% skipped)%n",
+                    mode, ROUNDS, best / 1e6, evaluated, eager,
+                    100.0 * (eager - ((Number) evaluated).longValue()) / eager);
+        }
+    }
+}